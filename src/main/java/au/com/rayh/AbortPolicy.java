@@ -0,0 +1,150 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import hudson.Proc;
+
+/**
+ * Stops xcodebuild as soon as the output shows that the build is going to fail anyway,
+ * instead of letting a long test run finish first. The rules are checked as the lines are parsed:
+ * too many failed tests, a compile error in one of the given targets, or an uncaught exception in the app under test.
+ * <p>
+ * The process is killed on a thread of its own, because killing it waits for its output to be read by the parser.
+ * {@link Proc#kill()} also kills the processes started by xcodebuild, which are found by the environment
+ * variable Jenkins sets for it, so test runners and compilers do not keep the agent busy.
+ */
+public class AbortPolicy extends BuildEventListener {
+    private final PrintStream logger;
+    private int maxFailedTests;
+    private int failedTests;
+    private final Set<String> compileErrorTargets = new HashSet<String>();
+    private boolean terminatingException;
+    private String currentTarget;
+    private Proc process;
+    private String reason;
+
+    /**
+     * @param logger the console the reason of the abort is printed to
+     */
+    public AbortPolicy(PrintStream logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * @param maxFailedTests the number of failed tests after which xcodebuild is stopped, or 0 to run all the tests
+     */
+    public void setMaxFailedTests(int maxFailedTests) {
+        this.maxFailedTests = maxFailedTests;
+    }
+
+    /**
+     * @param targets the targets in which the first compile error stops xcodebuild, * for any target
+     */
+    public void setCompileErrorTargets(Collection<String> targets) {
+        compileErrorTargets.clear();
+        compileErrorTargets.addAll(targets);
+    }
+
+    /**
+     * @param terminatingException whether an uncaught exception in the app under test stops xcodebuild
+     */
+    public void setTerminatingException(boolean terminatingException) {
+        this.terminatingException = terminatingException;
+    }
+
+    public boolean isEnabled() {
+        return maxFailedTests > 0 || !compileErrorTargets.isEmpty() || terminatingException;
+    }
+
+    /**
+     * @param process the running xcodebuild, killed right away if it should have been stopped already
+     */
+    public synchronized void setProcess(Proc process) {
+        this.process = process;
+        if ( reason != null ) {
+            kill();
+        }
+    }
+
+    /**
+     * @return why xcodebuild was stopped, or null if it was not
+     */
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    @Override
+    public void targetStarted(String target, String project) throws IOException {
+        currentTarget = target;
+    }
+
+    /**
+     * The new build system runs the commands of several targets at once, so the target of the last step is the one
+     * a compile error belongs to.
+     */
+    @Override
+    public void stepStarted(String step, String target, String file) throws IOException {
+        if ( target != null ) {
+            currentTarget = target;
+        }
+    }
+
+    @Override
+    public void diagnostic(String severity, String location, String message) throws IOException {
+        if ( severity.equals("warning") ) {
+            return;
+        }
+        if ( compileErrorTargets.contains("*") || (currentTarget != null && compileErrorTargets.contains(currentTarget)) ) {
+            abort(Messages.AbortPolicy_CompileError(location, message));
+        }
+    }
+
+    @Override
+    public void crash(String exception, String reason) throws IOException {
+        if ( terminatingException ) {
+            abort(Messages.AbortPolicy_TerminatingException(exception, reason));
+        }
+    }
+
+    @Override
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+        if ( !passed ) {
+            failedTests++;
+            if ( maxFailedTests > 0 && failedTests >= maxFailedTests ) {
+                abort(Messages.AbortPolicy_MaxFailedTests(failedTests));
+            }
+        }
+    }
+
+    private synchronized void abort(String reason) {
+        if ( this.reason != null ) {
+            return;
+        }
+        this.reason = reason;
+        logger.println(Messages.AbortPolicy_Aborting(reason));
+        if ( process != null ) {
+            kill();
+        }
+    }
+
+    private void kill() {
+        final Proc process = this.process;
+        Thread killer = new Thread("Aborting xcodebuild") {
+            @Override
+            public void run() {
+                try {
+                    process.kill();
+                }
+                catch ( IOException | InterruptedException ex ) {
+                    ex.printStackTrace(logger);
+                }
+            }
+        };
+        killer.setDaemon(true);
+        killer.start();
+    }
+}
@@ -1,12 +1,7 @@
 package au.com.rayh;
 
-import com.dd.plist.NSDictionary; 
-import com.dd.plist.NSArray;
-import com.dd.plist.NSNumber;
-import com.dd.plist.NSObject;
-import com.dd.plist.NSString;
-import com.dd.plist.PropertyListFormatException; 
-import com.dd.plist.PropertyListParser; 
+import java.io.IOException;
+import java.util.Map;
 
 public class BuildConfiguration {
   public String uuid;
@@ -19,33 +14,37 @@ public class BuildConfiguration {
   public String provisioningProfileSpecifier;
   public String productName;
 
-  BuildConfiguration(NSDictionary objectsDict, String buildConfigurationUUID, Boolean automatic) {
-    NSDictionary buildConfigurationDict = ((NSDictionary)objectsDict.objectForKey(buildConfigurationUUID.toString()));
-    //String baseConfigurationReference = buildConfigurationDict.objectForKey("baseConfigurationReference").toString();
+  // Filled in by XcodeProjectCache.
+  BuildConfiguration() {
+  }
+
+  BuildConfiguration(PbxprojScanner objects, String buildConfigurationUUID, Boolean automatic) throws IOException {
+    Map<String, Object> buildConfigurationDict = objects.getObject(buildConfigurationUUID.toString());
+    //String baseConfigurationReference = buildConfigurationDict.get("baseConfigurationReference").toString();
     this.uuid = buildConfigurationUUID.toString();
-    this.name = buildConfigurationDict.objectForKey("name").toString();
+    this.name = buildConfigurationDict.get("name").toString();
     System.out.println("buildConfigurationUUID: " + this.uuid);
-    NSDictionary buildSettingsDict = ((NSDictionary)buildConfigurationDict.objectForKey("buildSettings"));
+    Map<String, Object> buildSettingsDict = PbxprojScanner.dictionary(buildConfigurationDict.get("buildSettings"));
     if ( buildSettingsDict == null ) {
       System.out.println("buildSettings not exists!");
       return;
     }
     // LastUpgradeCheck = 0630, CreatedOnToolsVersion = 6.3.1
-    if ( buildSettingsDict.objectForKey("PRODUCT_BUNDLE_IDENTIFIER") != null ) {
+    if ( buildSettingsDict.get("PRODUCT_BUNDLE_IDENTIFIER") != null ) {
 
-        this.bundleIdentifier = buildSettingsDict.objectForKey("PRODUCT_BUNDLE_IDENTIFIER").toString();
+        this.bundleIdentifier = buildSettingsDict.get("PRODUCT_BUNDLE_IDENTIFIER").toString();
     }
-    else if ( buildSettingsDict.objectForKey("PRODUCT_NAME") != null ) {
-        this.productName = buildSettingsDict.objectForKey("PRODUCT_NAME").toString();
+    else if ( buildSettingsDict.get("PRODUCT_NAME") != null ) {
+        this.productName = buildSettingsDict.get("PRODUCT_NAME").toString();
     }
-    this.infoPlistFile = buildSettingsDict.objectForKey("INFOPLIST_FILE").toString();
-    //this.codeSignStyle = buildSettingsDict.objectForKey("CODE_SIGN_STYLE").toString();
-    if ( buildSettingsDict.objectForKey("BUNDLE_LOADER") == null && buildSettingsDict.objectForKey("TEST_TARGET_NAME") == null && buildSettingsDict.objectForKey("DEVELOPMENT_TEAM") != null ) {
-	this.developmentTeamId = buildSettingsDict.objectForKey("DEVELOPMENT_TEAM").toString();
+    this.infoPlistFile = buildSettingsDict.get("INFOPLIST_FILE").toString();
+    //this.codeSignStyle = buildSettingsDict.get("CODE_SIGN_STYLE").toString();
+    if ( buildSettingsDict.get("BUNDLE_LOADER") == null && buildSettingsDict.get("TEST_TARGET_NAME") == null && buildSettingsDict.get("DEVELOPMENT_TEAM") != null ) {
+	this.developmentTeamId = buildSettingsDict.get("DEVELOPMENT_TEAM").toString();
     }
     if ( !automatic ) {
-      this.provisioningProfileUUID = buildSettingsDict.objectForKey("PROVISIONING_PROFILE").toString();
-      this.provisioningProfileSpecifier = buildSettingsDict.objectForKey("PROVISIONING_PROFILE_SPECIFIER").toString();
+      this.provisioningProfileUUID = buildSettingsDict.get("PROVISIONING_PROFILE").toString();
+      this.provisioningProfileSpecifier = buildSettingsDict.get("PROVISIONING_PROFILE_SPECIFIER").toString();
     }
     //else {
     //  this.codeSignStyle = "Automatic";
@@ -0,0 +1,74 @@
+package au.com.rayh;
+
+import java.io.IOException;
+
+/**
+ * Receives what {@link XCodeBuildOutputParser} recognizes in the xcodebuild output, as it is parsed.
+ * All the methods do nothing by default, so a listener only overrides the events it is interested in.
+ */
+public abstract class BuildEventListener {
+
+    /**
+     * @param target the target xcodebuild started building
+     * @param project the project of the target, null if unknown
+     */
+    public void targetStarted(String target, String project) throws IOException {
+    }
+
+    /**
+     * @param step the build command, e.g. CompileC, CompileSwift, Ld or CodeSign
+     * @param target the target being built, null if unknown
+     * @param file the file the command works on, null if it has none
+     */
+    public void stepStarted(String step, String target, String file) throws IOException {
+    }
+
+    /**
+     * xcodebuild does not print when a command ends, so a step is finished when the next one starts or the output ends.
+     * @param durationMillis the time between the start of this step and the next
+     */
+    public void stepFinished(String step, String target, String file, long durationMillis) throws IOException {
+    }
+
+    /**
+     * @param severity warning, error or fatal error
+     * @param location the file:line:column, or the tool, the diagnostic is about
+     * @param message the text of the diagnostic
+     */
+    public void diagnostic(String severity, String location, String message) throws IOException {
+    }
+
+    public void testSuiteStarted(String suite) throws IOException {
+    }
+
+    public void testSuiteFinished(String suite) throws IOException {
+    }
+
+    public void testCaseStarted(String suite, String testCase) throws IOException {
+    }
+
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+    }
+
+    public void testFailure(String suite, String testCase, String location, String message) throws IOException {
+    }
+
+    /**
+     * @param exception the class of the uncaught exception that terminated the app under test
+     * @param reason the reason of the exception
+     */
+    public void crash(String exception, String reason) throws IOException {
+    }
+
+    /**
+     * xcodebuild reported BUILD FAILED or TEST FAILED.
+     */
+    public void buildFailed(String message) throws IOException {
+    }
+
+    /**
+     * The output has ended, no more events follow.
+     */
+    public void close() throws IOException {
+    }
+}
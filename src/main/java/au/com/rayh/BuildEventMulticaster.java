@@ -0,0 +1,119 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes the build events on to several listeners, in the order they were added.
+ */
+class BuildEventMulticaster extends BuildEventListener {
+    private final List<BuildEventListener> listeners = new ArrayList<BuildEventListener>();
+
+    BuildEventMulticaster(BuildEventListener first, BuildEventListener second) {
+        listeners.add(first);
+        listeners.add(second);
+    }
+
+    void add(BuildEventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void targetStarted(String target, String project) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.targetStarted(target, project);
+        }
+    }
+
+    @Override
+    public void stepStarted(String step, String target, String file) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.stepStarted(step, target, file);
+        }
+    }
+
+    @Override
+    public void stepFinished(String step, String target, String file, long durationMillis) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.stepFinished(step, target, file, durationMillis);
+        }
+    }
+
+    @Override
+    public void diagnostic(String severity, String location, String message) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.diagnostic(severity, location, message);
+        }
+    }
+
+    @Override
+    public void testSuiteStarted(String suite) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.testSuiteStarted(suite);
+        }
+    }
+
+    @Override
+    public void testSuiteFinished(String suite) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.testSuiteFinished(suite);
+        }
+    }
+
+    @Override
+    public void testCaseStarted(String suite, String testCase) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.testCaseStarted(suite, testCase);
+        }
+    }
+
+    @Override
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.testCaseFinished(suite, testCase, passed, seconds);
+        }
+    }
+
+    @Override
+    public void testFailure(String suite, String testCase, String location, String message) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.testFailure(suite, testCase, location, message);
+        }
+    }
+
+    @Override
+    public void crash(String exception, String reason) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.crash(exception, reason);
+        }
+    }
+
+    @Override
+    public void buildFailed(String message) throws IOException {
+        for ( BuildEventListener listener : listeners ) {
+            listener.buildFailed(message);
+        }
+    }
+
+    /**
+     * Closes every listener, even if closing one of them fails.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for ( BuildEventListener listener : listeners ) {
+            try {
+                listener.close();
+            }
+            catch ( IOException ex ) {
+                if ( failure == null ) {
+                    failure = ex;
+                }
+            }
+        }
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package au.com.rayh;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the build events as newline delimited JSON, one object per line, e.g.
+ * <pre>{"type":"diagnostic","time":1536915300000,"severity":"warning","location":"Card.m:42:9","message":"unused variable 'result'"}</pre>
+ * Every object has the type of the event and the time it was parsed, in milliseconds since the epoch.
+ * The JSON is written directly, field by field, so that an event costs no more than appending its text.
+ */
+public class BuildEventWriter extends BuildEventListener {
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * @param out the stream receiving the events, closed by {@link #close()}
+     */
+    public BuildEventWriter(OutputStream out) {
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private BuildEventWriter begin(String type) {
+        line.setLength(0);
+        line.append("{\"type\":\"").append(type).append("\",\"time\":").append(System.currentTimeMillis());
+        return this;
+    }
+
+    private BuildEventWriter field(String name, String value) {
+        if ( value != null ) {
+            line.append(",\"").append(name).append("\":");
+            quote(value);
+        }
+        return this;
+    }
+
+    private BuildEventWriter field(String name, long value) {
+        line.append(",\"").append(name).append("\":").append(value);
+        return this;
+    }
+
+    private BuildEventWriter field(String name, float value) {
+        line.append(",\"").append(name).append("\":").append(value);
+        return this;
+    }
+
+    private BuildEventWriter field(String name, boolean value) {
+        line.append(",\"").append(name).append("\":").append(value);
+        return this;
+    }
+
+    private void end() throws IOException {
+        line.append("}\n");
+        out.append(line);
+    }
+
+    private void quote(String value) {
+        line.append('"');
+        for ( int i = 0; i < value.length(); i++ ) {
+            char c = value.charAt(i);
+            switch ( c ) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if ( c < 0x20 ) {
+                        line.append(String.format("\\u%04x", (int)c));
+                    }
+                    else {
+                        line.append(c);
+                    }
+                    break;
+            }
+        }
+        line.append('"');
+    }
+
+    @Override
+    public void targetStarted(String target, String project) throws IOException {
+        begin("targetStarted").field("target", target).field("project", project).end();
+    }
+
+    @Override
+    public void stepStarted(String step, String target, String file) throws IOException {
+        begin("stepStarted").field("step", step).field("target", target).field("file", file).end();
+    }
+
+    @Override
+    public void stepFinished(String step, String target, String file, long durationMillis) throws IOException {
+        begin("stepFinished").field("step", step).field("target", target).field("file", file).field("duration", durationMillis).end();
+    }
+
+    @Override
+    public void diagnostic(String severity, String location, String message) throws IOException {
+        begin("diagnostic").field("severity", severity).field("location", location).field("message", message).end();
+    }
+
+    @Override
+    public void testSuiteStarted(String suite) throws IOException {
+        begin("testSuiteStarted").field("suite", suite).end();
+    }
+
+    @Override
+    public void testSuiteFinished(String suite) throws IOException {
+        begin("testSuiteFinished").field("suite", suite).end();
+    }
+
+    @Override
+    public void testCaseStarted(String suite, String testCase) throws IOException {
+        begin("testCaseStarted").field("suite", suite).field("testCase", testCase).end();
+    }
+
+    @Override
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+        begin("testCaseFinished").field("suite", suite).field("testCase", testCase).field("passed", passed).field("duration", seconds).end();
+    }
+
+    @Override
+    public void testFailure(String suite, String testCase, String location, String message) throws IOException {
+        begin("testFailure").field("suite", suite).field("testCase", testCase).field("location", location).field("message", message).end();
+    }
+
+    @Override
+    public void crash(String exception, String reason) throws IOException {
+        begin("crash").field("exception", exception).field("reason", reason).end();
+    }
+
+    @Override
+    public void buildFailed(String message) throws IOException {
+        begin("buildFailed").field("message", message).end();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
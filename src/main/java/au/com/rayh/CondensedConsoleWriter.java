@@ -0,0 +1,172 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints a condensed console log from the build events: one line per target instead of its build commands,
+ * the warnings and errors in full, one line per test suite and the failing tests.
+ * The complete output of xcodebuild is only kept in the log file.
+ */
+public class CondensedConsoleWriter extends BuildEventListener {
+    private final PrintStream console;
+    private String target = null;
+    private String project = null;
+    private long targetStart;
+    private int compiled;
+    private int linked;
+    private int signed;
+    private int otherSteps;
+    private int warnings;
+    private int errors;
+    private final List<SuiteCount> suites = new ArrayList<SuiteCount>();
+    private int tests;
+    private int testFailures;
+
+    /**
+     * @param console the console the condensed log is printed to
+     */
+    public CondensedConsoleWriter(PrintStream console) {
+        this.console = console;
+    }
+
+    private void finishTarget() {
+        if ( target != null ) {
+            long seconds = (System.currentTimeMillis() - targetStart) / 1000;
+            console.println(Messages.CondensedConsoleWriter_TargetSummary(target, project, compiled, linked, signed, otherSteps, warnings, errors, seconds));
+            target = null;
+        }
+    }
+
+    @Override
+    public void targetStarted(String target, String project) throws IOException {
+        finishTarget();
+        this.target = target;
+        this.project = project;
+        targetStart = System.currentTimeMillis();
+        compiled = 0;
+        linked = 0;
+        signed = 0;
+        otherSteps = 0;
+        warnings = 0;
+        errors = 0;
+    }
+
+    @Override
+    public void stepStarted(String step, String target, String file) throws IOException {
+        if ( step.startsWith("Compile") ) {
+            compiled++;
+        }
+        else if ( step.equals("Ld") || step.equals("Libtool") ) {
+            linked++;
+        }
+        else if ( step.equals("CodeSign") ) {
+            signed++;
+        }
+        else {
+            otherSteps++;
+        }
+    }
+
+    @Override
+    public void diagnostic(String severity, String location, String message) throws IOException {
+        if ( severity.equals("warning") ) {
+            warnings++;
+        }
+        else {
+            errors++;
+        }
+        console.println(location + ": " + severity + ": " + message);
+    }
+
+    @Override
+    public void testSuiteStarted(String suite) throws IOException {
+        finishTarget();
+        suites.add(new SuiteCount(suite, tests, testFailures));
+    }
+
+    /**
+     * Suites are nested, e.g. All tests, the test bundle and the test classes, and with parallel testing
+     * the suites of several simulators are open at once. A suite counts the tests reported for it by name,
+     * and a suite without tests of its own, like All tests, counts the tests finished while it was open.
+     */
+    @Override
+    public void testSuiteFinished(String suite) throws IOException {
+        SuiteCount count = findSuite(suite);
+        if ( count != null ) {
+            suites.remove(count);
+            if ( count.tests > 0 ) {
+                console.println(Messages.CondensedConsoleWriter_TestSuiteSummary(suite, count.tests, count.failures));
+            }
+            else {
+                console.println(Messages.CondensedConsoleWriter_TestSuiteSummary(suite, tests - count.testsAtStart, testFailures - count.failuresAtStart));
+            }
+        }
+    }
+
+    @Override
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+        SuiteCount count = findSuite(suite);
+        tests++;
+        if ( count != null ) {
+            count.tests++;
+        }
+        if ( !passed ) {
+            testFailures++;
+            if ( count != null ) {
+                count.failures++;
+            }
+            console.println(Messages.CondensedConsoleWriter_TestCaseFailed(suite, testCase, seconds));
+        }
+    }
+
+    private SuiteCount findSuite(String suite) {
+        for ( int i = suites.size() - 1; i >= 0; i-- ) {
+            if ( suites.get(i).name.equals(suite) ) {
+                return suites.get(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void testFailure(String suite, String testCase, String location, String message) throws IOException {
+        console.println(location + ": error: -[" + suite + " " + testCase + "] : " + message);
+    }
+
+    @Override
+    public void crash(String exception, String reason) throws IOException {
+        console.println(Messages.CondensedConsoleWriter_Crash(exception, reason));
+    }
+
+    @Override
+    public void buildFailed(String message) throws IOException {
+        finishTarget();
+        console.println(message);
+    }
+
+    /**
+     * Prints the summary of the last target, the console itself is left open.
+     */
+    @Override
+    public void close() throws IOException {
+        finishTarget();
+        console.flush();
+    }
+
+    private static final class SuiteCount {
+        private final String name;
+        private final int testsAtStart;
+        private final int failuresAtStart;
+        private int tests;
+        private int failures;
+
+        SuiteCount(String name, int testsAtStart, int failuresAtStart) {
+            this.name = name;
+            this.testsAtStart = testsAtStart;
+            this.failuresAtStart = failuresAtStart;
+        }
+    }
+}
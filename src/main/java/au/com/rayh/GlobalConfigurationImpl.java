@@ -52,12 +52,30 @@ import javax.servlet.ServletException;
 @Extension
 public final class GlobalConfigurationImpl extends GlobalConfiguration {
     private static final Logger LOGGER = Logger.getLogger(GlobalConfigurationImpl.class.getName());
+    static final String DEFAULT_PLIST_BUDDY_PATH = "/usr/libexec/PlistBuddy";
+    static final String DEFAULT_SECURITY_PATH = "/usr/bin/security";
+    static final String DEFAULT_DITTO_PATH = "/usr/bin/ditto";
     @CheckForNull
     private String xcodebuildPath = "/usr/bin/xcodebuild";
     @CheckForNull
     private String xcrunPath = "/usr/bin/xcrun";
     @CheckForNull
     private String agvtoolPath = "/usr/bin/agvtool";
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String plistBuddyPath = DEFAULT_PLIST_BUDDY_PATH;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String securityPath = DEFAULT_SECURITY_PATH;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String dittoPath = DEFAULT_DITTO_PATH;
     // No one uses defaultKeychain.
     @Deprecated
     @CheckForNull
@@ -99,6 +117,34 @@ public final class GlobalConfigurationImpl extends GlobalConfiguration {
         return agvtoolPath;
     }
 
+    @DataBoundSetter
+    public void setPlistBuddyPath(String plistBuddyPath) {
+        this.plistBuddyPath = plistBuddyPath;
+    }
+
+    // These were not configurable before, and saved configurations do not have them.
+    public String getPlistBuddyPath() {
+        return StringUtils.defaultIfEmpty(plistBuddyPath, DEFAULT_PLIST_BUDDY_PATH);
+    }
+
+    @DataBoundSetter
+    public void setSecurityPath(String securityPath) {
+        this.securityPath = securityPath;
+    }
+
+    public String getSecurityPath() {
+        return StringUtils.defaultIfEmpty(securityPath, DEFAULT_SECURITY_PATH);
+    }
+
+    @DataBoundSetter
+    public void setDittoPath(String dittoPath) {
+        this.dittoPath = dittoPath;
+    }
+
+    public String getDittoPath() {
+        return StringUtils.defaultIfEmpty(dittoPath, DEFAULT_DITTO_PATH);
+    }
+
     @Deprecated
     @DataBoundSetter
     public void setDefaultKeychain(String defaultKeychain) {
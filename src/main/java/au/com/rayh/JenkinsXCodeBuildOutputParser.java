@@ -32,7 +32,7 @@ package au.com.rayh;
 import hudson.FilePath;
 import hudson.model.TaskListener;
 
-import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -50,6 +50,7 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
     private FilePath testReportsDir;
     private OutputStream logFileOutputStream;
     private boolean ignoreTestResults;
+    private boolean condensedConsoleLog;
 
 	public JenkinsXCodeBuildOutputParser(FilePath workspace, TaskListener buildListener) throws IOException, InterruptedException {
 		super();
@@ -67,11 +68,47 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
         this.consoleLog = consoleLog;
     }
 
+    /**
+     * Print a summary of the build to the console instead of the output of xcodebuild.
+     * @see CondensedConsoleWriter
+     */
+    public void setCondensedConsoleLog(boolean condensedConsoleLog) {
+	if ( condensedConsoleLog && !this.condensedConsoleLog ) {
+	    addBuildEventListener(new CondensedConsoleWriter(buildListener.getLogger()));
+	}
+	this.condensedConsoleLog = condensedConsoleLog;
+    }
+
     public void setIgnoreTestResults(boolean ignoreTestResults) {
 	this.ignoreTestResults = ignoreTestResults;
     }
+
+    @Override
+    protected boolean isIgnoringTestResults() {
+	return ignoreTestResults;
+    }
+
+    /**
+     * Write the build events to xcodebuild-events.ndjson in the directory.
+     */
+    public void setBuildEventsPath(final FilePath directory) throws IOException, InterruptedException {
+	addBuildEventListener(new BuildEventWriter(directory.child("xcodebuild-events.ndjson").write()));
+    }
     
     public void setLogfilePath(final FilePath buildDirectory, final String logfileOutputDirectory) throws IOException, InterruptedException {
+        setLogfilePath(buildDirectory, logfileOutputDirectory, 0, false);
+    }
+
+    public void setLogfilePath(final FilePath buildDirectory, final String logfileOutputDirectory, long logfileMaxSize, boolean compressLogfiles) throws IOException, InterruptedException {
+        setLogfilePath(buildDirectory, logfileOutputDirectory, logfileMaxSize, 0, compressLogfiles);
+    }
+
+    /**
+     * @param logfileMaxSize the size in bytes after which the log is continued in a new file, or 0 to write a single file
+     * @param logfileMaxSegments the number of full log files that are kept, or 0 to keep all of them
+     * @param compressLogfiles whether the full log files are gzipped
+     */
+    public void setLogfilePath(final FilePath buildDirectory, final String logfileOutputDirectory, long logfileMaxSize, int logfileMaxSegments, boolean compressLogfiles) throws IOException, InterruptedException {
 	// Remove buildDirectory.exists() && buildDirectory.isDirectory() from condition.
 	// Because If Generate archive is not specified, directory was not created.
         if(!StringUtils.isEmpty(logfileOutputDirectory)) {
@@ -86,7 +123,7 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
             if (!logFilePath.exists()) {
                 logFilePath.mkdirs();
             }
-            logFileOutputStream = new BufferedOutputStream(logFilePath.child("xcodebuild.log").write(),1024*512);
+            logFileOutputStream = new RotatingLogOutputStream(logFilePath, "xcodebuild.log", logfileMaxSize, logfileMaxSegments, compressLogfiles, buildListener.getLogger());
         }
     }
     
@@ -98,8 +135,11 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
         }
     }
 
+    private boolean isEchoingConsole() {
+        return consoleLog && !condensedConsoleLog;
+    }
+
     public class LineBasedFilterOutputStream extends FilterOutputStream {
-        StringBuilder buffer = new StringBuilder();
 
         public LineBasedFilterOutputStream() {
             super(buildListener.getLogger());
@@ -107,26 +147,58 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
 
         @Override
         public void write(int b) throws IOException {
-	    if ( !ignoreTestResults ) {
-                if((char)b == '\n') {
-                    try {
-                        handleLine(buffer.toString());
-                        buffer = new StringBuilder();
-                    } catch(Exception e) {  // Very fugly
-                        buildListener.fatalError(e.getMessage(), e);
-                        throw new IOException(e);
-                    }
-                } else {
-                    buffer.append((char)b);
+	    if ( !ignoreTestResults || buildEvents != null ) {
+                try {
+                    parseByte(b);
+                } catch(Exception e) {  // Very fugly
+                    buildListener.fatalError(e.getMessage(), e);
+                    throw new IOException(e);
                 }
 	    }
-            if(consoleLog) {
-                super.write(b);
+            if(isEchoingConsole()) {
+                out.write(b);
             }
             if(logFileOutputStream != null) {
                 logFileOutputStream.write(b);
             }
         }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if(logFileOutputStream != null) {
+                logFileOutputStream.write(b, off, len);
+            }
+            int end = off + len;
+            if ( ignoreTestResults && buildEvents == null ) {
+                if(isEchoingConsole()) {
+                    out.write(b, off, len);
+                }
+                return;
+            }
+            // Parsing a line may switch the console log on or off, so the console
+            // receives the runs of lines written while it was enabled.
+            int pos = off;
+            int consoleStart = off;
+            boolean console = isEchoingConsole();
+            try {
+                while(pos < end) {
+                    pos = parseNextLine(b, pos, end);
+                    if(console != isEchoingConsole()) {
+                        if(console) {
+                            out.write(b, consoleStart, pos - consoleStart);
+                        }
+                        consoleStart = pos;
+                        console = isEchoingConsole();
+                    }
+                }
+            } catch(Exception e) {  // Very fugly
+                buildListener.fatalError(e.getMessage(), e);
+                throw new IOException(e);
+            }
+            if(console && consoleStart < end) {
+                out.write(b, consoleStart, end - consoleStart);
+            }
+        }
         
         @Override
         public void close() throws IOException {
@@ -144,4 +216,10 @@ public class JenkinsXCodeBuildOutputParser extends XCodeBuildOutputParser {
 			InterruptedException {
 		return testReportsDir.child("TEST-" + currentTestSuite.getName() + ".xml").write();
 	}
+
+	@Override
+	protected File scratchDirectory() {
+		// The parser runs on the node holding the workspace, unless it is given a workspace on another node.
+		return testReportsDir.isRemote() ? null : new File(testReportsDir.getRemote());
+	}
 }
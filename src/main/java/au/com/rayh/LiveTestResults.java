@@ -0,0 +1,19 @@
+package au.com.rayh;
+
+import java.util.List;
+
+/**
+ * Receives the test results while xcodebuild is still running.
+ * When xcodebuild runs on an agent this is a proxy of the {@link LiveTestResultsAction} on the controller,
+ * so the results are sent in batches rather than one call per test case.
+ */
+public interface LiveTestResults {
+
+    /**
+     * @param tests the number of test cases finished since the last call
+     * @param failures how many of them failed
+     * @param errors the number of crashes since the last call
+     * @param failedTests "Suite.test" for each of the failed test cases
+     */
+    void addResults(int tests, int failures, int errors, List<String> failedTests);
+}
@@ -0,0 +1,160 @@
+package au.com.rayh;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * The test results of the xcodeBuild steps of a build, updated while the tests are running.
+ * The results arrive on a remoting thread while the page and the API are read by request threads,
+ * so the counts are atomic and the failed tests a concurrent queue, and no lock is taken on either side.
+ * They are kept with the build afterwards, but the JUnit reports remain the complete record.
+ * As most builds run no tests, the action is only added to the build when the first result arrives.
+ */
+@ExportedBean
+public class LiveTestResultsAction implements RunAction2, LiveTestResults {
+    // Only the first failed tests are named, as in the summary of a result bundle.
+    static final int MAX_FAILED_TESTS = TestSummariesResult.MAX_FAILED_TESTS;
+
+    private final AtomicInteger tests = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private final AtomicInteger namedFailedTests = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> failedTests = new ConcurrentLinkedQueue<String>();
+    private transient volatile boolean running;
+    private transient Run<?, ?> run;
+    private final transient AtomicReference<Run<?, ?>> pendingRun = new AtomicReference<Run<?, ?>>();
+    private volatile String abortReason;
+
+    /**
+     * Add this action to the build when a test case has finished, the app crashed or xcodebuild was stopped.
+     */
+    void attachOnFirstResult(Run<?, ?> run) {
+	pendingRun.set(run);
+    }
+
+    private void attach() {
+	// Not restored when the build is loaded, when the action is attached already.
+	Run<?, ?> pending = pendingRun == null ? null : pendingRun.getAndSet(null);
+	if ( pending != null ) {
+	    pending.addAction(this);
+	}
+    }
+
+    @Override
+    public void addResults(int tests, int failures, int errors, List<String> failedTests) {
+	this.tests.addAndGet(tests);
+	this.failures.addAndGet(failures);
+	this.errors.addAndGet(errors);
+	for ( String failedTest : failedTests ) {
+	    if ( namedFailedTests.incrementAndGet() > MAX_FAILED_TESTS ) {
+		break;
+	    }
+	    this.failedTests.add(failedTest);
+	}
+	if ( tests > 0 || errors > 0 ) {
+	    attach();
+	}
+    }
+
+    void setRunning(boolean running) {
+	this.running = running;
+    }
+
+    void setAbortReason(String abortReason) {
+	this.abortReason = abortReason;
+	if ( abortReason != null ) {
+	    attach();
+	}
+    }
+
+    /**
+     * @return whether xcodebuild is still running the tests
+     */
+    @Exported
+    public boolean isRunning() {
+	return running;
+    }
+
+    @Exported
+    public int getTests() {
+	return tests.get();
+    }
+
+    @Exported
+    public int getFailures() {
+	return failures.get();
+    }
+
+    /**
+     * @return the number of crashes of the app under test
+     */
+    @Exported
+    public int getErrors() {
+	return errors.get();
+    }
+
+    /**
+     * @return "Suite.test" for the first {@value #MAX_FAILED_TESTS} failed tests
+     */
+    @Exported
+    public List<String> getFailedTests() {
+	return Collections.unmodifiableList(new ArrayList<String>(failedTests));
+    }
+
+    /**
+     * @return why xcodebuild was stopped before it finished, or null
+     */
+    @Exported
+    public String getAbortReason() {
+	return abortReason;
+    }
+
+    public String getSummary() {
+	return Messages.LiveTestResultsAction_Summary(getTests(), getFailures(), getErrors());
+    }
+
+    public Run<?, ?> getRun() {
+	return run;
+    }
+
+    @Override
+    public void onAttached(Run<?, ?> run) {
+	this.run = run;
+    }
+
+    @Override
+    public void onLoad(Run<?, ?> run) {
+	this.run = run;
+    }
+
+    /**
+     * @return no icon, and so no link, until a test case has finished, the app crashed or xcodebuild was stopped,
+     * as most builds run no tests
+     */
+    @Override
+    public String getIconFileName() {
+	if ( getTests() == 0 && getErrors() == 0 && abortReason == null ) {
+	    return null;
+	}
+	return "clipboard.png";
+    }
+
+    @Override
+    public String getDisplayName() {
+	return Messages.LiveTestResultsAction_DisplayName();
+    }
+
+    @Override
+    public String getUrlName() {
+	return "xcodeTestResults";
+    }
+}
@@ -0,0 +1,67 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes the finished test cases on to {@link LiveTestResults}.
+ * The results are collected and sent at most once a second, when a test suite ends and when the output ends,
+ * so that a remote call is not made for every test case.
+ */
+public class LiveTestResultsWriter extends BuildEventListener {
+    static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    private final LiveTestResults results;
+    private int tests;
+    private int failures;
+    private int errors;
+    private final List<String> failedTests = new ArrayList<String>();
+    private long lastFlush = System.currentTimeMillis();
+
+    /**
+     * @param results receives the results, possibly over the channel to the controller
+     */
+    public LiveTestResultsWriter(LiveTestResults results) {
+        this.results = results;
+    }
+
+    private void flush() {
+        if ( tests > 0 || errors > 0 ) {
+            results.addResults(tests, failures, errors, new ArrayList<String>(failedTests));
+            tests = 0;
+            failures = 0;
+            errors = 0;
+            failedTests.clear();
+        }
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public void testCaseFinished(String suite, String testCase, boolean passed, float seconds) throws IOException {
+        tests++;
+        if ( !passed ) {
+            failures++;
+            failedTests.add(suite + "." + testCase);
+        }
+        if ( System.currentTimeMillis() - lastFlush >= FLUSH_INTERVAL_MILLIS ) {
+            flush();
+        }
+    }
+
+    @Override
+    public void crash(String exception, String reason) throws IOException {
+        errors++;
+        flush();
+    }
+
+    @Override
+    public void testSuiteFinished(String suite) throws IOException {
+        flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+}
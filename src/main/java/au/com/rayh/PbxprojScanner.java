@@ -0,0 +1,363 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+import com.dd.plist.NSDictionary;
+import com.dd.plist.PropertyListFormatException;
+import com.dd.plist.PropertyListParser;
+
+/**
+ * Reader for project.pbxproj files, which Xcode writes in the OpenStep property list format, working directly on
+ * the bytes of the file, usually mapped in memory.
+ * Opening a project only records where each object of its objects dictionary starts; an object is decoded when it is
+ * asked for with {@link #getObject(String)}, so the thousands of file references and build files of a large project
+ * are skipped over without ever being turned into strings.
+ * <p>
+ * Dictionaries are decoded as {@code Map<String, Object>}, arrays as {@code List<Object>} and everything else as
+ * {@code String}. Not thread safe.
+ */
+final class PbxprojScanner {
+    private final ByteBuffer buffer;
+    private final int limit;
+    private final Map<String, Integer> objectOffsets = new HashMap<String, Integer>();
+    private String rootObject;
+    private int position;
+
+    /**
+     * @param content the project.pbxproj, in the OpenStep format
+     */
+    PbxprojScanner(ByteBuffer content) throws IOException {
+        this.buffer = content.slice();
+        this.limit = buffer.limit();
+        index();
+    }
+
+    /**
+     * @param content the project.pbxproj, in the OpenStep format Xcode writes or, as it may have been converted
+     *                by other tools, XML or binary
+     */
+    static PbxprojScanner open(ByteBuffer content) throws IOException, PropertyListFormatException, ParseException, ParserConfigurationException, SAXException {
+        if ( isOpenStep(content) ) {
+            return new PbxprojScanner(content);
+        }
+        byte[] bytes = new byte[content.remaining()];
+        content.duplicate().get(bytes);
+        String openStep = ((NSDictionary)PropertyListParser.parse(bytes)).toASCIIPropertyList();
+        return new PbxprojScanner(ByteBuffer.wrap(openStep.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static boolean isOpenStep(ByteBuffer content) {
+        for ( int i = content.position(); i < content.limit(); i++ ) {
+            byte b = content.get(i);
+            if ( b == '{' || b == '/' ) {
+                return true;
+            }
+            // Whitespace and the UTF-8 byte order mark.
+            if ( !isWhitespace(b) && b != (byte)0xEF && b != (byte)0xBB && b != (byte)0xBF ) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the identifier of the PBXProject object
+     */
+    String getRootObject() {
+        return rootObject;
+    }
+
+    /**
+     * @param uuid the identifier of an object of the project
+     * @return the object, decoded, or null if the project has no such object
+     */
+    @CheckForNull
+    Map<String, Object> getObject(String uuid) throws IOException {
+        Integer offset = objectOffsets.get(uuid);
+        if ( offset == null ) {
+            return null;
+        }
+        position = offset;
+        Object object = readValue();
+        if ( !(object instanceof Map) ) {
+            throw new IOException("Object " + uuid + " is not a dictionary at offset " + offset);
+        }
+        return dictionary(object);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> dictionary(Object value) {
+        return (Map<String, Object>)value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static List<Object> array(Object value) {
+        return (List<Object>)value;
+    }
+
+    private void index() throws IOException {
+        skipWhitespace();
+        expect('{');
+        while ( !endOf('}') ) {
+            String key = readString();
+            expect('=');
+            skipWhitespace();
+            if ( key.equals("objects") ) {
+                expect('{');
+                while ( !endOf('}') ) {
+                    String uuid = readString();
+                    expect('=');
+                    skipWhitespace();
+                    objectOffsets.put(uuid, position);
+                    skipValue();
+                    expect(';');
+                }
+            }
+            else if ( key.equals("rootObject") ) {
+                rootObject = readString();
+            }
+            else {
+                skipValue();
+            }
+            expect(';');
+        }
+        if ( rootObject == null ) {
+            throw new IOException("No rootObject in project.pbxproj");
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+    }
+
+    private static boolean isUnquoted(byte b) {
+        return b >= 'a' && b <= 'z' || b >= 'A' && b <= 'Z' || b >= '0' && b <= '9'
+            || b == '_' || b == '$' || b == '+' || b == '/' || b == ':' || b == '.' || b == '-';
+    }
+
+    private byte at(int offset) throws IOException {
+        if ( offset >= limit ) {
+            throw new IOException("Unexpected end of project.pbxproj at offset " + offset);
+        }
+        return buffer.get(offset);
+    }
+
+    /**
+     * Skips whitespace and comments, Xcode writing the name of every object it refers to in a comment.
+     */
+    private void skipWhitespace() throws IOException {
+        while ( position < limit ) {
+            byte b = buffer.get(position);
+            if ( isWhitespace(b) ) {
+                position++;
+            }
+            else if ( b == '/' && position + 1 < limit && buffer.get(position + 1) == '*' ) {
+                position += 2;
+                while ( at(position) != '*' || at(position + 1) != '/' ) {
+                    position++;
+                }
+                position += 2;
+            }
+            else if ( b == '/' && position + 1 < limit && buffer.get(position + 1) == '/' ) {
+                while ( position < limit && buffer.get(position) != '\n' ) {
+                    position++;
+                }
+            }
+            else {
+                return;
+            }
+        }
+    }
+
+    private void expect(char expected) throws IOException {
+        skipWhitespace();
+        byte b = at(position);
+        if ( b != expected ) {
+            throw new IOException("Expected '" + expected + "' but found '" + (char)b + "' at offset " + position);
+        }
+        position++;
+    }
+
+    /**
+     * @return true, past the closing character, at the end of the current dictionary or array
+     */
+    private boolean endOf(char close) throws IOException {
+        skipWhitespace();
+        if ( at(position) == close ) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipValue() throws IOException {
+        skipWhitespace();
+        byte b = at(position);
+        if ( b == '{' ) {
+            position++;
+            while ( !endOf('}') ) {
+                skipString();
+                expect('=');
+                skipValue();
+                expect(';');
+            }
+        }
+        else if ( b == '(' ) {
+            position++;
+            while ( !endOf(')') ) {
+                skipValue();
+                if ( endOf(')') ) {
+                    break;
+                }
+                expect(',');
+            }
+        }
+        else if ( b == '<' ) {
+            while ( at(position) != '>' ) {
+                position++;
+            }
+            position++;
+        }
+        else {
+            skipString();
+        }
+    }
+
+    private void skipString() throws IOException {
+        skipWhitespace();
+        int start = position;
+        if ( at(position) == '"' ) {
+            position++;
+            while ( at(position) != '"' ) {
+                position += at(position) == '\\' ? 2 : 1;
+            }
+            position++;
+        }
+        else {
+            while ( position < limit && isUnquoted(buffer.get(position)) ) {
+                position++;
+            }
+            if ( position == start ) {
+                throw new IOException("Unexpected '" + (char)at(position) + "' at offset " + position);
+            }
+        }
+    }
+
+    private Object readValue() throws IOException {
+        skipWhitespace();
+        byte b = at(position);
+        if ( b == '{' ) {
+            position++;
+            Map<String, Object> dictionary = new HashMap<String, Object>();
+            while ( !endOf('}') ) {
+                String key = readString();
+                expect('=');
+                dictionary.put(key, readValue());
+                expect(';');
+            }
+            return dictionary;
+        }
+        if ( b == '(' ) {
+            position++;
+            List<Object> array = new ArrayList<Object>();
+            while ( !endOf(')') ) {
+                array.add(readValue());
+                if ( endOf(')') ) {
+                    break;
+                }
+                expect(',');
+            }
+            return array;
+        }
+        if ( b == '<' ) {
+            int start = position;
+            skipValue();
+            return decode(start, position);
+        }
+        return readString();
+    }
+
+    private String readString() throws IOException {
+        skipWhitespace();
+        int start = position;
+        skipString();
+        if ( buffer.get(start) != '"' ) {
+            return decode(start, position);
+        }
+        String quoted = decode(start + 1, position - 1);
+        return quoted.indexOf('\\') < 0 ? quoted : unescape(quoted);
+    }
+
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer range = buffer.duplicate();
+        range.position(start);
+        range.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String unescape(String quoted) throws IOException {
+        StringBuilder unescaped = new StringBuilder(quoted.length());
+        for ( int i = 0; i < quoted.length(); i++ ) {
+            char c = quoted.charAt(i);
+            if ( c != '\\' || i + 1 == quoted.length() ) {
+                unescaped.append(c);
+                continue;
+            }
+            c = quoted.charAt(++i);
+            switch ( c ) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'U':
+                case 'u':
+                    try {
+                        unescaped.append((char)Integer.parseInt(quoted.substring(i + 1, i + 5), 16));
+                    }
+                    catch ( NumberFormatException | IndexOutOfBoundsException ex ) {
+                        throw new IOException("Invalid escape in \"" + quoted + "\"", ex);
+                    }
+                    i += 4;
+                    break;
+                default:
+                    if ( c >= '0' && c <= '7' ) {
+                        int end = i;
+                        while ( end < quoted.length() && end < i + 3 && quoted.charAt(end) >= '0' && quoted.charAt(end) <= '7' ) {
+                            end++;
+                        }
+                        unescaped.append((char)Integer.parseInt(quoted.substring(i, end), 8));
+                        i = end - 1;
+                    }
+                    else {
+                        // \" and \\ and anything else stand for themselves.
+                        unescaped.append(c);
+                    }
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,219 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decouples the thread pumping xcodebuild's output from the parsing of it.
+ * Writes only copy into a bounded ring buffer; a consumer thread drains the buffer into the target stream,
+ * where the lines are parsed, echoed to the console and the test reports written.
+ * When the buffer is full, writes wait for the consumer, so a slow consumer holds back xcodebuild instead of using up memory.
+ * How full the buffer got and how long writes waited is kept to be shown in the build log.
+ */
+public class PipelinedOutputStream extends OutputStream {
+    static final int DEFAULT_BUFFER_SIZE = Integer.getInteger(PipelinedOutputStream.class.getName() + ".bufferSize", 1024 * 1024);
+
+    private final OutputStream out;
+    private final byte[] buffer;
+    private final Thread consumer;
+    // Guarded by this: the queued bytes are buffer[head] to buffer[(head + count - 1) % buffer.length].
+    private int head = 0;
+    private int count = 0;
+    private boolean flushRequested = false;
+    private boolean closed = false;
+    private IOException failure = null;
+    private int maxQueueDepth = 0;
+    private int stalls = 0;
+    private long stallNanos = 0;
+
+    /**
+     * @param out the stream the consumer thread writes to. It is flushed, but not closed, by {@link #close()}.
+     * @param bufferSize the number of bytes that may be waiting for the consumer
+     */
+    public PipelinedOutputStream(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+        this.consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "xcodebuild output consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    public PipelinedOutputStream(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    private void consume() {
+        try {
+            while(true) {
+                int off;
+                int len;
+                boolean flush;
+                synchronized(this) {
+                    while(count == 0 && !flushRequested && !closed) {
+                        wait();
+                    }
+                    if(count == 0 && !flushRequested) {
+                        return;
+                    }
+                    off = head;
+                    len = Math.min(count, buffer.length - head);
+                    flush = flushRequested && len == count;
+                    if(flush) {
+                        flushRequested = false;
+                    }
+                }
+                // The producer never writes over queued bytes, so they can be read without the lock.
+                out.write(buffer, off, len);
+                if(flush) {
+                    out.flush();
+                }
+                synchronized(this) {
+                    head = (head + len) % buffer.length;
+                    count -= len;
+                    notifyAll();
+                }
+            }
+        } catch(IOException e) {
+            fail(e);
+        } catch(RuntimeException e) {
+            fail(new IOException(e));
+        } catch(InterruptedException e) {
+            fail(new InterruptedIOException());
+        }
+    }
+
+    private synchronized void fail(IOException e) {
+        failure = e;
+        notifyAll();
+    }
+
+    /**
+     * Wait until there is room for at least one byte.
+     */
+    private void awaitSpace() throws IOException {
+        if(count < buffer.length) {
+            return;
+        }
+        stalls++;
+        long start = System.nanoTime();
+        try {
+            while(count == buffer.length && failure == null) {
+                wait();
+            }
+        } catch(InterruptedException e) {
+            throw new InterruptedIOException();
+        } finally {
+            stallNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if(failure != null) {
+            throw failure;
+        }
+        if(closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        ensureOpen();
+        awaitSpace();
+        ensureOpen();
+        buffer[(head + count) % buffer.length] = (byte)b;
+        count++;
+        queued();
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        while(len > 0) {
+            awaitSpace();
+            ensureOpen();
+            int tail = (head + count) % buffer.length;
+            int n = Math.min(len, Math.min(buffer.length - count, buffer.length - tail));
+            System.arraycopy(b, off, buffer, tail, n);
+            count += n;
+            off += n;
+            len -= n;
+            queued();
+        }
+    }
+
+    private void queued() {
+        if(count > maxQueueDepth) {
+            maxQueueDepth = count;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Ask the consumer to flush the target once it has written what is queued now. This does not wait for it.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        flushRequested = true;
+        notifyAll();
+    }
+
+    /**
+     * Wait for the consumer to write everything queued, then flush the target.
+     * @throws IOException if the consumer failed to write to the target
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized(this) {
+            if(closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            consumer.join();
+        } catch(InterruptedException e) {
+            throw new InterruptedIOException();
+        }
+        synchronized(this) {
+            if(failure != null) {
+                throw failure;
+            }
+        }
+        out.flush();
+    }
+
+    public int getBufferSize() {
+        return buffer.length;
+    }
+
+    /**
+     * @return the largest number of bytes that were waiting for the consumer at once
+     */
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return how many times a write had to wait because the buffer was full
+     */
+    public synchronized int getStalls() {
+        return stalls;
+    }
+
+    /**
+     * @return the total time writes waited because the buffer was full
+     */
+    public synchronized long getStallTime(TimeUnit unit) {
+        return unit.convert(stallNanos, TimeUnit.NANOSECONDS);
+    }
+}
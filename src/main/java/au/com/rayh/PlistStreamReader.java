@@ -0,0 +1,401 @@
+package au.com.rayh;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Pull reader for property lists that never builds a tree of NSObjects.
+ * The caller walks the plist with {@link #beginDict()}/{@link #nextKey()} and {@link #beginArray()}/{@link #nextElement()},
+ * reads the scalar values it needs with {@link #readString()}, and calls {@link #skipValue()} for everything else.
+ * XML plists are streamed with StAX. Binary plists (bplist00) are read into memory as bytes and decoded lazily,
+ * so skipped values are never decoded at all.
+ */
+abstract class PlistStreamReader {
+    private static final byte[] BINARY_MAGIC = "bplist00".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @param in the plist, XML or binary
+     * @return a reader positioned before the root object
+     */
+    static PlistStreamReader open(InputStream in) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(in);
+        input.mark(BINARY_MAGIC.length);
+        byte[] magic = new byte[BINARY_MAGIC.length];
+        int read = IOUtils.read(input, magic);
+        input.reset();
+        if ( read == BINARY_MAGIC.length && Arrays.equals(magic, BINARY_MAGIC) ) {
+            return new Binary(IOUtils.toByteArray(input));
+        }
+        try {
+            return new Xml(input);
+        }
+        catch ( XMLStreamException ex ) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Start reading the next value, which must be a dictionary.
+     */
+    abstract void beginDict() throws IOException;
+
+    /**
+     * @return the key of the next entry of the current dictionary, whose value must be read or skipped next, or null at the end of the dictionary
+     */
+    abstract String nextKey() throws IOException;
+
+    /**
+     * Start reading the next value, which must be an array.
+     */
+    abstract void beginArray() throws IOException;
+
+    /**
+     * @return true if the current array has another element, which must be read or skipped next, false at the end of the array
+     */
+    abstract boolean nextElement() throws IOException;
+
+    /**
+     * @return the next value, which must be a string, number or boolean, as text
+     */
+    abstract String readString() throws IOException;
+
+    /**
+     * Skip the next value, along with everything it contains.
+     */
+    abstract void skipValue() throws IOException;
+
+    abstract void close() throws IOException;
+
+    private static class Xml extends PlistStreamReader {
+        private final InputStream input;
+        private final XMLStreamReader reader;
+        private boolean atValue = false;
+
+        Xml(InputStream input) throws XMLStreamException, IOException {
+            this.input = input;
+            this.reader = XmlStreams.createReader(input);
+            // Skip the prolog and doctype, up to the <plist> element.
+            while ( reader.next() != XMLStreamConstants.START_ELEMENT ) {
+                if ( !reader.hasNext() ) {
+                    throw new IOException("Not a property list");
+                }
+            }
+            if ( !reader.getLocalName().equals("plist") ) {
+                throw new IOException("Not a property list: " + reader.getLocalName());
+            }
+        }
+
+        private String value() throws IOException {
+            try {
+                if ( !atValue ) {
+                    reader.nextTag();
+                }
+                atValue = false;
+                if ( !reader.isStartElement() ) {
+                    throw new IOException("Expected a value at line " + reader.getLocation().getLineNumber());
+                }
+                return reader.getLocalName();
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+
+        private void expect(String expected) throws IOException {
+            String name = value();
+            if ( !name.equals(expected) ) {
+                throw new IOException("Expected <" + expected + "> but found <" + name + "> at line " + reader.getLocation().getLineNumber());
+            }
+        }
+
+        @Override
+        void beginDict() throws IOException {
+            expect("dict");
+        }
+
+        @Override
+        String nextKey() throws IOException {
+            try {
+                if ( reader.nextTag() == XMLStreamConstants.END_ELEMENT ) {
+                    return null;
+                }
+                if ( !reader.getLocalName().equals("key") ) {
+                    throw new IOException("Expected <key> but found <" + reader.getLocalName() + "> at line " + reader.getLocation().getLineNumber());
+                }
+                return reader.getElementText();
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        void beginArray() throws IOException {
+            expect("array");
+        }
+
+        @Override
+        boolean nextElement() throws IOException {
+            try {
+                if ( reader.nextTag() == XMLStreamConstants.END_ELEMENT ) {
+                    return false;
+                }
+                atValue = true;
+                return true;
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        String readString() throws IOException {
+            String name = value();
+            try {
+                if ( name.equals("true") || name.equals("false") ) {
+                    reader.nextTag();
+                    return name;
+                }
+                if ( name.equals("dict") || name.equals("array") ) {
+                    throw new IOException("Expected a scalar value but found <" + name + "> at line " + reader.getLocation().getLineNumber());
+                }
+                return reader.getElementText();
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        void skipValue() throws IOException {
+            value();
+            try {
+                int depth = 1;
+                while ( depth > 0 ) {
+                    int event = reader.next();
+                    if ( event == XMLStreamConstants.START_ELEMENT ) {
+                        depth++;
+                    }
+                    else if ( event == XMLStreamConstants.END_ELEMENT ) {
+                        depth--;
+                    }
+                }
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        void close() throws IOException {
+            try {
+                reader.close();
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+            finally {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Reads objects straight out of the binary plist by their offsets. See CFBinaryPList.c for the format.
+     */
+    private static class Binary extends PlistStreamReader {
+        private static final int TYPE_SIMPLE = 0x0;
+        private static final int TYPE_INT = 0x1;
+        private static final int TYPE_REAL = 0x2;
+        private static final int TYPE_ASCII_STRING = 0x5;
+        private static final int TYPE_UTF16_STRING = 0x6;
+        private static final int TYPE_UTF8_STRING = 0x7;
+        private static final int TYPE_ARRAY = 0xA;
+        private static final int TYPE_DICT = 0xD;
+
+        private final byte[] data;
+        private final int offsetSize;
+        private final int refSize;
+        private final int offsetTable;
+        private final long objectCount;
+        private final Deque<Container> containers = new ArrayDeque<Container>();
+        private long next;
+
+        /** An array or dictionary being read: where its object references start, how many it has, and how many were read. */
+        private static class Container {
+            final boolean dict;
+            final int refs;
+            final int count;
+            int position = 0;
+
+            Container(boolean dict, int refs, int count) {
+                this.dict = dict;
+                this.refs = refs;
+                this.count = count;
+            }
+        }
+
+        Binary(byte[] data) throws IOException {
+            this.data = data;
+            if ( data.length < 40 ) {
+                throw new IOException("Truncated binary property list");
+            }
+            int trailer = data.length - 32;
+            offsetSize = data[trailer + 6] & 0xFF;
+            refSize = data[trailer + 7] & 0xFF;
+            objectCount = readLong(trailer + 8, 8);
+            next = readLong(trailer + 16, 8);
+            long tableOffset = readLong(trailer + 24, 8);
+            if ( tableOffset < 8 || tableOffset + objectCount * offsetSize > trailer ) {
+                throw new IOException("Invalid binary property list trailer");
+            }
+            offsetTable = (int)tableOffset;
+        }
+
+        private long readLong(int offset, int size) {
+            long value = 0;
+            for ( int i = 0; i < size; i++ ) {
+                value = (value << 8) | (data[offset + i] & 0xFF);
+            }
+            return value;
+        }
+
+        private int objectOffset(long ref) throws IOException {
+            if ( ref < 0 || ref >= objectCount ) {
+                throw new IOException("Invalid object reference " + ref);
+            }
+            return (int)readLong(offsetTable + (int)ref * offsetSize, offsetSize);
+        }
+
+        /**
+         * @return the number of elements of the object at the offset. contentOffset[0] is set to where its contents start.
+         */
+        private int length(int offset, int[] contentOffset) {
+            int length = data[offset] & 0x0F;
+            contentOffset[0] = offset + 1;
+            if ( length == 0x0F ) {
+                int size = 1 << (data[offset + 1] & 0x0F);
+                length = (int)readLong(offset + 2, size);
+                contentOffset[0] = offset + 2 + size;
+            }
+            return length;
+        }
+
+        private int valueOffset() throws IOException {
+            return objectOffset(next);
+        }
+
+        private void begin(int type) throws IOException {
+            int offset = valueOffset();
+            int marker = (data[offset] & 0xF0) >> 4;
+            if ( marker != type ) {
+                throw new IOException("Unexpected object type 0x" + Integer.toHexString(marker) + " at offset " + offset);
+            }
+            int[] contentOffset = new int[1];
+            int count = length(offset, contentOffset);
+            containers.push(new Container(type == TYPE_DICT, contentOffset[0], count));
+        }
+
+        private long ref(Container container, int index) {
+            return readLong(container.refs + index * refSize, refSize);
+        }
+
+        @Override
+        void beginDict() throws IOException {
+            begin(TYPE_DICT);
+        }
+
+        @Override
+        String nextKey() throws IOException {
+            Container dict = containers.peek();
+            if ( dict == null || !dict.dict ) {
+                throw new IOException("Not reading a dictionary");
+            }
+            if ( dict.position == dict.count ) {
+                containers.pop();
+                return null;
+            }
+            next = ref(dict, dict.position);
+            String key = readString();
+            next = ref(dict, dict.count + dict.position);
+            dict.position++;
+            return key;
+        }
+
+        @Override
+        void beginArray() throws IOException {
+            begin(TYPE_ARRAY);
+        }
+
+        @Override
+        boolean nextElement() throws IOException {
+            Container array = containers.peek();
+            if ( array == null || array.dict ) {
+                throw new IOException("Not reading an array");
+            }
+            if ( array.position == array.count ) {
+                containers.pop();
+                return false;
+            }
+            next = ref(array, array.position);
+            array.position++;
+            return true;
+        }
+
+        @Override
+        String readString() throws IOException {
+            int offset = valueOffset();
+            int marker = data[offset] & 0xFF;
+            int[] contentOffset = new int[1];
+            switch ( marker >> 4 ) {
+                case TYPE_SIMPLE:
+                    if ( marker == 0x08 ) {
+                        return "false";
+                    }
+                    if ( marker == 0x09 ) {
+                        return "true";
+                    }
+                    break;
+                case TYPE_INT:
+                    return Long.toString(readLong(offset + 1, 1 << (marker & 0x0F)));
+                case TYPE_REAL:
+                    if ( (marker & 0x0F) == 2 ) {
+                        return Double.toString(Float.intBitsToFloat((int)readLong(offset + 1, 4)));
+                    }
+                    return Double.toString(Double.longBitsToDouble(readLong(offset + 1, 8)));
+                case TYPE_ASCII_STRING:
+                    int length = length(offset, contentOffset);
+                    return new String(data, contentOffset[0], length, StandardCharsets.US_ASCII);
+                case TYPE_UTF8_STRING:
+                    length = length(offset, contentOffset);
+                    return new String(data, contentOffset[0], length, StandardCharsets.UTF_8);
+                case TYPE_UTF16_STRING:
+                    length = length(offset, contentOffset);
+                    return new String(data, contentOffset[0], length * 2, StandardCharsets.UTF_16BE);
+                default:
+                    break;
+            }
+            throw new IOException("Expected a scalar value but found type 0x" + Integer.toHexString(marker) + " at offset " + offset);
+        }
+
+        @Override
+        void skipValue() {
+            // Objects are only decoded when they are read, so there is nothing to skip.
+        }
+
+        @Override
+        void close() {
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package au.com.rayh;
 
-public class ProjectScheme {
+import java.io.Serializable;
+
+public class ProjectScheme implements Serializable {
+    private static final long serialVersionUID = 1L;
     //public String parallelizeBuildables;
     //public String buildImplicitDependencies;
     //public String blueprintIdentifier;
@@ -1,6 +1,14 @@
 package au.com.rayh;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.CheckForNull;
 
 public class ProjectTarget {
     public String uuid;
@@ -9,7 +17,14 @@ public class ProjectTarget {
     public String provisioningStyle;
     public String testTargetID;
     public String defaultConfigurationName;
+    /**
+     * The build configurations decoded so far, by name; see {@link XcodeProject}.
+     */
     public HashMap<String, BuildConfiguration> buildConfiguration;
+    private final List<String> buildConfigurationNames;
+    // Where the build configurations not decoded yet start in the encoded project.
+    private final Map<String, Integer> encodedConfigurations;
+    private final ByteBuffer encoded;
 
     ProjectTarget() {
 	uuid = null;
@@ -20,6 +35,42 @@ public class ProjectTarget {
 	defaultConfigurationName = null;
 	
 	buildConfiguration = new HashMap<String, BuildConfiguration>();
+	buildConfigurationNames = null;
+	encodedConfigurations = Collections.emptyMap();
+	encoded = null;
+    }
+
+    ProjectTarget(ByteBuffer encoded, LinkedHashMap<String, Integer> encodedConfigurations) {
+	buildConfiguration = new HashMap<String, BuildConfiguration>();
+	this.buildConfigurationNames = new ArrayList<String>(encodedConfigurations.keySet());
+	this.encodedConfigurations = encodedConfigurations;
+	this.encoded = encoded;
     }
-}
 
+    /**
+     * @return the names of all the build configurations, decoded or not
+     * @since 2.0.16
+     */
+    public synchronized List<String> getBuildConfigurationNames() {
+	if ( buildConfigurationNames == null ) {
+	    return new ArrayList<String>(buildConfiguration.keySet());
+	}
+	return Collections.unmodifiableList(buildConfigurationNames);
+    }
+
+    /**
+     * @param name the name of a build configuration, such as Debug or Release
+     * @return the build configuration, or null if the target has no such configuration
+     * @since 2.0.16
+     */
+    @CheckForNull
+    public synchronized BuildConfiguration getBuildConfiguration(String name) {
+	BuildConfiguration configuration = buildConfiguration.get(name);
+	Integer offset = encodedConfigurations.remove(name);
+	if ( configuration == null && offset != null ) {
+	    configuration = XcodeProjectCache.decodeConfiguration(encoded, offset);
+	    buildConfiguration.put(name, configuration);
+	}
+	return configuration;
+    }
+}
@@ -0,0 +1,198 @@
+package au.com.rayh;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.MasterToSlaveFileCallable;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes the xcodebuild log in large blocks, and starts a new file once it has reached a size.
+ * The log being written is always named after the log, e.g. xcodebuild.log, so that scripts find the latest output there.
+ * Full segments are renamed to xcodebuild.log.1, xcodebuild.log.2, ... in the order they were written,
+ * and gzipped to xcodebuild.log.1.gz, ... in the background on the node holding them if compression is on.
+ * If a maximum number of segments is set, the oldest full segment is deleted each time a new one would exceed it.
+ */
+public class RotatingLogOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 1024 * 1024;
+
+    private final FilePath directory;
+    private final String name;
+    private final long maxSize;
+    private final int maxSegments;
+    private final PrintStream logger;
+    private final ExecutorService compressor;
+    private OutputStream out;
+    private long size = 0;
+    private int segments = 0;
+
+    /**
+     * @param directory the directory the log is written to
+     * @param name the file name of the log
+     * @param maxSize the size in bytes after which a new segment is started, or 0 to write one file
+     * @param compress whether full segments are gzipped
+     * @param logger receives warnings about segments that could not be compressed
+     */
+    public RotatingLogOutputStream(FilePath directory, String name, long maxSize, boolean compress, PrintStream logger) throws IOException, InterruptedException {
+        this(directory, name, maxSize, 0, compress, logger);
+    }
+
+    /**
+     * @param directory the directory the log is written to
+     * @param name the file name of the log
+     * @param maxSize the size in bytes after which a new segment is started, or 0 to write one file
+     * @param maxSegments the number of full segments that are kept, or 0 to keep all of them
+     * @param compress whether full segments are gzipped
+     * @param logger receives warnings about segments that could not be compressed or deleted
+     */
+    public RotatingLogOutputStream(FilePath directory, String name, long maxSize, int maxSegments, boolean compress, PrintStream logger) throws IOException, InterruptedException {
+        this.directory = directory;
+        this.name = name;
+        this.maxSize = maxSize;
+        this.maxSegments = maxSegments;
+        this.logger = logger;
+        this.compressor = compress && maxSize > 0 ? Executors.newSingleThreadExecutor(new NamingThreadFactory(new DaemonThreadFactory(), "xcodebuild.log compressor")) : null;
+        this.out = new BufferedOutputStream(directory.child(name).write(), BLOCK_SIZE);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        rotateIfFull();
+        out.write(b);
+        size++;
+    }
+
+    /**
+     * A segment is started between writes, so it may end up larger than the maximum size by one block of output.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        rotateIfFull();
+        out.write(b, off, len);
+        size += len;
+    }
+
+    private void rotateIfFull() throws IOException {
+        if ( maxSize <= 0 || size < maxSize ) {
+            return;
+        }
+        out.close();
+        segments++;
+        FilePath current = directory.child(name);
+        final FilePath segment = directory.child(name + "." + segments);
+        try {
+            current.renameTo(segment);
+            if ( compressor != null ) {
+                compressor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            segment.act(new Compress());
+                        }
+                        catch ( Exception ex ) {
+                            logger.println(Messages.RotatingLogOutputStream_CouldNotCompress(segment.getRemote(), ex.getMessage()));
+                        }
+                    }
+                });
+            }
+            if ( maxSegments > 0 && segments > maxSegments ) {
+                deleteSegment(segments - maxSegments);
+            }
+            out = new BufferedOutputStream(current.write(), BLOCK_SIZE);
+        }
+        catch ( InterruptedException ex ) {
+            throw new InterruptedIOException();
+        }
+        size = 0;
+    }
+
+    private void deleteSegment(int oldest) {
+        final FilePath segment = directory.child(name + "." + oldest);
+        final FilePath compressed = directory.child(name + "." + oldest + ".gz");
+        Runnable delete = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    segment.delete();
+                    compressed.delete();
+                }
+                catch ( Exception ex ) {
+                    logger.println(Messages.RotatingLogOutputStream_CouldNotDelete(segment.getRemote(), ex.getMessage()));
+                }
+            }
+        };
+        if ( compressor != null ) {
+            // After the segment was compressed, which was queued first.
+            compressor.submit(delete);
+        }
+        else {
+            delete.run();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Close the current segment and wait for the full ones to be compressed.
+     */
+    @Override
+    public void close() throws IOException {
+        out.close();
+        if ( compressor != null ) {
+            compressor.shutdown();
+            try {
+                compressor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+            catch ( InterruptedException ex ) {
+                compressor.shutdownNow();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+    /**
+     * @return the number of full segments written, including deleted ones, not counting the one being written
+     */
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Replaces a file by its gzipped copy.
+     */
+    private static final class Compress extends MasterToSlaveFileCallable<Void> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Void invoke(File segment, VirtualChannel channel) throws IOException, InterruptedException {
+            File compressed = new File(segment.getPath() + ".gz");
+            try (InputStream in = new FileInputStream(segment);
+                 OutputStream gzip = new GZIPOutputStream(new FileOutputStream(compressed), 64 * 1024)) {
+                IOUtils.copyLarge(in, gzip);
+            }
+            if ( !segment.delete() ) {
+                throw new IOException("Could not delete " + segment);
+            }
+            return null;
+        }
+    }
+}
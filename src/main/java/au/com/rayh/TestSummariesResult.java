@@ -0,0 +1,79 @@
+package au.com.rayh;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import au.com.rayh.report.TestSuite;
+
+/**
+ * Counts of the test reports written from the TestSummaries.plist files of a result bundle.
+ * This is what the agent sends back to the controller instead of the plists and the reports themselves.
+ * Testables are written in parallel, so the counts are updated under the lock of this object.
+ */
+public class TestSummariesResult implements Serializable {
+    private static final long serialVersionUID = 1L;
+    // Only the first failed tests are named, so a badly broken build does not make the summary large again.
+    static final int MAX_FAILED_TESTS = 100;
+
+    private int suites;
+    private int tests;
+    private int failures;
+    private final List<String> failedTests = new ArrayList<String>();
+    private final List<String> summaryFiles = new ArrayList<String>();
+    private final List<String> errors = new ArrayList<String>();
+
+    synchronized void addSummaryFile(String path) {
+	summaryFiles.add(path);
+    }
+
+    synchronized void addError(String path, Throwable error) {
+	errors.add(path + ": " + error);
+    }
+
+    synchronized void addSuite(TestSuite testSuite) {
+	suites++;
+	tests += testSuite.getTestCases().size();
+	failures += testSuite.getFailures();
+    }
+
+    synchronized void addFailedTest(String suiteName, String testName) {
+	if ( failedTests.size() < MAX_FAILED_TESTS ) {
+	    failedTests.add(suiteName + "." + testName);
+	}
+    }
+
+    public synchronized int getSuites() {
+	return suites;
+    }
+
+    public synchronized int getTests() {
+	return tests;
+    }
+
+    public synchronized int getFailures() {
+	return failures;
+    }
+
+    /**
+     * @return "Suite.test" for the first {@value #MAX_FAILED_TESTS} failed tests
+     */
+    public synchronized List<String> getFailedTests() {
+	return Collections.unmodifiableList(new ArrayList<String>(failedTests));
+    }
+
+    /**
+     * @return the paths of the TestSummaries.plist files that were parsed
+     */
+    public synchronized List<String> getSummaryFiles() {
+	return Collections.unmodifiableList(new ArrayList<String>(summaryFiles));
+    }
+
+    /**
+     * @return the TestSummaries.plist files that could not be parsed, with the reason, as "path: exception"
+     */
+    public synchronized List<String> getErrors() {
+	return Collections.unmodifiableList(new ArrayList<String>(errors));
+    }
+}
@@ -1,19 +1,118 @@
 package au.com.rayh;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 import hudson.model.InvisibleAction;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
 
 /**
- * Simple Action for storing the build number
+ * Simple Action for storing the build number,
+ * and how long each phase of the xcodeBuild step took, from the version queries to the zipping of the dSYMs.
+ * The phases are timed with {@link System#nanoTime()}, so a change of the system clock during the build does not
+ * skew them, and are available from the remote API of the build and, if installed, the metrics plugin.
  * @author Reuben Bijl
  */
+@ExportedBean
 public class XCodeAction extends InvisibleAction {
     private String buildDescription;
+    /**
+     * @since 2.0.16
+     */
+    private List<Phase> phases = new ArrayList<Phase>();
+    private transient String currentPhase;
+    private transient long stepStartNanos;
+    private transient long phaseStartNanos;
 
     @DataBoundConstructor
     public XCodeAction(String buildDescription) {
         this.buildDescription = buildDescription;
+        this.stepStartNanos = System.nanoTime();
+    }
+
+    // Builds recorded before the phases were timed have none.
+    protected Object readResolve() {
+        if ( phases == null ) {
+            phases = new ArrayList<Phase>();
+        }
+        return this;
     }
 
+    @Exported
     public  String getBuildDescription() { return buildDescription; }
-}
\ No newline at end of file
+
+    void setBuildDescription(String buildDescription) {
+        this.buildDescription = buildDescription;
+    }
+
+    /**
+     * Ends the current phase, if any, and starts the next one.
+     * @param name the name of the phase, also the name of its metric
+     */
+    synchronized void startPhase(String name) {
+        long now = System.nanoTime();
+        endPhase(now);
+        currentPhase = name;
+        phaseStartNanos = now;
+    }
+
+    synchronized void endPhase() {
+        endPhase(System.nanoTime());
+    }
+
+    private void endPhase(long now) {
+        if ( currentPhase == null ) {
+            return;
+        }
+        long nanos = now - phaseStartNanos;
+        phases.add(new Phase(currentPhase, TimeUnit.NANOSECONDS.toMillis(phaseStartNanos - stepStartNanos), TimeUnit.NANOSECONDS.toMillis(nanos)));
+        XcodePhaseMetrics.update(currentPhase, nanos);
+        currentPhase = null;
+    }
+
+    /**
+     * @return the finished phases, in the order they ran
+     */
+    @Exported
+    public synchronized List<Phase> getPhases() {
+        return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+    }
+
+    /**
+     * A phase of the xcodeBuild step, such as the build itself or the export of the archive.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static class Phase {
+        private final String name;
+        private final long startMillis;
+        private final long durationMillis;
+
+        Phase(String name, long startMillis, long durationMillis) {
+            this.name = name;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return when the phase started, in milliseconds since the start of the step
+         */
+        @Exported
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        @Exported
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+    }
+}
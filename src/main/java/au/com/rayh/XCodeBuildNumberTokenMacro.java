@@ -15,7 +15,8 @@ public class XCodeBuildNumberTokenMacro extends DataBoundTokenMacro {
     public String evaluate(AbstractBuild<?, ?> context, TaskListener listener, String macroName)
             throws MacroEvaluationException, IOException, InterruptedException {
             XCodeAction a = context.getAction(XCodeAction.class);
-            if(a == null){
+            // The action is added when the step starts, and has the build number once agvtool has been run.
+            if(a == null || a.getBuildDescription() == null){
                 return "";
             }
 			return a.getBuildDescription();
@@ -30,22 +30,30 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 
 import au.com.rayh.report.TestCase;
 import au.com.rayh.report.TestError;
+import au.com.rayh.report.StreamingTestSuiteWriter;
 import au.com.rayh.report.TestFailure;
 import au.com.rayh.report.TestSuite;
+import au.com.rayh.report.TestSuiteWriter;
 
 /**
  * Parse Xcode output and transform into JUnit-style xml test result files.
@@ -56,19 +64,76 @@ import au.com.rayh.report.TestSuite;
 
 public class XCodeBuildOutputParser {
 
-    private static DateFormat[] dateFormats = {
+    // The patterns and tables below are immutable and shared by all parsers. Everything that changes while parsing is
+    // held by the parser of a build, so builds running at the same time never share mutable state.
+    private static final Pattern START_SUITE = Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+started at\\s+(.*)");
+    private static final Pattern END_SUITE = Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+\\S+\\s+at\\s+(.*).");
+    private static final Pattern START_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' started.");
+    private static final Pattern END_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' passed \\((.*) seconds\\).");
+    private static final Pattern ERROR_TESTCASE = Pattern.compile("(.*): error: -\\[(\\S+)\\s+(\\S+)\\] : (.*)");
+    private static final Pattern ERROR_UI_TESTCASE = Pattern.compile(".*?Assertion Failure: (.+:\\d+): (.*)");
+    private static final Pattern FAILED_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' failed \\((\\S+) seconds\\).");
+    private static final Pattern FAILED_WITH_EXIT_CODE = Pattern.compile("failed with exit code (\\d+)");
+    private static final Pattern TERMINATING_EXCEPTION = Pattern.compile(".*\\*\\*\\* Terminating app due to uncaught exception '(\\S+)', reason: '(.+[^\\\\])'.*");
+    // Literal text that a line must start with, or contain, for one of the patterns above to match.
+    // Almost all of the xcodebuild output is compiler chatter, which these let us reject without running any regex.
+    private static final String SUITE_PREFIX = "Test Suite '";
+    private static final String TESTCASE_PREFIX = "Test Case '-[";
+    private static final String EXIT_CODE_PREFIX = "failed with exit code ";
+    private static final String BUILD_FAILED = "BUILD FAILED";
+    private static final String TEST_FAILED = "** TEST FAILED **";
+    private static final String TEST_SUCCEEDED = "** TEST SUCCEEDED **";
+    private static final String ERROR_KEYWORD = ": error: -[";
+    private static final String UI_ERROR_KEYWORD = "Assertion Failure: ";
+    private static final String TERMINATING_KEYWORD = "*** Terminating app due to uncaught exception '";
+    // Parallel testing: the results of the simulator clones are interleaved, each line naming the clone it ran on,
+    // e.g. Test case '-[CardTests testSuits]' passed on 'Clone 1 of iPhone X - App (12345)' (0.002 seconds)
+    private static final Pattern PARALLEL_TESTING = Pattern.compile("Testing started on '(.+)'.*");
+    private static final Pattern PARALLEL_SUITE = Pattern.compile("Test suite '(.+?)' (started|passed|failed) on '(.+?)'.*");
+    private static final Pattern PARALLEL_TESTCASE = Pattern.compile("Test case '(?:-\\[(\\S+)\\s+(\\S+)\\]|(\\S+)\\.([^.\\s]+)\\(\\))' (passed|failed) on '(.+?)' \\((\\S+) seconds\\).*");
+    private static final String PARALLEL_TESTING_PREFIX = "Testing started on '";
+    private static final String PARALLEL_SUITE_PREFIX = "Test suite '";
+    private static final String PARALLEL_TESTCASE_PREFIX = "Test case '";
+    private static final byte[][] LINE_PREFIXES = {
+        asBytes(SUITE_PREFIX), asBytes(TESTCASE_PREFIX), asBytes(EXIT_CODE_PREFIX), asBytes(BUILD_FAILED), asBytes(TEST_FAILED), asBytes(TEST_SUCCEEDED),
+        asBytes(PARALLEL_TESTING_PREFIX), asBytes(PARALLEL_SUITE_PREFIX), asBytes(PARALLEL_TESTCASE_PREFIX)
+    };
+    private static final byte[][] LINE_KEYWORDS = {
+        asBytes(ERROR_KEYWORD), asBytes(UI_ERROR_KEYWORD), asBytes(TERMINATING_KEYWORD)
+    };
+    // Build events
+    private static final Pattern BUILD_TARGET = Pattern.compile("=== BUILD (?:AGGREGATE )?TARGET (.+?) OF PROJECT (.+?) WITH .*");
+    private static final Pattern IN_TARGET = Pattern.compile(".* \\(in target '([^']*)' from project '([^']*)'\\)");
+    private static final Pattern DIAGNOSTIC = Pattern.compile("(.*?): (warning|error|fatal error): (.*)");
+    private static final String BUILD_TARGET_PREFIX = "=== BUILD ";
+    private static final String IN_TARGET_KEYWORD = " (in target '";
+    private static final byte[][] DIAGNOSTIC_KEYWORDS = {
+        asBytes(": warning: "), asBytes(": error: "), asBytes(": fatal error: ")
+    };
+    // The commands xcodebuild prints before running them, and the argument holding the file they work on.
+    private static final Map<String, Integer> BUILD_STEPS;
+    static {
+        HashMap<String, Integer> steps = new HashMap<String, Integer>();
+        for(String step : new String[] {
+                "CompileC", "CompileXIB", "CompileStoryboard", "CompileAssetCatalog", "CompileMetalFile", "ProcessPCH", "ProcessPCH++"}) {
+            steps.put(step, 2);
+        }
+        steps.put("CompileSwift", 3);
+        for(String step : new String[] {
+                "CompileSwiftSources", "MergeSwiftModule", "Ld", "Libtool", "CreateUniversalBinary", "CodeSign", "GenerateDSYMFile",
+                "LinkStoryboards", "ProcessInfoPlistFile", "ProcessProductPackaging", "CopySwiftLibs", "CopyStringsFile", "CopyPNGFile",
+                "CpResource", "CpHeader", "PBXCp", "Ditto", "Touch", "Strip", "SymLink", "PhaseScriptExecution", "ValidateEmbeddedBinary",
+                "Validate", "CompileDataModel", "CompileMappingModel", "CompileCoreMLModel", "CreateBuildDirectory", "WriteAuxiliaryFile"}) {
+            steps.put(step, 1);
+        }
+        BUILD_STEPS = Collections.unmodifiableMap(steps);
+    }
+    private static volatile String hostName;
+    // SimpleDateFormat is not thread-safe, so each parser has its own.
+    private final DateFormat[] dateFormats = {
 	new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z"),
 	new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS")
     };
-    private static Pattern START_SUITE = Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+started at\\s+(.*)");
-    private static Pattern END_SUITE = Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+\\S+\\s+at\\s+(.*).");
-    private static Pattern START_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' started.");
-    private static Pattern END_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' passed \\((.*) seconds\\).");
-    private static Pattern ERROR_TESTCASE = Pattern.compile("(.*): error: -\\[(\\S+)\\s+(\\S+)\\] : (.*)");
-    private static Pattern ERROR_UI_TESTCASE = Pattern.compile(".*?Assertion Failure: (.+:\\d+): (.*)");
-    private static Pattern FAILED_TESTCASE = Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' failed \\((\\S+) seconds\\).");
-    private static Pattern FAILED_WITH_EXIT_CODE = Pattern.compile("failed with exit code (\\d+)");
-    private static Pattern TERMINATING_EXCEPTION = Pattern.compile(".*\\*\\*\\* Terminating app due to uncaught exception '(\\S+)', reason: '(.+[^\\\\])'.*");
     private File testReportsDir;
     protected OutputStream captureOutputStream;
     protected int exitCode;
@@ -76,6 +141,24 @@ public class XCodeBuildOutputParser {
     protected TestSuite currentTestSuite = null;
     protected TestCase currentTestCase = null;
     protected boolean consoleLog;
+    private byte[] lineBuffer = new byte[1024];
+    private int lineLength = 0;
+    protected BuildEventListener buildEvents = null;
+    private String currentTarget = null;
+    private String currentStep = null;
+    private String currentStepFile = null;
+    private String currentStepTarget = null;
+    private long currentStepStart = 0;
+    // Reports of the suites whose finished test cases were already written out, by identity of the suite.
+    private final HashMap<TestSuite, StreamingTestSuiteWriter> suiteWriters = new HashMap<TestSuite, StreamingTestSuiteWriter>();
+    private TestSuite finishedTestSuite = null;
+    private TestCase finishedTestCase = null;
+    private boolean parallelTesting = false;
+    private boolean parallelTestingStarted = false;
+    private boolean consoleLogBeforeTesting;
+    private final HashMap<String, String> parallelWorkers = new HashMap<String, String>();
+    private final LinkedHashMap<String, TestSuite> parallelSuites = new LinkedHashMap<String, TestSuite>();
+    private final HashMap<String, List<TestFailure>> pendingFailures = new HashMap<String, List<TestFailure>>();
 
     protected XCodeBuildOutputParser() {
         super();
@@ -94,7 +177,6 @@ public class XCodeBuildOutputParser {
     }
 
     public class LineBasedFilterOutputStream extends FilterOutputStream {
-        StringBuilder buffer = new StringBuilder();
 
         public LineBasedFilterOutputStream(OutputStream log) {
             super(log);
@@ -102,18 +184,201 @@ public class XCodeBuildOutputParser {
 
         @Override
         public void write(int b) throws IOException {
-            super.write(b);
-            if((char)b == '\n') {
-                try {
-                    handleLine(buffer.toString());
-                    buffer = new StringBuilder();
-                } catch(Exception e) {  // Very fugly
-                    throw new IOException(e);
+            out.write(b);
+            try {
+                parseByte(b);
+            } catch(Exception e) {  // Very fugly
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            try {
+                int end = off + len;
+                int pos = off;
+                while(pos < end) {
+                    pos = parseNextLine(b, pos, end);
                 }
-            } else {
-                buffer.append((char)b);
+            } catch(Exception e) {  // Very fugly
+                throw new IOException(e);
+            }
+        }
+    }
+
+    /**
+     * Feed a single byte of xcodebuild output to the line parser.
+     * @param b the byte to parse
+     */
+    protected void parseByte(int b) throws ParseException, IOException, InterruptedException, JAXBException {
+        if(b == '\n') {
+            handleLine(lineBuffer, 0, lineLength);
+            lineLength = 0;
+        } else {
+            if(lineLength == lineBuffer.length) {
+                lineBuffer = Arrays.copyOf(lineBuffer, lineBuffer.length * 2);
+            }
+            lineBuffer[lineLength++] = (byte)b;
+        }
+    }
+
+    /**
+     * Scan the buffer for the next newline and parse the line it terminates.
+     * Lines that are entirely contained in the buffer are parsed in place, without copying.
+     * A line that is not terminated yet is kept until the rest of it is written.
+     * @param b the buffer holding xcodebuild output
+     * @param off the position to start scanning from
+     * @param end the end of the valid data in the buffer (exclusive)
+     * @return the position following the parsed newline, or end if no newline was found
+     */
+    protected int parseNextLine(byte[] b, int off, int end) throws ParseException, IOException, InterruptedException, JAXBException {
+        for(int i = off; i < end; i++) {
+            if(b[i] == '\n') {
+                if(lineLength == 0) {
+                    handleLine(b, off, i - off);
+                } else {
+                    appendToLineBuffer(b, off, i - off);
+                    handleLine(lineBuffer, 0, lineLength);
+                    lineLength = 0;
+                }
+                return i + 1;
+            }
+        }
+        appendToLineBuffer(b, off, end - off);
+        return end;
+    }
+
+    private void appendToLineBuffer(byte[] b, int off, int len) {
+        if(lineLength + len > lineBuffer.length) {
+            lineBuffer = Arrays.copyOf(lineBuffer, Math.max(lineBuffer.length * 2, lineLength + len));
+        }
+        System.arraycopy(b, off, lineBuffer, lineLength, len);
+        lineLength += len;
+    }
+
+    protected void handleLine(byte[] b, int off, int len) throws ParseException, IOException, InterruptedException, JAXBException {
+        if((!isIgnoringTestResults() && isCandidateLine(b, off, len)) || (buildEvents != null && isBuildEventLine(b, off, len))) {
+            handleLine(new String(b, off, len, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * @param buildEvents receives the build steps, diagnostics and test events found in the output, or null
+     */
+    public void setBuildEventListener(BuildEventListener buildEvents) {
+        this.buildEvents = buildEvents;
+    }
+
+    /**
+     * Add a listener for the build events, next to the ones already set.
+     */
+    public void addBuildEventListener(BuildEventListener listener) {
+        if(buildEvents == null) {
+            buildEvents = listener;
+        } else if(buildEvents instanceof BuildEventMulticaster) {
+            ((BuildEventMulticaster)buildEvents).add(listener);
+        } else {
+            buildEvents = new BuildEventMulticaster(buildEvents, listener);
+        }
+    }
+
+    /**
+     * Finish the last build step and close the build event listener, once all of the output was parsed.
+     */
+    public void closeBuildEvents() throws IOException {
+        if(buildEvents != null) {
+            finishStep();
+            buildEvents.close();
+            buildEvents = null;
+        }
+    }
+
+    /**
+     * @return true to only look for build events, not for test results
+     */
+    protected boolean isIgnoringTestResults() {
+        return false;
+    }
+
+    /**
+     * Cheap check whether a line can be a build event: a build command or target, which start with a capital letter or '=',
+     * or a compiler diagnostic.
+     */
+    static boolean isBuildEventLine(byte[] b, int off, int len) {
+        if(len == 0) {
+            return false;
+        }
+        byte first = b[off];
+        if((first >= 'A' && first <= 'Z') || first == '=') {
+            return true;
+        }
+        int end = off + len;
+        for(int i = off; i < end; i++) {
+            if(b[i] == ':') {
+                for(byte[] keyword : DIAGNOSTIC_KEYWORDS) {
+                    if(regionMatches(b, i, end, keyword)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cheap check, done on the raw bytes before the line is decoded, whether a line can match any of the patterns.
+     * @param b the buffer holding the line
+     * @param off the start of the line
+     * @param len the length of the line, without the newline
+     * @return false if the line can be ignored
+     */
+    static boolean isCandidateLine(byte[] b, int off, int len) {
+        for(byte[] prefix : LINE_PREFIXES) {
+            if(regionMatches(b, off, off + len, prefix)) {
+                return true;
+            }
+        }
+        int end = off + len;
+        for(int i = off; i < end; i++) {
+            byte c = b[i];
+            if(c == ':' || c == 'A' || c == '*') {
+                for(byte[] keyword : LINE_KEYWORDS) {
+                    if(keyword[0] == c && regionMatches(b, i, end, keyword)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionMatches(byte[] b, int off, int end, byte[] literal) {
+        if(end - off < literal.length) {
+            return false;
+        }
+        for(int i = 0; i < literal.length; i++) {
+            if(b[off + i] != literal[i]) {
+                return false;
             }
         }
+        return true;
+    }
+
+    private static byte[] asBytes(String literal) {
+        return literal.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The name of this host, for the test reports. It is looked up once, as a lookup may have to ask the DNS.
+     */
+    static String getHostName() throws UnknownHostException {
+        String name = hostName;
+        if(name == null) {
+            name = InetAddress.getLocalHost().getHostName();
+            hostName = name;
+        }
+        return name;
     }
 
     private Date parseDate(String text) throws ParseException {
@@ -176,10 +441,73 @@ public class XCodeBuildOutputParser {
 
     private void writeTestReport() throws IOException, InterruptedException,
             JAXBException {
+        writeFinishedTestCase();
+        StreamingTestSuiteWriter writer = suiteWriters.get(currentTestSuite);
         try (OutputStream testReportOutputStream = outputForSuite()) {
-            JAXBContext jaxbContext = JAXBContext.newInstance(TestSuite.class);
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.marshal(currentTestSuite, testReportOutputStream);
+            if(writer != null) {
+                writer.writeReport(currentTestSuite, testReportOutputStream);
+            } else {
+                TestSuiteWriter.write(currentTestSuite, testReportOutputStream);
+            }
+        }
+    }
+
+    /**
+     * A finished test case stays with its suite until the next test case starts or the suite ends,
+     * so that a failure that is reported late is still added to it. Then it is written out and dropped from memory,
+     * and a failure reported even later is added to the written case.
+     */
+    private void finishTestCase() throws IOException {
+        writeFinishedTestCase();
+        finishedTestSuite = currentTestSuite;
+        finishedTestCase = currentTestCase;
+    }
+
+    private void writeFinishedTestCase() throws IOException {
+        if(finishedTestCase == null) {
+            return;
+        }
+        StreamingTestSuiteWriter writer = suiteWriters.get(finishedTestSuite);
+        if(writer == null) {
+            writer = new StreamingTestSuiteWriter(scratchDirectory());
+            suiteWriters.put(finishedTestSuite, writer);
+        }
+        writer.writeTestCase(finishedTestCase);
+        List<TestCase> testCases = finishedTestSuite.getTestCases();
+        for(int i = testCases.size() - 1; i >= 0; i--) {
+            if(testCases.get(i) == finishedTestCase) {
+                testCases.remove(i);
+                break;
+            }
+        }
+        if(finishedTestSuite.getTestCasesHash().get(finishedTestCase.getName()) == finishedTestCase) {
+            finishedTestSuite.getTestCasesHash().remove(finishedTestCase.getName());
+        }
+        finishedTestSuite = null;
+        finishedTestCase = null;
+    }
+
+    private void closeSuiteWriter(TestSuite suite) {
+        StreamingTestSuiteWriter writer = suiteWriters.remove(suite);
+        if(writer != null) {
+            writer.close();
+        }
+    }
+
+    /**
+     * Write the reports that are still open once all of the output was parsed, and delete the scratch files of the
+     * test cases written so far.
+     */
+    public void closeTestReports() throws IOException, InterruptedException, JAXBException {
+        try {
+            finishParallelTesting();
+        } finally {
+            for(StreamingTestSuiteWriter writer : suiteWriters.values()) {
+                writer.close();
+            }
+            suiteWriters.clear();
+            finishedTestSuite = null;
+            finishedTestCase = null;
         }
     }
 
@@ -188,7 +516,399 @@ public class XCodeBuildOutputParser {
         return new FileOutputStream(new File(testReportsDir, "TEST-" + currentTestSuite.getName() + ".xml"));
     }
 
+    /**
+     * @return where the test cases of a suite are kept until its report is written, next to the reports,
+     * or null for the temporary directory
+     */
+    protected File scratchDirectory() {
+        return testReportsDir;
+    }
+
     protected void handleLine(String line) throws ParseException, IOException, InterruptedException, JAXBException {
+        if(!isIgnoringTestResults() && handleTestLine(line)) {
+            return;
+        }
+        if(buildEvents != null) {
+            handleBuildEventLine(line);
+        }
+    }
+
+    /**
+     * @return true if the line was test output
+     */
+    private boolean handleTestLine(String line) throws ParseException, IOException, InterruptedException, JAXBException {
+        Matcher m;
+        if((parallelTesting || line.startsWith(PARALLEL_TESTING_PREFIX) || line.startsWith(PARALLEL_SUITE_PREFIX) || line.startsWith(PARALLEL_TESTCASE_PREFIX))
+                && handleParallelTestLine(line)) {
+            return true;
+        }
+        if(line.startsWith(SUITE_PREFIX) && handleSuiteLine(line)) {
+            return true;
+        }
+        if(line.startsWith(TESTCASE_PREFIX) && handleTestCaseLine(line)) {
+            return true;
+        }
+        if(line.contains(ERROR_KEYWORD)) {
+            m = ERROR_TESTCASE.matcher(line);
+            if(m.matches()) {
+                handleTestCaseError(m);
+                return true;
+            }
+        }
+        if(line.contains(UI_ERROR_KEYWORD)) {
+            m = ERROR_UI_TESTCASE.matcher(line);
+            if(m.matches()) {
+                handleUITestCaseError(m);
+                return true;
+            }
+        }
+        if(line.startsWith(EXIT_CODE_PREFIX)) {
+            m = FAILED_WITH_EXIT_CODE.matcher(line);
+            if(m.matches()) {
+                exitCode = Integer.parseInt(m.group(1));
+                return true;
+            }
+        }
+        if(line.equals(TEST_SUCCEEDED)) {
+            finishParallelTesting();
+            return true;
+        }
+        if(line.equals(BUILD_FAILED) || line.equals(TEST_FAILED)) {
+            exitCode = -1;
+            finishParallelTesting();
+            if(buildEvents != null) {
+                finishStep();
+                buildEvents.buildFailed(line);
+            }
+            return true;
+        }
+        if(line.contains(TERMINATING_KEYWORD)) {
+            m = TERMINATING_EXCEPTION.matcher(line);
+            if(m.matches()) {
+                handleTerminatingException(m);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse xcodebuild output of tests running in parallel on several simulator clones.
+     * The clones report their results interleaved, so the parser keeps the suite each clone is running
+     * and collects the test cases in the suite they belong to, whatever the order of the lines.
+     * The reports are written once all the clones have finished.
+     * @param parallelTesting true if the output is of xcodebuild -parallel-testing-enabled YES;
+     *                        the mode is also switched on by the first line naming a clone
+     */
+    public void setParallelTesting(boolean parallelTesting) {
+        this.parallelTesting = parallelTesting;
+    }
+
+    /**
+     * @return true if the line was test output of parallel testing
+     */
+    private boolean handleParallelTestLine(String line) throws ParseException, IOException, InterruptedException, JAXBException {
+        Matcher m;
+        if(line.startsWith(PARALLEL_TESTCASE_PREFIX)) {
+            m = PARALLEL_TESTCASE.matcher(line);
+            if(m.matches()) {
+                startParallelTesting();
+                String suite = m.group(1) != null ? m.group(1) : m.group(3);
+                String testCase = m.group(1) != null ? m.group(2) : m.group(4);
+                String running = parallelWorkers.get(m.group(6));
+                if(running == null || !className(running).equals(className(suite))) {
+                    handleParallelSuite(suite, true, m.group(6));
+                }
+                finishParallelTestCase(suite, testCase, m.group(5).equals("passed"), Float.valueOf(m.group(7)));
+                return true;
+            }
+        }
+        if(line.startsWith(PARALLEL_SUITE_PREFIX)) {
+            m = PARALLEL_SUITE.matcher(line);
+            if(m.matches()) {
+                startParallelTesting();
+                handleParallelSuite(m.group(1), m.group(2).equals("started"), m.group(3));
+                return true;
+            }
+        }
+        if(line.startsWith(PARALLEL_TESTING_PREFIX)) {
+            m = PARALLEL_TESTING.matcher(line);
+            if(m.matches()) {
+                startParallelTesting();
+                parallelWorkers.put(m.group(1), null);
+                return true;
+            }
+        }
+        if(parallelTesting && handleInterleavedTestLine(line)) {
+            startParallelTesting();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The output of each clone may also contain the usual test lines, which are matched by name instead of by the current suite.
+     * @return true if the line was test output
+     */
+    private boolean handleInterleavedTestLine(String line) throws IOException {
+        Matcher m;
+        if(line.startsWith(SUITE_PREFIX)) {
+            return START_SUITE.matcher(line).matches() || END_SUITE.matcher(line).matches();
+        }
+        if(line.startsWith(TESTCASE_PREFIX)) {
+            if(START_TESTCASE.matcher(line).matches()) {
+                return true;
+            }
+            m = END_TESTCASE.matcher(line);
+            if(m.matches()) {
+                finishParallelTestCase(m.group(1), m.group(2), true, Float.valueOf(m.group(3)));
+                return true;
+            }
+            m = FAILED_TESTCASE.matcher(line);
+            if(m.matches()) {
+                finishParallelTestCase(m.group(1), m.group(2), false, Float.valueOf(m.group(3)));
+                return true;
+            }
+        }
+        if(line.contains(ERROR_KEYWORD)) {
+            m = ERROR_TESTCASE.matcher(line);
+            if(m.matches()) {
+                addParallelFailure(m.group(2), m.group(3), new TestFailure(m.group(4), m.group(1)));
+                return true;
+            }
+        }
+        if(line.contains(UI_ERROR_KEYWORD)) {
+            m = ERROR_UI_TESTCASE.matcher(line);
+            if(m.matches()) {
+                // It is not known which clone reported the failure.
+                addParallelFailure("UnknownSuite", "UnknownTestCase", new TestFailure(m.group(2), m.group(1)));
+                return true;
+            }
+        }
+        if(line.contains(TERMINATING_KEYWORD)) {
+            m = TERMINATING_EXCEPTION.matcher(line);
+            if(m.matches()) {
+                exitCode = -1;
+                if(buildEvents != null) {
+                    buildEvents.crash(m.group(1), m.group(2));
+                }
+                TestCase crashed = new TestCase("UnknownSuite", "UnknownTestCase");
+                crashed.getErrors().add(new TestError(m.group(2), m.group(1)));
+                TestSuite suite = parallelSuite("UnknownSuite");
+                suite.getTestCases().add(crashed);
+                suite.addTest();
+                suite.addError();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void startParallelTesting() {
+        parallelTesting = true;
+        if(!parallelTestingStarted) {
+            parallelTestingStarted = true;
+            consoleLogBeforeTesting = consoleLog;
+            consoleLog = true;
+        }
+    }
+
+    private void handleParallelSuite(String name, boolean started, String worker) throws IOException {
+        String running = parallelWorkers.get(worker);
+        if(running != null && (started || className(running).equals(className(name)))) {
+            // A clone runs one suite at a time, so starting a suite finishes the one before.
+            parallelSuite(running).setEndTime(new Date());
+            parallelWorkers.put(worker, null);
+        }
+        if(started) {
+            parallelSuite(name);
+            parallelWorkers.put(worker, name);
+        }
+    }
+
+    /**
+     * The suites are looked up by class name, as Swift test cases may be reported with or without their module.
+     */
+    private TestSuite parallelSuite(String name) throws IOException {
+        String key = className(name);
+        TestSuite suite = parallelSuites.get(key);
+        if(suite == null) {
+            suite = new TestSuite(getHostName(), name, new Date());
+            parallelSuites.put(key, suite);
+            if(buildEvents != null) {
+                buildEvents.testSuiteStarted(name);
+            }
+        }
+        return suite;
+    }
+
+    private static String className(String name) {
+        return name.substring(name.lastIndexOf('.') + 1);
+    }
+
+    private void finishParallelTestCase(String suiteName, String name, boolean passed, float time) throws IOException {
+        TestSuite suite = parallelSuite(suiteName);
+        TestCase testCase = new TestCase(suite.getName(), name);
+        testCase.setTime(time);
+        suite.getTestCasesHash().put(name, testCase);
+        suite.getTestCases().add(testCase);
+        suite.addTest();
+        if(!passed) {
+            suite.addFailure();
+        }
+        if(buildEvents != null) {
+            buildEvents.testCaseFinished(suite.getName(), name, passed, time);
+        }
+        // xcodebuild prints the failures of a test before its result.
+        List<TestFailure> failures = pendingFailures.remove(className(suiteName) + " " + name);
+        if(failures != null) {
+            for(TestFailure failure : failures) {
+                addParallelFailure(suite, testCase, failure);
+            }
+        }
+    }
+
+    private void addParallelFailure(String suiteName, String name, TestFailure failure) throws IOException {
+        TestSuite suite = parallelSuites.get(className(suiteName));
+        TestCase testCase = suite == null ? null : suite.getTestCasesHash().get(name);
+        if(testCase != null) {
+            addParallelFailure(suite, testCase, failure);
+            return;
+        }
+        String key = className(suiteName) + " " + name;
+        List<TestFailure> failures = pendingFailures.get(key);
+        if(failures == null) {
+            failures = new ArrayList<TestFailure>();
+            pendingFailures.put(key, failures);
+        }
+        failures.add(failure);
+    }
+
+    private void addParallelFailure(TestSuite suite, TestCase testCase, TestFailure failure) throws IOException {
+        testCase.getFailures().add(failure);
+        if(buildEvents != null) {
+            buildEvents.testFailure(suite.getName(), testCase.getName(), failure.getLocation(), failure.getMessage());
+        }
+    }
+
+    /**
+     * Write the reports of the suites that ran in parallel, once all of the clones are done.
+     * Failures of tests whose result was never reported are filed under their own test case.
+     */
+    public void finishParallelTesting() throws IOException, InterruptedException, JAXBException {
+        if(!parallelTestingStarted) {
+            return;
+        }
+        for(String key : new ArrayList<String>(pendingFailures.keySet())) {
+            String[] test = key.split(" ", 2);
+            List<TestFailure> failures = pendingFailures.remove(key);
+            TestSuite suite = parallelSuite(test[0]);
+            TestCase testCase = new TestCase(suite.getName(), test[1]);
+            suite.getTestCasesHash().put(test[1], testCase);
+            suite.getTestCases().add(testCase);
+            suite.addTest();
+            suite.addFailure();
+            for(TestFailure failure : failures) {
+                addParallelFailure(suite, testCase, failure);
+            }
+        }
+        for(TestSuite suite : parallelSuites.values()) {
+            if(suite.getEndTime() == null) {
+                suite.setEndTime(new Date());
+            }
+            currentTestSuite = suite;
+            writeTestReport();
+            if(buildEvents != null) {
+                buildEvents.testSuiteFinished(suite.getName());
+            }
+        }
+        currentTestSuite = null;
+        parallelSuites.clear();
+        parallelWorkers.clear();
+        parallelTestingStarted = false;
+        consoleLog = consoleLogBeforeTesting;
+    }
+
+    private void handleBuildEventLine(String line) throws IOException {
+        if(line.startsWith(BUILD_TARGET_PREFIX)) {
+            Matcher m = BUILD_TARGET.matcher(line);
+            if(m.matches()) {
+                finishStep();
+                currentTarget = m.group(1);
+                buildEvents.targetStarted(m.group(1), m.group(2));
+            }
+            return;
+        }
+        int space = line.indexOf(' ');
+        Integer fileArgument = space > 0 ? BUILD_STEPS.get(line.substring(0, space)) : null;
+        if(fileArgument != null) {
+            handleBuildStep(line, line.substring(0, space), fileArgument);
+            return;
+        }
+        if(line.contains(": ")) {
+            Matcher m = DIAGNOSTIC.matcher(line);
+            // Failed assertions of tests look like compile errors when the test results are ignored.
+            if(m.matches() && !ERROR_TESTCASE.matcher(line).matches()) {
+                buildEvents.diagnostic(m.group(2), m.group(1), m.group(3));
+            }
+        }
+    }
+
+    private void handleBuildStep(String line, String step, int fileArgument) throws IOException {
+        finishStep();
+        if(line.contains(IN_TARGET_KEYWORD)) {
+            Matcher m = IN_TARGET.matcher(line);
+            if(m.matches() && !m.group(1).equals(currentTarget)) {
+                currentTarget = m.group(1);
+                buildEvents.targetStarted(m.group(1), m.group(2));
+            }
+        }
+        currentStep = step;
+        currentStepFile = argument(line, fileArgument);
+        currentStepTarget = currentTarget;
+        currentStepStart = System.currentTimeMillis();
+        buildEvents.stepStarted(currentStep, currentStepTarget, currentStepFile);
+    }
+
+    private void finishStep() throws IOException {
+        if(currentStep != null) {
+            buildEvents.stepFinished(currentStep, currentStepTarget, currentStepFile, System.currentTimeMillis() - currentStepStart);
+            currentStep = null;
+        }
+    }
+
+    /**
+     * @return the argument of a build command line, where spaces in paths are escaped by a backslash, or null if there is none
+     */
+    static String argument(String line, int index) {
+        int argument = 0;
+        StringBuilder value = null;
+        for(int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if(c == '\\' && i + 1 < line.length()) {
+                if(value != null) {
+                    value.append(line.charAt(i + 1));
+                }
+                i++;
+            } else if(c == ' ') {
+                if(value != null) {
+                    break;
+                }
+                argument++;
+                if(argument == index) {
+                    value = new StringBuilder();
+                }
+            } else if(value != null) {
+                value.append(c);
+            }
+        }
+        if(value == null || value.length() == 0 || value.charAt(0) == '(') {
+            return null;
+        }
+        return value.toString();
+    }
+
+    private boolean handleSuiteLine(String line) throws ParseException, IOException, InterruptedException, JAXBException {
         Matcher m = START_SUITE.matcher(line);
         if(m.matches()) {
 	    if (testSuitesHash.isEmpty()) {
@@ -198,9 +918,14 @@ public class XCodeBuildOutputParser {
 	    if ( m.group(1).endsWith(".xctest") ) {
 		suite_name = suite_name.replaceAll("-", "_");
 	    }
-            currentTestSuite = new TestSuite(InetAddress.getLocalHost().getHostName(), m.group(1), parseDate(m.group(2)));
+            currentTestSuite = new TestSuite(getHostName(), m.group(1), parseDate(m.group(2)));
 	    testSuitesHash.put(suite_name, currentTestSuite);
-            return;
+            if(buildEvents != null) {
+                // Tests run after the build, so the last build step ended.
+                finishStep();
+                buildEvents.testSuiteStarted(m.group(1));
+            }
+            return true;
         }
 
         m = END_SUITE.matcher(line);
@@ -212,7 +937,11 @@ public class XCodeBuildOutputParser {
 	    requireTestSuite(suite_name);
             currentTestSuite.setEndTime(parseDate(m.group(2)));
             writeTestReport();
+            if(buildEvents != null) {
+                buildEvents.testSuiteFinished(m.group(1));
+            }
             testSuitesHash.remove(suite_name);
+            closeSuiteWriter(currentTestSuite);
 	    currentTestSuite = null;
 	    if ( testSuitesHash.size() == 1 ) {
 		// If the last test suitev in nhash is Unknown, process it and exit.
@@ -221,21 +950,30 @@ public class XCodeBuildOutputParser {
 		    currentTestSuite.setEndTime(parseDate(m.group(2)));
 		    writeTestReport();
 		    testSuitesHash.remove(suite_name);
+		    closeSuiteWriter(currentTestSuite);
 		    currentTestSuite = null;
 		}
 	    }
 	    if (testSuitesHash.isEmpty()) {
                 consoleLog = false;
 	    }
-            return;
+            return true;
         }
 
-        m = START_TESTCASE.matcher(line);
+        return false;
+    }
+
+    private boolean handleTestCaseLine(String line) throws IOException {
+        Matcher m = START_TESTCASE.matcher(line);
         if(m.matches()) {
+            writeFinishedTestCase();
 	    requireTestSuite(m.group(1));
 	    currentTestCase = new TestCase(m.group(1), m.group(2));
             currentTestSuite.getTestCasesHash().put(m.group(2), currentTestCase);
-            return;
+            if(buildEvents != null) {
+                buildEvents.testCaseStarted(m.group(1), m.group(2));
+            }
+            return true;
         }
 
         m = END_TESTCASE.matcher(line);
@@ -245,57 +983,16 @@ public class XCodeBuildOutputParser {
             currentTestCase.setTime(Float.valueOf(m.group(3)));
             currentTestSuite.getTestCases().add(currentTestCase);
             currentTestSuite.addTest();
-	    // Actually, I think that the test case should be closed and deleted here.
-	    // In case the error is reported late without synchronization.
-	    //currentTestSuite.getTestCasesHash().remove(m.group(2));
+            if(buildEvents != null) {
+                buildEvents.testCaseFinished(m.group(1), m.group(2), true, currentTestCase.getTime());
+            }
+	    // The test case is not written out right away,
+	    // in case the error is reported late without synchronization.
+	    finishTestCase();
 	    currentTestCase = null;
-	    return;
+	    return true;
 	}
 
-        m = ERROR_TESTCASE.matcher(line);
-        if(m.matches()) {
-            String errorLocation = m.group(1);
-            String testSuite = m.group(2);
-            String testCase = m.group(3);
-            String errorMessage = m.group(4);
-            requireTestSuite(testSuite);
-            requireTestCase(testCase);
-            TestFailure failure = new TestFailure(errorMessage, errorLocation);
-            currentTestCase.getFailures().add(failure);
-            return;
-        }
-
-	// If the test result is returned asynchronously, there is a possibility
-	//  that in this case the target test can not be decided and information
-	//  is recorded in the wrong place.
-        m = ERROR_UI_TESTCASE.matcher(line);
-        if(m.matches()) {
-            String errorLocation = m.group(1);
-            String errorMessage = m.group(2);
-            TestFailure failure = new TestFailure(errorMessage, errorLocation);
-
- 	    if ( currentTestSuite == null ) {
-		currentTestSuite = testSuitesHash.get("UnknownSuite");
-		if ( currentTestSuite == null ) {
- 		    currentTestSuite = new TestSuite(InetAddress.getLocalHost().getHostName(), "UnknownSuite", new Date());
-		    testSuitesHash.put("UnknownSuite", currentTestSuite);
-		}
- 	    }
-                  
-	    if ( currentTestCase == null ) {
-		currentTestCase = currentTestSuite.getTestCasesHash().get("UnknownTestCase");
-		if ( currentTestCase == null ) {
-		    currentTestCase = new TestCase(currentTestSuite.getName(), "UnknownTestCase");
-		    currentTestSuite.getTestCasesHash().put("UnknownTestCase", currentTestCase);
-		    currentTestSuite.getTestCases().add(currentTestCase);
-		    currentTestSuite.addTest();
-		}
-	    }
-
-            currentTestCase.getFailures().add(failure);
-            return;
-        }
-
         m = FAILED_TESTCASE.matcher(line);
         if(m.matches()) {
             requireTestSuite(m.group(1));
@@ -304,37 +1001,86 @@ public class XCodeBuildOutputParser {
             currentTestSuite.addFailure();
             currentTestCase.setTime(Float.valueOf(m.group(3)));
             currentTestSuite.getTestCases().add(currentTestCase);
-	    //currentTestSuite.getTestCasesHash().remove(m.group(2));
+            if(buildEvents != null) {
+                buildEvents.testCaseFinished(m.group(1), m.group(2), false, currentTestCase.getTime());
+            }
+	    finishTestCase();
 	    currentTestCase = null;
-            return;
+            return true;
         }
 
-        m = FAILED_WITH_EXIT_CODE.matcher(line);
-        if(m.matches()) {
-            exitCode = Integer.parseInt(m.group(1));
-            return;
+        return false;
+    }
+
+    private void handleTestCaseError(Matcher m) throws IOException {
+        String errorLocation = m.group(1);
+        String testSuite = m.group(2);
+        String testCase = m.group(3);
+        String errorMessage = m.group(4);
+        requireTestSuite(testSuite);
+        TestFailure failure = new TestFailure(errorMessage, errorLocation);
+        StreamingTestSuiteWriter writer = suiteWriters.get(currentTestSuite);
+        if(!currentTestSuite.getTestCasesHash().containsKey(testCase) && writer != null && writer.hasTestCase(testCase)) {
+            // Reported after the next test case started, once this one was written out.
+            writer.addFailure(testCase, failure);
+        } else {
+            requireTestCase(testCase);
+            currentTestCase.getFailures().add(failure);
+        }
+        if(buildEvents != null) {
+            buildEvents.testFailure(testSuite, testCase, errorLocation, errorMessage);
         }
+    }
 
-        if(line.matches("BUILD FAILED") || line.matches("\\*\\* TEST FAILED \\*\\*")) {
-            exitCode = -1;
+    // If the test result is returned asynchronously, there is a possibility
+    //  that in this case the target test can not be decided and information
+    //  is recorded in the wrong place.
+    private void handleUITestCaseError(Matcher m) throws IOException {
+        String errorLocation = m.group(1);
+        String errorMessage = m.group(2);
+        TestFailure failure = new TestFailure(errorMessage, errorLocation);
+
+	if ( currentTestSuite == null ) {
+	    currentTestSuite = testSuitesHash.get("UnknownSuite");
+	    if ( currentTestSuite == null ) {
+		currentTestSuite = new TestSuite(getHostName(), "UnknownSuite", new Date());
+		testSuitesHash.put("UnknownSuite", currentTestSuite);
+	    }
+	}
+
+	if ( currentTestCase == null ) {
+	    currentTestCase = currentTestSuite.getTestCasesHash().get("UnknownTestCase");
+	    if ( currentTestCase == null ) {
+		currentTestCase = new TestCase(currentTestSuite.getName(), "UnknownTestCase");
+		currentTestSuite.getTestCasesHash().put("UnknownTestCase", currentTestCase);
+		currentTestSuite.getTestCases().add(currentTestCase);
+		currentTestSuite.addTest();
+	    }
+	}
+
+        currentTestCase.getFailures().add(failure);
+        if(buildEvents != null) {
+            buildEvents.testFailure(currentTestSuite.getName(), currentTestCase.getName(), errorLocation, errorMessage);
         }
-        
-        m = TERMINATING_EXCEPTION.matcher(line);
-        if(m.matches()) {
-            exitCode = -1;
-            requireTestSuite();
-            if (currentTestCase != null) {
-                TestError error = new TestError(m.group(2), m.group(1));
-                currentTestCase.getErrors().add(error);
-                currentTestSuite.getTestCases().add(currentTestCase);
-                currentTestSuite.addTest();
-                currentTestSuite.addError();
-		//currentTestSuite.getTestCasesHash().remove(currentTestCase.getName());
-                currentTestCase = null;
-            }
-            writeTestReport();
-            currentTestSuite = null;
+    }
+
+    private void handleTerminatingException(Matcher m) throws IOException, InterruptedException, JAXBException {
+        exitCode = -1;
+        if(buildEvents != null) {
+            buildEvents.crash(m.group(1), m.group(2));
+        }
+        requireTestSuite();
+        if (currentTestCase != null) {
+            TestError error = new TestError(m.group(2), m.group(1));
+            currentTestCase.getErrors().add(error);
+            currentTestSuite.getTestCases().add(currentTestCase);
+            currentTestSuite.addTest();
+            currentTestSuite.addError();
+	    //currentTestSuite.getTestCasesHash().remove(currentTestCase.getName());
+            currentTestCase = null;
         }
+        writeTestReport();
+        currentTestSuite = null;
     }
 
     public OutputStream getOutputStream() {
@@ -49,6 +49,7 @@ import org.jenkinsci.Symbol;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.math.NumberUtils;
 import org.jenkinsci.plugins.tokenmacro.MacroEvaluationException;
 import org.jenkinsci.plugins.tokenmacro.TokenMacro;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -66,6 +67,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.util.UUID;
@@ -371,6 +373,46 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
      */
     @CheckForNull
     private Boolean cleanResultBundlePath;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String logfileMaxSize;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String logfileMaxSegments;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private Boolean compressLogfiles;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private Boolean writeBuildEvents;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private Boolean condensedConsoleLog;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String abortAfterFailedTests;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private String abortOnCompileErrorInTargets;
+    /**
+     * @since 2.0.16
+     */
+    @CheckForNull
+    private Boolean abortOnTerminatingException;
 
     public Boolean getCleanBeforeBuild() {
 	return cleanBeforeBuild == null ? Boolean.valueOf(true) : cleanBeforeBuild;
@@ -893,6 +935,78 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         return cleanResultBundlePath == null ? Boolean.valueOf(true) : cleanResultBundlePath;
     }
 
+    public String getLogfileMaxSize() {
+	return logfileMaxSize;
+    }
+
+    @DataBoundSetter
+    public void setLogfileMaxSize(String logfileMaxSize) {
+	this.logfileMaxSize = logfileMaxSize;
+    }
+
+    public String getLogfileMaxSegments() {
+	return logfileMaxSegments;
+    }
+
+    @DataBoundSetter
+    public void setLogfileMaxSegments(String logfileMaxSegments) {
+	this.logfileMaxSegments = logfileMaxSegments;
+    }
+
+    public Boolean getCompressLogfiles() {
+	return compressLogfiles == null ? Boolean.valueOf(false) : compressLogfiles;
+    }
+
+    @DataBoundSetter
+    public void setCompressLogfiles(Boolean compressLogfiles) {
+	this.compressLogfiles = compressLogfiles;
+    }
+
+    public Boolean getWriteBuildEvents() {
+	return writeBuildEvents == null ? Boolean.valueOf(false) : writeBuildEvents;
+    }
+
+    @DataBoundSetter
+    public void setWriteBuildEvents(Boolean writeBuildEvents) {
+	this.writeBuildEvents = writeBuildEvents;
+    }
+
+    public Boolean getCondensedConsoleLog() {
+	return condensedConsoleLog == null ? Boolean.valueOf(false) : condensedConsoleLog;
+    }
+
+    @DataBoundSetter
+    public void setCondensedConsoleLog(Boolean condensedConsoleLog) {
+	this.condensedConsoleLog = condensedConsoleLog;
+    }
+
+    public String getAbortAfterFailedTests() {
+	return abortAfterFailedTests;
+    }
+
+    @DataBoundSetter
+    public void setAbortAfterFailedTests(String abortAfterFailedTests) {
+	this.abortAfterFailedTests = abortAfterFailedTests;
+    }
+
+    public String getAbortOnCompileErrorInTargets() {
+	return abortOnCompileErrorInTargets;
+    }
+
+    @DataBoundSetter
+    public void setAbortOnCompileErrorInTargets(String abortOnCompileErrorInTargets) {
+	this.abortOnCompileErrorInTargets = abortOnCompileErrorInTargets;
+    }
+
+    public Boolean getAbortOnTerminatingException() {
+	return abortOnTerminatingException == null ? Boolean.valueOf(false) : abortOnTerminatingException;
+    }
+
+    @DataBoundSetter
+    public void setAbortOnTerminatingException(Boolean abortOnTerminatingException) {
+	this.abortOnTerminatingException = abortOnTerminatingException;
+    }
+
     // Internally.
     public void setSkipBuildStep(Boolean skipBuildStep) {
         this.skipBuildStep = skipBuildStep;
@@ -1089,8 +1203,20 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 		return _perform(build, build.getWorkspace(), launcher, build.getEnvironment(listener), listener);
 	}
 
-    @SuppressFBWarnings("DM_DEFAULT_ENCODING")
     private boolean _perform(Run<?,?> build, FilePath projectRoot, Launcher launcher, EnvVars envs, TaskListener listener) throws InterruptedException, IOException {
+	// Added first, so that the phases of a step that fails early are kept too.
+	XCodeAction xcodeAction = new XCodeAction(null);
+	build.addAction(xcodeAction);
+	try {
+	    return _perform(build, projectRoot, launcher, envs, listener, xcodeAction);
+	}
+	finally {
+	    xcodeAction.endPhase();
+	}
+    }
+
+    @SuppressFBWarnings("DM_DEFAULT_ENCODING")
+    private boolean _perform(Run<?,?> build, FilePath projectRoot, Launcher launcher, EnvVars envs, TaskListener listener, XCodeAction xcodeAction) throws InterruptedException, IOException {
 
         // check that the configured tools exist
         if (!new FilePath(projectRoot.getChannel(), getGlobalConfiguration().getXcodebuildPath()).exists()) {
@@ -1177,6 +1303,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         ByteArrayOutputStream output = new ByteArrayOutputStream();
 
         // Try to read CFBundleShortVersionString from project
+        xcodeAction.startPhase("versionQuery");
         listener.getLogger().println(Messages.XCodeBuilder_fetchingCFBundleShortVersionString());
         String cfBundleShortVersionString = "";
         int returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getAgvtoolPath(), "mvers", "-terse1").stdout(output).pwd(projectRoot).join();
@@ -1205,13 +1332,13 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         listener.getLogger().println(Messages.XCodeBuilder_CFBundleVersionValue(cfBundleVersion));
 
         String buildDescription = cfBundleShortVersionString + " (" + cfBundleVersion + ")";
-        XCodeAction a = new XCodeAction(buildDescription);
-        build.addAction(a);
+        xcodeAction.setBuildDescription(buildDescription);
 
         // Update the bundle ID
         if ( BooleanUtils.isTrue(this.changeBundleID) ) {
+            xcodeAction.startPhase("changeBundleID");
         	listener.getLogger().println(Messages.XCodeBuilder_CFBundleIdentifierChanged(bundleIDInfoPlistPath, bundleID));
-        	returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c",  "Set :CFBundleIdentifier " + bundleID, bundleIDInfoPlistPath).stdout(listener).pwd(projectRoot).join();
+        	returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getPlistBuddyPath(), "-c",  "Set :CFBundleIdentifier " + bundleID, bundleIDInfoPlistPath).stdout(listener).pwd(projectRoot).join();
 
         	if (returnCode > 0) {
         		listener.fatalError(Messages.XCodeBuilder_CFBundleIdentifierInfoPlistNotFound(bundleIDInfoPlistPath));
@@ -1221,6 +1348,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
         // Update the Marketing version (CFBundleShortVersionString)
         if ( BooleanUtils.isTrue(this.provideApplicationVersion) && !StringUtils.isEmpty(cfBundleShortVersionStringValue)) {
+            xcodeAction.startPhase("updateVersion");
             try {
                 // If not empty we use the Token Expansion to replace it
                 // https://wiki.jenkins-ci.org/display/JENKINS/Token+Macro+Plugin
@@ -1240,6 +1368,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
         // Update the Technical version (CFBundleVersion)
         if ( BooleanUtils.isTrue(this.provideApplicationVersion) && !StringUtils.isEmpty(cfBundleVersionValue)) {
+            xcodeAction.startPhase("updateVersion");
             try {
                 // If not empty we use the Token Expansion to replace it
                 // https://wiki.jenkins-ci.org/display/JENKINS/Token+Macro+Plugin
@@ -1263,6 +1392,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 	String developmentTeamID = null;
         boolean archiveAutomaticSigning = false;
         if ( signingMethod != null && signingMethod.equals("readFromProject") ) {
+	    xcodeAction.startPhase("readSigningInfo");
 	    provisioningProfiles = new ArrayList<>();
 	    listener.getLogger().println(Messages.XCodeBuilder_ReadSigningInfoFromProject());
 	    XcodeProject xcodeProject = null;
@@ -1287,8 +1417,10 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 		    listener.getLogger().println("Empty or Invalid workspacefile: " + projectRoot.child(xcodeWorkspaceFile + ".xcworkspace").absolutize().getRemote());
 		}
 		else if ( projectList.size() > 0 && xcodeSchema != null && !StringUtils.isEmpty(xcodeSchema) ) {
+		    // The schemes of all the projects are read at once, on the node.
+		    LinkedHashMap<String, HashMap<String, ProjectScheme>> workspaceSchemes = XcodeProjectParser.listXcodeSchemes(projectRoot, projectList);
 		    for ( String location : projectList ) {
-			HashMap<String, ProjectScheme> xcodeSchemes = XcodeProjectParser.listXcodeSchemes(projectRoot.child(location));
+			HashMap<String, ProjectScheme> xcodeSchemes = workspaceSchemes.get(location);
 			// JENKINS-59523, JENKINS-59609
 			if ( xcodeSchemes == null ) {
 			    listener.getLogger().println("Skipping empty or invalid scheme file: " + location);
@@ -1336,14 +1468,14 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 	    projectLocations.add(projectLocation); 
 	    for ( FilePath examineLocation : projectLocations ) {
                 // Parse Xcode project file.
-                xcodeProject = XcodeProjectParser.parseXcodeProject(examineLocation);
+                xcodeProject = XcodeProjectParser.parseXcodeProject(examineLocation, listener.getLogger());
                 if ( xcodeProject == null ) {
 		    listener.getLogger().println(Messages.XCodeBuilder_CouldNotReadProjectInfoFrom(examineLocation.absolutize().getRemote()));
                     return false;      
                 }
-		// Examine all targets.
-		for ( String key : xcodeProject.projectTarget.keySet() ) {
-		    ProjectTarget projectTarget = xcodeProject.projectTarget.get(key);
+		// Examine all targets, each of which only decodes the build configuration used.
+		for ( String key : xcodeProject.getTargetNames() ) {
+		    ProjectTarget projectTarget = xcodeProject.getTarget(key);
 		    String exportConfiguration = null;
 		    if ( !StringUtils.isEmpty(ipaExportMethod) ) {
 			if ( ipaExportMethod.equals("app-store") ) {
@@ -1367,11 +1499,11 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                         // The target is not a test.
                         archiveAutomaticSigning = automaticSigning;
                     }
-		    BuildConfiguration buildConfiguration = projectTarget.buildConfiguration.get(exportConfiguration);
+		    BuildConfiguration buildConfiguration = projectTarget.getBuildConfiguration(exportConfiguration);
 		    if ( buildConfiguration == null ) {
 			listener.getLogger().println(Messages.XCodeBuilder_CouldNotGetBuildConfig(exportConfiguration, examineLocation.absolutize().getRemote()));
 			exportConfiguration = "Release";
-			buildConfiguration = projectTarget.buildConfiguration.get(exportConfiguration);
+			buildConfiguration = projectTarget.getBuildConfiguration(exportConfiguration);
 			if ( buildConfiguration == null ) {
 			    return false;
 			}
@@ -1444,19 +1576,22 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 		    developmentTeamID = envs.expand(team.getTeamID());
 		    if (!StringUtils.isEmpty(developmentTeamID)) {
 		        listener.getLogger().println(Messages.XCodeBuilder_DebugInfoCanFindCertificates());
+		        xcodeAction.startPhase("findCertificate");
 		        /*returnCode =*/
-		        launcher.launch().envs(envs).cmds("/usr/bin/security", "find-certificate", "-a", "-c", developmentTeamID, "-Z", "|", "grep", "^SHA-1").stdout(listener).pwd(projectRoot).join();
+		        launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "find-certificate", "-a", "-c", developmentTeamID, "-Z", "|", "grep", "^SHA-1").stdout(listener).pwd(projectRoot).join();
 		        // We could fail here, but this doesn't seem to work as it should right now (output not properly redirected. We might need a parser)
 		    }
 	        }
 	    }
         }
 
+        xcodeAction.startPhase("showSdks");
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailableSDKs());
         /*returnCode =*/ launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-showsdks").stdout(listener).pwd(projectRoot).join();
 
         XcodeBuildListParser xcodebuildListParser;
         {
+            xcodeAction.startPhase("list");
             List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
             commandLine.add("-list");
             // xcodebuild -list -workspace $workspace
@@ -1481,6 +1616,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
         XcodeBuildHelpParser xcodebuildHelpParser;
         {
+            xcodeAction.startPhase("help");
             List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
             commandLine.add("-help");
             // xcodebuild -help
@@ -1532,6 +1668,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 	listener.getLogger().println(Messages.XCodeBuilder_BuildDirectory(buildDirectory.absolutize()));
 
         // XCode Version
+        xcodeAction.startPhase("version");
         returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getXcodebuildPath(), "-version").stdout(listener).pwd(projectRoot).join();
         if (returnCode > 0) {
             listener.fatalError(Messages.XCodeBuilder_xcodeVersionNotFound());
@@ -1539,6 +1676,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
         }
 
         // Clean build directories
+        xcodeAction.startPhase("clean");
         if ( BooleanUtils.isNotFalse(cleanBeforeBuild) ) {
             listener.getLogger().println(Messages.XCodeBuilder_cleaningBuildDir(buildDirectory.absolutize().getRemote()));
             buildDirectory.deleteRecursive();
@@ -1557,6 +1695,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
         if ( BooleanUtils.isTrue(unlockKeychain) ) {
             // Let's unlock the keychain
+            xcodeAction.startPhase("unlockKeychain");
             String keychainPath;
             String keychainPwd;
 
@@ -1585,12 +1724,12 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                 keychainPwd = Secret.toString(this.keychainPwd);
             }
 
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "list-keychains", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "default-keychain", "-d", "user", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
+            launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "list-keychains", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
+            launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "default-keychain", "-d", "user", "-s", keychainPath).stdout(listener).pwd(projectRoot).join();
             if (StringUtils.isEmpty(keychainPwd))
-                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", keychainPath).stdout(listener).pwd(projectRoot).join();
+                returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "unlock-keychain", keychainPath).stdout(listener).pwd(projectRoot).join();
             else
-                returnCode = launcher.launch().envs(envs).cmds("/usr/bin/security", "unlock-keychain", "-p", keychainPwd, keychainPath).masks(false, false, false, true, false).stdout(listener).pwd(projectRoot).join();
+                returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "unlock-keychain", "-p", keychainPwd, keychainPath).masks(false, false, false, true, false).stdout(listener).pwd(projectRoot).join();
 
             if (returnCode > 0) {
                 listener.fatalError(Messages.XCodeBuilder_unlockKeychainFailed());
@@ -1598,18 +1737,20 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
             }
 
             // Show the keychain info after unlocking, if not, OS X will prompt for the keychain password
-            launcher.launch().envs(envs).cmds("/usr/bin/security", "show-keychain-info", keychainPath).stdout(listener).pwd(projectRoot).join();
+            launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "show-keychain-info", keychainPath).stdout(listener).pwd(projectRoot).join();
         }
 
         // display useful setup information
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoLineDelimiter());
         listener.getLogger().println(Messages.XCodeBuilder_DebugInfoAvailableCertificates());
-        /*returnCode =*/ launcher.launch().envs(envs).cmds("/usr/bin/security", "find-identity", "-p", "codesigning", "-v").stdout(listener).pwd(projectRoot).join();
+        xcodeAction.startPhase("findIdentity");
+        /*returnCode =*/ launcher.launch().envs(envs).cmds(getGlobalConfiguration().getSecurityPath(), "find-identity", "-p", "codesigning", "-v").stdout(listener).pwd(projectRoot).join();
+        xcodeAction.endPhase();
 
         // Build
 	if ( BooleanUtils.isNotTrue(skipBuildStep) ) {
 	    StringBuilder xcodeReport = new StringBuilder(Messages.XCodeBuilder_invokeXcodebuild());
-	    JenkinsXCodeBuildOutputParser reportGenerator = new JenkinsXCodeBuildOutputParser(projectRoot, listener);
+	    XcodebuildCallable xcodebuild = new XcodebuildCallable(projectRoot, listener);
 	    List<String> commandLine = Lists.newArrayList(getGlobalConfiguration().getXcodebuildPath());
 
 	    // Workspace and target can not be specified at the same time.
@@ -1705,16 +1846,65 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
 	    if ( BooleanUtils.isTrue(noConsoleLog) ) {
 		xcodeReport.append(", consolelog:NO");
-		reportGenerator.setConsoleLog(false);
+		xcodebuild.setConsoleLog(false);
 	    }else{
 		xcodeReport.append(", consolelog:YES");
 	    }
+	    if ( BooleanUtils.isTrue(condensedConsoleLog) ) {
+		xcodeReport.append(", condensedConsoleLog: YES");
+		xcodebuild.setCondensedConsoleLog(true);
+	    }
 	    if(!StringUtils.isEmpty(logfileOutputDirectory)) {
 		xcodeReport.append(", logfileOutputDirectory: ").append(logfileOutputDirectory);
-		reportGenerator.setLogfilePath(buildDirectory, logfileOutputDirectory);
+		long logfileMaxBytes = NumberUtils.toLong(envs.expand(logfileMaxSize)) * 1024 * 1024;
+		if ( logfileMaxBytes > 0 ) {
+		    xcodeReport.append(", logfileMaxSize: ").append(logfileMaxSize).append(" MB");
+		}
+		int logfileMaxSegmentCount = NumberUtils.toInt(envs.expand(logfileMaxSegments));
+		if ( logfileMaxBytes > 0 && logfileMaxSegmentCount > 0 ) {
+		    xcodeReport.append(", logfileMaxSegments: ").append(logfileMaxSegmentCount);
+		}
+		if ( BooleanUtils.isTrue(compressLogfiles) ) {
+		    xcodeReport.append(", compressLogfiles: YES");
+		}
+		xcodebuild.setLogfilePath(buildDirectory, logfileOutputDirectory, logfileMaxBytes, logfileMaxSegmentCount, BooleanUtils.isTrue(compressLogfiles));
+	    }
+	    if ( BooleanUtils.isTrue(writeBuildEvents) ) {
+		FilePath buildEventsDirectory = StringUtils.isEmpty(logfileOutputDirectory) ? buildDirectory : buildDirectory.child(logfileOutputDirectory);
+		xcodeReport.append(", writeBuildEvents: YES");
+		xcodebuild.setBuildEventsPath(buildEventsDirectory);
 	    }
+	    LiveTestResultsAction liveTestResults = null;
 	    if ( !StringUtils.isEmpty(resultBundlePath) || BooleanUtils.isTrue(ignoreTestResults) ) {
-		reportGenerator.setIgnoreTestResults(true);
+		xcodebuild.setIgnoreTestResults(true);
+	    }
+	    else {
+		// The results of several xcodeBuild steps of a pipeline are added up.
+		liveTestResults = build.getAction(LiveTestResultsAction.class);
+		if ( liveTestResults == null ) {
+		    liveTestResults = new LiveTestResultsAction();
+		    liveTestResults.attachOnFirstResult(build);
+		}
+		xcodebuild.setLiveTestResults(liveTestResults);
+		int maxFailedTests = NumberUtils.toInt(envs.expand(abortAfterFailedTests));
+		if ( maxFailedTests > 0 ) {
+		    xcodeReport.append(", abortAfterFailedTests: ").append(maxFailedTests);
+		    xcodebuild.setMaxFailedTests(maxFailedTests);
+		}
+		if ( BooleanUtils.isTrue(abortOnTerminatingException) ) {
+		    xcodeReport.append(", abortOnTerminatingException: YES");
+		    xcodebuild.setAbortOnTerminatingException(true);
+		}
+	    }
+	    if ( !StringUtils.isEmpty(abortOnCompileErrorInTargets) ) {
+		List<String> compileErrorTargets = new ArrayList<String>();
+		for ( String compileErrorTarget : StringUtils.split(envs.expand(abortOnCompileErrorInTargets), ',') ) {
+		    if ( !StringUtils.isBlank(compileErrorTarget) ) {
+			compileErrorTargets.add(compileErrorTarget.trim());
+		    }
+		}
+		xcodeReport.append(", abortOnCompileErrorInTargets: ").append(StringUtils.join(compileErrorTargets, ","));
+		xcodebuild.setCompileErrorTargets(compileErrorTargets);
 	    }
 	    if ( !StringUtils.isEmpty(resultBundlePath) ) {
 		commandLine.add("-resultBundlePath");
@@ -1758,6 +1948,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 
 	    boolean manualSigning = (!archiveAutomaticSigning && signingMethod != null && (signingMethod.equals("manual") || signingMethod.equals("readFromProject")));
 	    if ( manualSigning ) {
+		xcodeAction.startPhase("provisioningProfiles");
 		if ( provisioningProfiles != null && provisioningProfiles.size() > 0 ) {
 		    for ( ProvisioningProfile pp : provisioningProfiles ) {
 			String provisioningProfileUUID = envs.expand(pp.getProvisioningProfileUUID());
@@ -1768,7 +1959,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 			    String provisioningProfileName = provisioningProfileUUID;
 			    try {
 				output.reset();
-				returnCode = launcher.launch().envs(envs).cmds("/bin/sh", "-c", "/usr/libexec/PlistBuddy -c \"Print :UUID\" /dev/stdin <<< $(/usr/bin/security cms -D -i \"" + projectRoot.absolutize().child(provisioningProfileUUID).getRemote() + "\")").stdout(output).stderr(System.err).pwd(projectRoot).join();
+				returnCode = launcher.launch().envs(envs).cmds("/bin/sh", "-c", getGlobalConfiguration().getPlistBuddyPath() + " -c \"Print :UUID\" /dev/stdin <<< $(" + getGlobalConfiguration().getSecurityPath() + " cms -D -i \"" + projectRoot.absolutize().child(provisioningProfileUUID).getRemote() + "\")").stdout(output).stderr(System.err).pwd(projectRoot).join();
 				if ( returnCode == 0 ) {
 				    FilePath homePath = projectRoot.getHomeDirectory(projectRoot.getChannel());
 				    FilePath provisioningProfilePath = projectRoot.child(provisioningProfileUUID);
@@ -1808,28 +1999,70 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 		xcodeReport.append(", useLegacyBuildSystem: YES");
 	    }
 
+	    int parallelTestingOption = commandLine.indexOf("-parallel-testing-enabled");
+	    if ( parallelTestingOption >= 0 && parallelTestingOption + 1 < commandLine.size() && commandLine.get(parallelTestingOption + 1).equalsIgnoreCase("YES") ) {
+		xcodeReport.append(", parallelTesting: YES");
+		xcodebuild.setParallelTesting(true);
+	    }
+
 	    listener.getLogger().println(xcodeReport.toString());
-	    returnCode = launcher.launch().envs(envs).cmds(commandLine).stdout(reportGenerator.getOutputStream()).pwd(projectRoot).join();
-            reportGenerator.closeLogfile();
+	    xcodeAction.startPhase("build");
+	    // xcodebuild is run and its output parsed on the node, so only the console log crosses the channel.
+	    xcodebuild.setCommandLine(envs, commandLine);
+	    XcodebuildCallable.Result xcodebuildResult;
+	    if ( liveTestResults != null ) {
+		liveTestResults.setRunning(true);
+	    }
+	    try {
+		xcodebuildResult = xcodebuild.execute(launcher);
+	    }
+	    finally {
+		if ( liveTestResults != null ) {
+		    liveTestResults.setRunning(false);
+		}
+	    }
+	    returnCode = xcodebuildResult.getReturnCode();
+	    listener.getLogger().println(Messages.XCodeBuilder_OutputPipelineStats(xcodebuildResult.getMaxQueueDepth(), xcodebuildResult.getBufferSize(), xcodebuildResult.getStalls(), xcodebuildResult.getStallTimeMillis()));
+	    xcodeAction.endPhase();
 	    if ( !StringUtils.isEmpty(resultBundlePath) ) {
-		XcodeTestSummariesParser testSummariesParser = new XcodeTestSummariesParser(projectRoot);
-		FilePath testSummariesPath = projectRoot.child(resultBundlePath + "/TestSummaries.plist");
-		if ( testSummariesPath.exists() ) {
-		    listener.getLogger().println(Messages.XCodeBuilder_ParseingTestSummariesPlist(testSummariesPath.absolutize().getRemote()));
-		    testSummariesParser.parseTestSummariesPlist(testSummariesPath);
+		xcodeAction.startPhase("testSummaries");
+		FilePath resultBundle = projectRoot.child(resultBundlePath);
+		TestSummariesResult testSummariesResult = null;
+		if ( resultBundle.isDirectory() ) {
+		    testSummariesResult = XcodeTestSummariesParser.parseResultBundle(projectRoot, resultBundle);
+		    for ( String error : testSummariesResult.getErrors() ) {
+			listener.getLogger().println(Messages.XCodeBuilder_TestSummariesParseError(error));
+		    }
+		}
+		if ( testSummariesResult != null && !testSummariesResult.getSummaryFiles().isEmpty() ) {
+		    for ( String summaryFile : testSummariesResult.getSummaryFiles() ) {
+			listener.getLogger().println(Messages.XCodeBuilder_ParseingTestSummariesPlist(summaryFile));
+		    }
+		    listener.getLogger().println(Messages.XCodeBuilder_TestSummariesResult(testSummariesResult.getSuites(), testSummariesResult.getTests(), testSummariesResult.getFailures()));
+		    for ( String failedTest : testSummariesResult.getFailedTests() ) {
+			listener.getLogger().println(Messages.XCodeBuilder_TestSummariesFailedTest(failedTest));
+		    }
 		}
 		else {
-		    listener.getLogger().println(Messages.XCodeBuilder_TestSummariesPlistNotExists(testSummariesPath.absolutize().getRemote()));
+		    listener.getLogger().println(Messages.XCodeBuilder_TestSummariesPlistNotExists(resultBundle.child("TestSummaries.plist").absolutize().getRemote()));
 		}
 	    }
+	    if ( xcodebuildResult.getAbortReason() != null ) {
+		if ( liveTestResults != null ) {
+		    liveTestResults.setAbortReason(xcodebuildResult.getAbortReason());
+		}
+		// Allowing failing build results does not cover a build that was stopped before it finished.
+		return false;
+	    }
 	    if ( BooleanUtils.isNotTrue(allowFailingBuildResults) ) {
-		if (reportGenerator.getExitCode() != 0) return false;
+		if (xcodebuildResult.getExitCode() != 0) return false;
 		if (returnCode > 0) return false;
 	    }
 	}
 
         // Package IPA
         if ( BooleanUtils.isTrue(buildIpa) ) {
+            xcodeAction.startPhase("exportOptions");
 
             if (!buildDirectory.exists() || !buildDirectory.isDirectory()) {
                 listener.fatalError(Messages.XCodeBuilder_NotExistingBuildDirectory(buildDirectory.absolutize().getRemote()));
@@ -1890,7 +2123,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 			    //  obtain the Bundle ID from Info.plist and use it.
 			    try {
 				output.reset();
-				returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :CFBundleIdentifier", projectRoot.absolutize().child(provisioningProfileAppId).getRemote()).stdout(output).pwd(projectRoot).join();
+				returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getPlistBuddyPath(), "-c", "Print :CFBundleIdentifier", projectRoot.absolutize().child(provisioningProfileAppId).getRemote()).stdout(output).pwd(projectRoot).join();
 				if (returnCode == 0) {
 				    provisioningProfileAppId = output.toString().trim();
 				    listener.getLogger().println(Messages.XCodeBuilder_CFBundleIdReplaceWith(provisioningProfileAppId));
@@ -1898,7 +2131,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 				else {
 				    // When Info.plist generated by Xcodebuild is specified.
 				    output.reset();
-				    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :ApplicationProperties:CFBundleIdentifier", projectRoot.absolutize().child(provisioningProfileAppId).getRemote()).stdout(output).pwd(projectRoot).join();
+				    returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getPlistBuddyPath(), "-c", "Print :ApplicationProperties:CFBundleIdentifier", projectRoot.absolutize().child(provisioningProfileAppId).getRemote()).stdout(output).pwd(projectRoot).join();
 				    if (returnCode == 0) {
 					provisioningProfileAppId = output.toString().trim();
 					listener.getLogger().println(Messages.XCodeBuilder_CFBundleIdReplaceWith(provisioningProfileAppId));
@@ -1917,7 +2150,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
 			    String provisioningProfileName = provisioningProfileUUID;
 			    try {
 				output.reset();
-				returnCode = launcher.launch().envs(envs).cmds("/bin/sh", "-c", "/usr/libexec/PlistBuddy -c \"Print :UUID\" /dev/stdin <<< $(/usr/bin/security cms -D -i \"" + projectRoot.absolutize().child(provisioningProfileUUID).getRemote() + "\")").stdout(output).stderr(System.err).pwd(projectRoot).join();
+				returnCode = launcher.launch().envs(envs).cmds("/bin/sh", "-c", getGlobalConfiguration().getPlistBuddyPath() + " -c \"Print :UUID\" /dev/stdin <<< $(" + getGlobalConfiguration().getSecurityPath() + " cms -D -i \"" + projectRoot.absolutize().child(provisioningProfileUUID).getRemote() + "\")").stdout(output).stderr(System.err).pwd(projectRoot).join();
 				if ( returnCode == 0 ) {
 				    FilePath homePath = projectRoot.getHomeDirectory(projectRoot.getChannel());
 				    FilePath provisioningProfilePath = projectRoot.child(provisioningProfileUUID);
@@ -1998,18 +2231,19 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
             }
 
             for (FilePath archive : archives) {
+                xcodeAction.startPhase("exportArchive");
                 String version = "";
                 String shortVersion = "";
 
                 try {
                     output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :ApplicationProperties:CFBundleVersion", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
+                    returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getPlistBuddyPath(), "-c", "Print :ApplicationProperties:CFBundleVersion", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
                     if (returnCode == 0) {
                         version = output.toString().trim();
                     }
 
                     output.reset();
-                    returnCode = launcher.launch().envs(envs).cmds("/usr/libexec/PlistBuddy", "-c", "Print :ApplicationProperties:CFBundleShortVersionString", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
+                    returnCode = launcher.launch().envs(envs).cmds(getGlobalConfiguration().getPlistBuddyPath(), "-c", "Print :ApplicationProperties:CFBundleShortVersionString", archive.absolutize().child("Info.plist").getRemote()).stdout(output).pwd(projectRoot).join();
                     if (returnCode == 0) {
                         shortVersion = output.toString().trim();
                     }
@@ -2070,6 +2304,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                 }
 
                 // also zip up the symbols, if present
+                xcodeAction.startPhase("zipDSYM");
                 listener.getLogger().println(Messages.XCodeBuilder_ArchivingDSYM());
                 List<FilePath> dSYMs = archive.absolutize().child("dSYMs").list(new DSymFileFilter());
                 if (dSYMs == null || dSYMs.isEmpty()) {
@@ -2088,7 +2323,7 @@ public class XCodeBuilder extends Builder implements SimpleBuildStep {
                                 .envs(envs)
                                 .stdout(listener)
                                 .pwd(buildDirectory)
-                                .cmds("ditto",
+                                .cmds(getGlobalConfiguration().getDittoPath(),
                                         "-c",
                                         "-k",
                                         "--keepParent",
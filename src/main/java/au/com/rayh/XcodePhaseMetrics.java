@@ -0,0 +1,31 @@
+package au.com.rayh;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.MetricRegistry;
+import jenkins.metrics.api.Metrics;
+import jenkins.model.Jenkins;
+
+/**
+ * Records the durations of the phases of the xcodeBuild step as timers of the metrics plugin, named xcode.phase.NAME,
+ * so that their percentiles over all the builds can be followed. Nothing is recorded if the plugin is not installed.
+ */
+final class XcodePhaseMetrics {
+    private XcodePhaseMetrics() {
+    }
+
+    static void update(String phase, long nanos) {
+        Jenkins jenkins = Jenkins.getInstance();
+        if ( jenkins == null || jenkins.getPlugin("metrics") == null ) {
+            return;
+        }
+        Timers.update(phase, nanos);
+    }
+
+    // Only loaded when the metrics plugin is installed, since it links against its classes.
+    private static final class Timers {
+        static void update(String phase, long nanos) {
+            Metrics.metricRegistry().timer(MetricRegistry.name("xcode", "phase", phase)).update(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -1,20 +1,101 @@
 package au.com.rayh;
 
 //import org.kohsuke.stapler.DataBoundConstructor;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import javax.annotation.CheckForNull;
+
+/**
+ * The application, extension and test targets of an Xcode project.
+ * A project read from {@link XcodeProjectCache} is a view of the encoded project: a target is decoded the first time
+ * it is asked for with {@link #getTarget(String)}, and its build configurations the first time they are asked for
+ * with {@link ProjectTarget#getBuildConfiguration(String)}, so a build that needs one configuration of each target
+ * does not decode the others.
+ */
 public class XcodeProject {
- 
+
     //public String uuid;
     //public String name;
     //public String file;
+    /**
+     * The targets decoded so far, by name; all of them for a project returned by {@link XcodeProjectParser#parseXcodeProject(hudson.FilePath)}.
+     */
     public HashMap<String, ProjectTarget> projectTarget;
+    private final List<String> targetNames;
+    // Where the targets not decoded yet start in the encoded project.
+    private final Map<String, Integer> encodedTargets;
+    private final ByteBuffer encoded;
 
     XcodeProject() {
 	//uuid = null;
 	//name = null;
 	//file = null;
 	projectTarget = new HashMap<String, ProjectTarget>();
+	targetNames = null;
+	encodedTargets = Collections.emptyMap();
+	encoded = null;
+    }
+
+    XcodeProject(ByteBuffer encoded, LinkedHashMap<String, Integer> encodedTargets) {
+	projectTarget = new HashMap<String, ProjectTarget>();
+	this.targetNames = new ArrayList<String>(encodedTargets.keySet());
+	this.encodedTargets = encodedTargets;
+	this.encoded = encoded;
+    }
+
+    /**
+     * @return the names of all the targets, decoded or not
+     * @since 2.0.16
+     */
+    public synchronized List<String> getTargetNames() {
+	if ( targetNames == null ) {
+	    return new ArrayList<String>(projectTarget.keySet());
+	}
+	return Collections.unmodifiableList(targetNames);
+    }
+
+    /**
+     * @param name the name of a target
+     * @return the target, or null if the project has no such application, extension or test target
+     * @since 2.0.16
+     */
+    @CheckForNull
+    public synchronized ProjectTarget getTarget(String name) {
+	ProjectTarget target = projectTarget.get(name);
+	Integer offset = encodedTargets.remove(name);
+	if ( target == null && offset != null ) {
+	    target = XcodeProjectCache.decodeTarget(encoded, offset);
+	    projectTarget.put(name, target);
+	}
+	return target;
     }
-}
 
+    /**
+     * @param scheme a scheme of the project
+     * @return the target the scheme builds, or null if it is not an application, extension or test target of the project
+     * @since 2.0.16
+     */
+    @CheckForNull
+    public ProjectTarget getTarget(ProjectScheme scheme) {
+	return scheme.blueprintName == null ? null : getTarget(scheme.blueprintName);
+    }
+
+    /**
+     * Decodes all the targets and their build configurations into {@link #projectTarget}.
+     */
+    XcodeProject resolveAll() {
+	for ( String name : getTargetNames() ) {
+	    ProjectTarget target = getTarget(name);
+	    for ( String configuration : target.getBuildConfigurationNames() ) {
+		target.getBuildConfiguration(configuration);
+	    }
+	}
+	return this;
+    }
+}
@@ -0,0 +1,281 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The targets and build configurations of the project.pbxproj files parsed on a node, keyed by the SHA-256 of the file,
+ * so that a project that has not changed since the last build is not parsed again.
+ * It lives in the JVM of the node, for as long as the node stays connected.
+ * <p>
+ * Entries are kept encoded: a few hundred bytes per target rather than the parsed plist, and every build decodes
+ * a copy of its own of the targets it asks for, so a caller changing the public fields of the model does not change it
+ * for the next build.
+ * The least recently used entries are evicted once they take more than {@value #DEFAULT_MAX_BYTES} bytes,
+ * which can be changed with -Dau.com.rayh.XcodeProjectCache.maxBytes on the node.
+ */
+final class XcodeProjectCache {
+    static final String MAX_BYTES_PROPERTY = "au.com.rayh.XcodeProjectCache.maxBytes";
+    static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    private static final XcodeProjectCache INSTANCE = new XcodeProjectCache(Long.getLong(MAX_BYTES_PROPERTY, DEFAULT_MAX_BYTES));
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    XcodeProjectCache(long maxBytes) {
+	this.maxBytes = maxBytes;
+    }
+
+    static XcodeProjectCache getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * The file is mapped in memory, hashed and, if not in the cache, scanned in place by {@link PbxprojScanner}.
+     * @param pbxproj the project.pbxproj file
+     * @return the encoded project, which is null if the file could not be parsed, and how the cache was used
+     */
+    Lookup lookup(File pbxproj) throws IOException {
+	ByteBuffer content = map(pbxproj);
+	String digest = digest(content.duplicate());
+	byte[] encoded;
+	synchronized ( this ) {
+	    encoded = entries.get(digest);
+	    if ( encoded != null ) {
+		hits++;
+		return new Lookup(encoded, true, hits, misses, entries.size());
+	    }
+	    misses++;
+	}
+	// Parsed outside of the lock: two builds of a new project may both parse it, but other projects are not held up.
+	XcodeProject project = XcodeProjectParser.parseXcodeProject(content);
+	if ( project != null ) {
+	    encoded = encode(project);
+	}
+	synchronized ( this ) {
+	    if ( encoded != null ) {
+		put(digest, encoded);
+	    }
+	    return new Lookup(encoded, false, hits, misses, entries.size());
+	}
+    }
+
+    private void put(String digest, byte[] encoded) {
+	byte[] previous = entries.put(digest, encoded);
+	if ( previous != null ) {
+	    bytes -= previous.length;
+	}
+	bytes += encoded.length;
+	Iterator<Map.Entry<String, byte[]>> eldest = entries.entrySet().iterator();
+	while ( bytes > maxBytes && eldest.hasNext() ) {
+	    bytes -= eldest.next().getValue().length;
+	    eldest.remove();
+	}
+    }
+
+    synchronized int size() {
+	return entries.size();
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+	try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+	    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+	}
+    }
+
+    private static String digest(ByteBuffer content) throws IOException {
+	try {
+	    MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+	    sha256.update(content);
+	    StringBuilder hex = new StringBuilder(64);
+	    for ( byte b : sha256.digest() ) {
+		hex.append(String.format("%02x", b));
+	    }
+	    return hex.toString();
+	}
+	catch ( NoSuchAlgorithmException ex ) {
+	    throw new IOException(ex);
+	}
+    }
+
+    /**
+     * Encodes the targets and their build configurations, each preceded by its name and length,
+     * so that a project can be decoded one target or configuration at a time.
+     */
+    static byte[] encode(XcodeProject project) throws IOException {
+	ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+	DataOutputStream out = new DataOutputStream(buffer);
+	List<String> targetNames = project.getTargetNames();
+	out.writeInt(targetNames.size());
+	for ( String targetName : targetNames ) {
+	    ProjectTarget target = project.getTarget(targetName);
+	    ByteArrayOutputStream targetBuffer = new ByteArrayOutputStream();
+	    DataOutputStream targetOut = new DataOutputStream(targetBuffer);
+	    writeString(targetOut, target.uuid);
+	    writeString(targetOut, target.productType);
+	    writeString(targetOut, target.provisioningStyle);
+	    writeString(targetOut, target.testTargetID);
+	    writeString(targetOut, target.defaultConfigurationName);
+	    List<String> configurationNames = target.getBuildConfigurationNames();
+	    targetOut.writeInt(configurationNames.size());
+	    for ( String configurationName : configurationNames ) {
+		BuildConfiguration configuration = target.getBuildConfiguration(configurationName);
+		ByteArrayOutputStream configurationBuffer = new ByteArrayOutputStream();
+		DataOutputStream configurationOut = new DataOutputStream(configurationBuffer);
+		writeString(configurationOut, configuration.uuid);
+		writeString(configurationOut, configuration.name);
+		writeString(configurationOut, configuration.bundleIdentifier);
+		writeString(configurationOut, configuration.infoPlistFile);
+		writeString(configurationOut, configuration.developmentTeamId);
+		writeString(configurationOut, configuration.provisioningProfileUUID);
+		writeString(configurationOut, configuration.provisioningProfileSpecifier);
+		writeString(configurationOut, configuration.productName);
+		configurationOut.flush();
+		writeRecord(targetOut, configurationName, configurationBuffer);
+	    }
+	    targetOut.flush();
+	    writeRecord(out, targetName, targetBuffer);
+	}
+	out.flush();
+	return buffer.toByteArray();
+    }
+
+    private static void writeRecord(DataOutputStream out, String name, ByteArrayOutputStream record) throws IOException {
+	writeString(out, name);
+	out.writeInt(record.size());
+	record.writeTo(out);
+    }
+
+    /**
+     * @return the project, of which only the names of the targets are decoded
+     */
+    static XcodeProject decode(byte[] encoded) {
+	ByteBuffer in = ByteBuffer.wrap(encoded).asReadOnlyBuffer();
+	return new XcodeProject(in, readRecords(in));
+    }
+
+    static ProjectTarget decodeTarget(ByteBuffer encoded, int offset) {
+	ByteBuffer in = encoded.duplicate();
+	in.position(offset);
+	String uuid = readString(in);
+	String productType = readString(in);
+	String provisioningStyle = readString(in);
+	String testTargetID = readString(in);
+	String defaultConfigurationName = readString(in);
+	ProjectTarget target = new ProjectTarget(encoded, readRecords(in));
+	target.uuid = uuid;
+	target.productType = productType;
+	target.provisioningStyle = provisioningStyle;
+	target.testTargetID = testTargetID;
+	target.defaultConfigurationName = defaultConfigurationName;
+	return target;
+    }
+
+    static BuildConfiguration decodeConfiguration(ByteBuffer encoded, int offset) {
+	ByteBuffer in = encoded.duplicate();
+	in.position(offset);
+	BuildConfiguration configuration = new BuildConfiguration();
+	configuration.uuid = readString(in);
+	configuration.name = readString(in);
+	configuration.bundleIdentifier = readString(in);
+	configuration.infoPlistFile = readString(in);
+	configuration.developmentTeamId = readString(in);
+	configuration.provisioningProfileUUID = readString(in);
+	configuration.provisioningProfileSpecifier = readString(in);
+	configuration.productName = readString(in);
+	return configuration;
+    }
+
+    /**
+     * @return where each of the records that follow starts, by name, skipping over their content
+     */
+    private static LinkedHashMap<String, Integer> readRecords(ByteBuffer in) {
+	LinkedHashMap<String, Integer> offsets = new LinkedHashMap<String, Integer>();
+	for ( int records = in.getInt(); records > 0; records-- ) {
+	    String name = readString(in);
+	    int length = in.getInt();
+	    offsets.put(name, in.position());
+	    in.position(in.position() + length);
+	}
+	return offsets;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+	if ( value == null ) {
+	    out.writeInt(-1);
+	    return;
+	}
+	byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+	out.writeInt(bytes.length);
+	out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+	int length = in.getInt();
+	if ( length < 0 ) {
+	    return null;
+	}
+	byte[] bytes = new byte[length];
+	in.get(bytes);
+	return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * What the node sends back to the controller: the encoded project and the counters of the cache.
+     */
+    static final class Lookup implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private final byte[] encoded;
+	private final boolean hit;
+	private final long hits;
+	private final long misses;
+	private final int entries;
+
+	Lookup(byte[] encoded, boolean hit, long hits, long misses, int entries) {
+	    this.encoded = encoded;
+	    this.hit = hit;
+	    this.hits = hits;
+	    this.misses = misses;
+	    this.entries = entries;
+	}
+
+	/**
+	 * @return a copy of the project of its own, or null if it could not be parsed
+	 */
+	XcodeProject getProject() {
+	    return encoded == null ? null : decode(encoded);
+	}
+
+	boolean isHit() {
+	    return hit;
+	}
+
+	long getHits() {
+	    return hits;
+	}
+
+	long getMisses() {
+	    return misses;
+	}
+
+	int getEntries() {
+	    return entries;
+	}
+    }
+}
@@ -2,27 +2,43 @@ package au.com.rayh;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.text.ParseException;
 import java.io.ByteArrayInputStream;
 import hudson.FilePath;
+import org.apache.commons.lang.StringUtils;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import javax.annotation.CheckForNull;
+import jenkins.MasterToSlaveFileCallable;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 //import javax.xml.parsers.ParserException;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import java.lang.InterruptedException;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
 import com.dd.plist.NSDictionary; 
@@ -45,47 +61,104 @@ public class XcodeProjectParser {
      * @return the list of schema files found in the project directory and the result (ProjectScheme) of analysis of the contents as a HashMap. If analysis fails, it is empty
      */
     public static HashMap<String, ProjectScheme> listXcodeSchemes(FilePath projectLocation) {
-	String currentUser = System.getProperty("user.name") ;
-	HashMap<String, ProjectScheme> schemeList = new HashMap<String, ProjectScheme>();
-	List<FilePath> schemeFilesDirList = new ArrayList<FilePath>();
 	try {
-	    if ( projectLocation.child("xcuserdata/" + currentUser + ".xcuserdatad/xcschemes").exists() ) {
-		schemeFilesDirList.add(projectLocation.child("xcuserdata/" + currentUser + ".xcuserdatad/xcschemes"));
-	    }
-	    if ( projectLocation.child("xcshareddata/xcschemes").exists() ) {
-		schemeFilesDirList.add(projectLocation.child("xcshareddata/xcschemes"));
-	    }
+	    return listXcodeSchemes(projectLocation.getParent(), Collections.singletonList(projectLocation.getName())).get(projectLocation.getName());
 	}
 	catch ( IOException ex ) {
 	    ex.printStackTrace();
-	    schemeList = null;
 	}
 	catch ( InterruptedException ex ) {
 	    ex.printStackTrace();
-	    schemeList = null;
 	}
-	for ( FilePath schemeFilesDir : schemeFilesDirList ) {
+	return null;
+    }
+
+    /**
+     * Retrieve the Xcode scheme files of all the projects of a workspace, in a single call to the node they are on,
+     * which parses them in parallel with one thread per processor or as many as the system property {@value #THREADS_PROPERTY} sets on the node.
+     * @param projectRoot the directory the project locations are relative to
+     * @param projectLocations Xcode project file locations (directory paths), such as those returned by {@link #parseXcodeWorkspace(FilePath)}
+     * @return for each project, in the order given, the schemes as returned by {@link #listXcodeSchemes(FilePath)}, null if they could not be listed
+     * @since 2.0.16
+     */
+    public static LinkedHashMap<String, HashMap<String, ProjectScheme>> listXcodeSchemes(FilePath projectRoot, List<String> projectLocations) throws IOException, InterruptedException {
+	return projectRoot.act(new ListXcodeSchemes(projectLocations, System.getProperty("user.name")));
+    }
+
+    static final String THREADS_PROPERTY = "au.com.rayh.XcodeProjectParser.threads";
+
+    private static final class ListXcodeSchemes extends MasterToSlaveFileCallable<LinkedHashMap<String, HashMap<String, ProjectScheme>>> {
+	private static final long serialVersionUID = 1L;
+	private final List<String> projectLocations;
+	// The user whose schemes are listed, that of the controller as it always has been.
+	private final String currentUser;
+
+	ListXcodeSchemes(List<String> projectLocations, String currentUser) {
+	    this.projectLocations = new ArrayList<String>(projectLocations);
+	    this.currentUser = currentUser;
+	}
+
+	@Override
+	public LinkedHashMap<String, HashMap<String, ProjectScheme>> invoke(File projectRoot, VirtualChannel channel) throws IOException, InterruptedException {
+	    // The scheme files of each project, the user's before the shared ones, which replace them.
+	    LinkedHashMap<String, List<File>> schemeFiles = new LinkedHashMap<String, List<File>>();
+	    for ( String location : projectLocations ) {
+		File projectLocation = new File(projectRoot, location);
+		List<File> files = new ArrayList<File>();
+		for ( File schemeFilesDir : new File[] { new File(projectLocation, "xcuserdata/" + currentUser + ".xcuserdatad/xcschemes"), new File(projectLocation, "xcshareddata/xcschemes") } ) {
+		    if ( schemeFilesDir.exists() ) {
+			File[] listed = schemeFilesDir.listFiles(new XcodeSchemeFileFilter());
+			if ( listed == null ) {
+			    files = null;
+			    break;
+			}
+			files.addAll(Arrays.asList(listed));
+		    }
+		}
+		schemeFiles.put(location, files);
+	    }
+
+	    int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+	    // Once the queue is full the caller parses the scheme itself.
+	    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+		    new ArrayBlockingQueue<Runnable>(threads), new NamingThreadFactory(new DaemonThreadFactory(), "XcodeProjectParser"),
+		    new ThreadPoolExecutor.CallerRunsPolicy());
 	    try {
-		List<FilePath> files = schemeFilesDir.list(new XcodeSchemeFileFilter());
-		if ( files == null ) {
-		    return null;
+		HashMap<File, Future<ProjectScheme>> schemes = new HashMap<File, Future<ProjectScheme>>();
+		for ( List<File> files : schemeFiles.values() ) {
+		    if ( files == null ) {
+			continue;
+		    }
+		    for ( final File file : files ) {
+			schemes.put(file, executor.submit(new Callable<ProjectScheme>() {
+			    @Override
+			    public ProjectScheme call() {
+				return parseXcodeScheme(new FilePath(file));
+			    }
+			}));
+		    }
 		}
-		for ( FilePath file : files ) {
-		    ProjectScheme scheme = parseXcodeScheme(file);
-		    String schemeName = file.getBaseName().replaceAll(".xcscheme$", "");
-		    schemeList.put(schemeName, scheme);
+		LinkedHashMap<String, HashMap<String, ProjectScheme>> projectSchemes = new LinkedHashMap<String, HashMap<String, ProjectScheme>>();
+		for ( Map.Entry<String, List<File>> project : schemeFiles.entrySet() ) {
+		    HashMap<String, ProjectScheme> schemeList = null;
+		    if ( project.getValue() != null ) {
+			schemeList = new HashMap<String, ProjectScheme>();
+			for ( File file : project.getValue() ) {
+			    String schemeName = file.getName().replaceAll("\\.xcscheme$", "");
+			    schemeList.put(schemeName, schemes.get(file).get());
+			}
+		    }
+		    projectSchemes.put(project.getKey(), schemeList);
 		}
+		return projectSchemes;
 	    }
-	    catch ( IOException ex ) {
-		ex.printStackTrace();
-		schemeList = null;
+	    catch ( ExecutionException ex ) {
+		throw new IOException(ex.getCause());
 	    }
-	    catch ( InterruptedException ex ) {
-		ex.printStackTrace();
-		schemeList = null;
+	    finally {
+		executor.shutdownNow();
 	    }
 	}
-	return schemeList;
     }
 
     /**
@@ -93,156 +166,125 @@ public class XcodeProjectParser {
      * @return analysis result of Xcode projectscheme file. If analysis fails, it is null
      */
     public static ProjectScheme parseXcodeScheme(FilePath schemeFile) {
+	try (InputStream in = schemeFile.read()) {
+	    return parseXcodeScheme(in);
+	}
+	catch ( XMLStreamException ex ) {
+	    ex.printStackTrace();
+	}
+	catch ( IOException ex ) {
+	    ex.printStackTrace();
+	}
+        catch ( InterruptedException ex ) {
+            ex.printStackTrace();
+        }
+	return null;
+    }
+
+    /**
+     * Reads the target from the build action, which Xcode writes first, and stops at its end
+     * without reading the test, launch, profile, analyze and archive actions.
+     * @param in the content of an .xcscheme file
+     * @return analysis result of Xcode projectscheme file
+     */
+    static ProjectScheme parseXcodeScheme(InputStream in) throws XMLStreamException {
 	ProjectScheme projectScheme = new ProjectScheme();
+	XMLStreamReader reader = XmlStreams.createReader(in);
 	try {
-	    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-	    String FEATURE = null;
-	    FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
-	    factory.setFeature(FEATURE, true);
-	    FEATURE = "http://xml.org/sax/features/external-general-entities";
-	    factory.setFeature(FEATURE, false);
-	    FEATURE = "http://xml.org/sax/features/external-parameter-entities";
-	    factory.setFeature(FEATURE, false);
-	    FEATURE = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
-	    factory.setFeature(FEATURE, false);
-	    factory.setXIncludeAware(false);
-	    factory.setExpandEntityReferences(false);
-
-	    DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-	    Document document = documentBuilder.parse(schemeFile.read());
-
-	    Element root = document.getDocumentElement();
-	    if ( root.getNodeName().equals("Scheme") ) {
-		NodeList schemeNodes = root.getChildNodes();
-		for ( int i = 0; i < schemeNodes.getLength(); i++ ) {
-		    Node node = schemeNodes.item(i);
-		    if ( node.getNodeType() == Node.ELEMENT_NODE ) {
-			Element element = (Element)node;
-			if ( element.getNodeName().equals("BuildAction") ) {
-			    //projectScheme.parallelizeBuildables = element.getAttribute("parallelizeBuildables");
-			    //projectScheme.buildImplicitDependencies = element.getAttribute("buildImplicitDependencies");
-			    NodeList buildActionNodes = element.getChildNodes();
-			    for ( int j = 0; j < buildActionNodes.getLength(); j++ ) {
-				node = buildActionNodes.item(j);
-				if ( node.getNodeType() == Node.ELEMENT_NODE ) {
-				    element = (Element)node;
-				    if ( element.getNodeName().equals("BuildActionEntries") ) {
-					NodeList buildActionEntriesNodes = element.getChildNodes();
-					for ( int k = 0; k < buildActionEntriesNodes.getLength(); k++ ) {
-					    node = buildActionEntriesNodes.item(k);
-					    if ( node.getNodeType() == Node.ELEMENT_NODE ) {
-						element = (Element)node;
-						if ( element.getNodeName().equals("BuildActionEntry") ) {
-						    //projectScheme.buildForTesting = element.getAttribute("buildForTesting");
-						    //projectScheme.buildForRunning = element.getAttribute("buildForRunning");
-						    //projectScheme.buildForProfiling = element.getAttribute("buildForProfiling");
-						    //projectScheme.buildForArchiving = element.getAttribute("buildForArchiving");
-						    //projectScheme.buildForAnalyzing = element.getAttribute("buildForAnalyzing");
-						    NodeList buildActionEntryNodes = element.getChildNodes();
-						    for ( int l = 0; l < buildActionEntryNodes.getLength(); l++ ) {
-							node = buildActionEntryNodes.item(l);
-							if ( node.getNodeType() == Node.ELEMENT_NODE ) {
-							    element = (Element)node;
-							    if ( element.getNodeName().equals("BuildableReference") ) {
-								//projectScheme.buildableIdentifier = element.getAttribute("BuildableIdentifier");
-								//projectScheme.blueprintIdentifier = element.getAttribute("BlueprintIdentifier");
-								//projectScheme.buildableName = element.getAttribute("BuildableName");
-								projectScheme.blueprintName = element.getAttribute("BlueprintName");
-								projectScheme.referencedContainer = element.getAttribute("ReferencedContainer");
-							    }
-							}
-						    }
-						}
-					    }
-					}
-				    }
-				}
-			    }
+	    if ( !XmlStreams.rootElement(reader).equals("Scheme") ) {
+		return projectScheme;
+	    }
+	    // How deep below Scheme the reader is, and how many of the elements it is in are on the way to the BuildableReference.
+	    int depth = 0;
+	    int matched = 0;
+	    while ( reader.hasNext() ) {
+		int event = reader.next();
+		if ( event == XMLStreamConstants.START_ELEMENT ) {
+		    depth++;
+		    if ( matched == depth - 1 && depth <= BUILDABLE_REFERENCE_PATH.length && reader.getLocalName().equals(BUILDABLE_REFERENCE_PATH[depth - 1]) ) {
+			matched = depth;
+			if ( depth == BUILDABLE_REFERENCE_PATH.length ) {
+			    // The last entry of the build action is used.
+			    projectScheme.blueprintName = StringUtils.defaultString(reader.getAttributeValue(null, "BlueprintName"));
+			    projectScheme.referencedContainer = StringUtils.defaultString(reader.getAttributeValue(null, "ReferencedContainer"));
 			}
 		    }
 		}
+		else if ( event == XMLStreamConstants.END_ELEMENT ) {
+		    if ( depth == 0 || depth == 1 && matched == 1 ) {
+			// The end of the scheme or of its build action.
+			break;
+		    }
+		    if ( matched == depth ) {
+			matched--;
+		    }
+		    depth--;
+		}
 	    }
 	}
-	catch (SAXException ex) {
-	    ex.printStackTrace();
-	    projectScheme = null;
+	finally {
+	    reader.close();
 	}
-	catch (IOException ex) {
+	return projectScheme;
+    }
+
+    private static final String[] BUILDABLE_REFERENCE_PATH = { "BuildAction", "BuildActionEntries", "BuildActionEntry", "BuildableReference" };
+
+    /**
+     * @param workspaceFileLocation Xcode workspace file location (directory)
+     * @return list of project files obtained as a result of analyzing workspaceFile. If analysis fails, it is empty
+     */
+    public static List<String> parseXcodeWorkspace(FilePath workspaceFileLocation) {
+	try (InputStream in = workspaceFileLocation.child("contents.xcworkspacedata").read()) {
+	    return parseXcodeWorkspace(in);
+	}
+	catch ( XMLStreamException ex ) {
 	    ex.printStackTrace();
-	    projectScheme = null;
 	}
-	catch (ParserConfigurationException ex) {
+	catch ( IOException ex ) {
 	    ex.printStackTrace();
-	    projectScheme = null;
 	}
         catch ( InterruptedException ex ) {
             ex.printStackTrace();
-            projectScheme = null;
         }
-	return projectScheme;
+	return null;
     }
-    
+
     /**
-     * @param workspaceFileLocation Xcode workspace file location (directory)
-     * @return list of project files obtained as a result of analyzing workspaceFile. If analysis fails, it is empty
+     * @param in the content of a contents.xcworkspacedata file
+     * @return the projects referred to by the workspace, relative to it
      */
-    public static List<String> parseXcodeWorkspace(FilePath workspaceFileLocation) {
+    static List<String> parseXcodeWorkspace(InputStream in) throws XMLStreamException {
 	List<String> projectList = new ArrayList<>();
+	XMLStreamReader reader = XmlStreams.createReader(in);
 	try {
-	    FilePath workspaceFilePath = workspaceFileLocation.child("contents.xcworkspacedata");
-	    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-
-	    String FEATURE = null;
-	    FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
-	    factory.setFeature(FEATURE, true);
-	    FEATURE = "http://xml.org/sax/features/external-general-entities";
-	    factory.setFeature(FEATURE, false);
-	    FEATURE = "http://xml.org/sax/features/external-parameter-entities";
-	    factory.setFeature(FEATURE, false);
-	    FEATURE = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
-	    factory.setFeature(FEATURE, false);
-	    factory.setXIncludeAware(false);
-	    factory.setExpandEntityReferences(false);
-
-	    DocumentBuilder documentBuilder = factory.newDocumentBuilder();
-	    Document document = documentBuilder.parse(workspaceFilePath.read());
-
-	    Element root = document.getDocumentElement();
-	    if ( root.getNodeName().equals("Workspace") ) {
-		NodeList rootChildren = root.getChildNodes();
-
-		for ( int i = 0; i < rootChildren.getLength(); i++ ) {
-		    Node node = rootChildren.item(i);
-		    if ( node.getNodeType() == Node.ELEMENT_NODE ) {
-			Element element = (Element)node;
-			if ( element.getNodeName().equals("FileRef") ) {
-			    String projectLocation = element.getAttribute("location");
-			    if ( projectLocation.startsWith("group:") ) {
-				projectLocation = projectLocation.replaceAll("^group:", "");
-				projectList.add(projectLocation);
-			    }
+	    if ( !XmlStreams.rootElement(reader).equals("Workspace") ) {
+		return projectList;
+	    }
+	    int depth = 0;
+	    while ( reader.hasNext() ) {
+		int event = reader.next();
+		if ( event == XMLStreamConstants.START_ELEMENT ) {
+		    depth++;
+		    // Only the projects at the top of the workspace, not those in groups.
+		    if ( depth == 1 && reader.getLocalName().equals("FileRef") ) {
+			String projectLocation = StringUtils.defaultString(reader.getAttributeValue(null, "location"));
+			if ( projectLocation.startsWith("group:") ) {
+			    projectList.add(projectLocation.substring("group:".length()));
 			}
 		    }
 		}
+		else if ( event == XMLStreamConstants.END_ELEMENT ) {
+		    if ( depth == 0 ) {
+			break;
+		    }
+		    depth--;
+		}
 	    }
 	}
-	catch (SAXException ex) {
-	    ex.printStackTrace();
-	    projectList = null;
-	}
-	catch (IOException ex) {
-	    ex.printStackTrace();
-	    projectList = null;
-	}
-	catch (ParserConfigurationException ex) {
-	    ex.printStackTrace();
-	    projectList = null;
+	finally {
+	    reader.close();
 	}
-        catch ( InterruptedException ex ) {
-            ex.printStackTrace();
-            projectList = null;
-        }
 	return projectList;
     }
 
@@ -270,24 +312,72 @@ public class XcodeProjectParser {
      * @return analysis result of Xcode project file. If analysis fails, it is null
      */
     public static XcodeProject parseXcodeProject(FilePath projectLocation) {
+	XcodeProject project = parseXcodeProject(projectLocation, null);
+	return project == null ? null : project.resolveAll();
+    }
+
+    /**
+     * The project.pbxproj is parsed on the node it is on, which keeps the result in {@link XcodeProjectCache}
+     * until the file changes, and only the targets and build configurations are sent back.
+     * @param projectLocation Xcode project file location (directory)
+     * @param logger where to report whether the project came from the cache, if not null
+     * @return analysis result of Xcode project file, whose targets and build configurations are decoded as they are
+     * asked for with {@link XcodeProject#getTarget(String)} and {@link ProjectTarget#getBuildConfiguration(String)}.
+     * If analysis fails, it is null
+     * @since 2.0.16
+     */
+    public static XcodeProject parseXcodeProject(FilePath projectLocation, @CheckForNull PrintStream logger) {
+	try {
+	    XcodeProjectCache.Lookup lookup = projectLocation.act(new ParseXcodeProject());
+	    if ( logger != null ) {
+		String pbxproj = projectLocation.child("project.pbxproj").getRemote();
+		if ( lookup.isHit() ) {
+		    logger.println(Messages.XcodeProjectCache_Hit(pbxproj, lookup.getHits(), lookup.getMisses(), lookup.getEntries()));
+		}
+		else {
+		    logger.println(Messages.XcodeProjectCache_Miss(pbxproj, lookup.getHits(), lookup.getMisses(), lookup.getEntries()));
+		}
+	    }
+	    return lookup.getProject();
+	}
+	catch ( IOException ex ) {
+	    ex.printStackTrace();
+	}
+	catch ( InterruptedException ex ) {
+	    ex.printStackTrace();
+	}
+	return null;
+    }
+
+    private static final class ParseXcodeProject extends MasterToSlaveFileCallable<XcodeProjectCache.Lookup> {
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public XcodeProjectCache.Lookup invoke(File projectLocation, VirtualChannel channel) throws IOException, InterruptedException {
+	    return XcodeProjectCache.getInstance().lookup(new File(projectLocation, "project.pbxproj"));
+	}
+    }
+
+    /**
+     * @param content the content of a project.pbxproj, of which only the targets and their build configurations are decoded
+     * @return analysis result of Xcode project file. If analysis fails, it is null
+     */
+    static XcodeProject parseXcodeProject(ByteBuffer content) {
 	XcodeProject project = new XcodeProject();
-	FilePath xcodeProjectFile = projectLocation.child("project.pbxproj");
 	try {
-	    NSDictionary rootDict = (NSDictionary)PropertyListParser.parse(xcodeProjectFile.read());
-	    String rootObjectsUUID = rootDict.objectForKey("rootObject").toString();
-	    NSDictionary objectsDict = ((NSDictionary)rootDict.objectForKey("objects"));
-	    NSDictionary pbxProjectSectionDict = ((NSDictionary)objectsDict.objectForKey(rootObjectsUUID));
-	    NSObject[] projectTargetUUIDs = ((NSArray)pbxProjectSectionDict.objectForKey("targets")).getArray();
+	    PbxprojScanner objects = PbxprojScanner.open(content);
+	    Map<String, Object> pbxProjectSectionDict = objects.getObject(objects.getRootObject());
+	    List<Object> projectTargetUUIDs = PbxprojScanner.array(pbxProjectSectionDict.get("targets"));
 	    // In case Project has buildConfigurationList.
 	    // Parse each targets.
-	    for ( NSObject projectTargetUUID:projectTargetUUIDs ) {
+	    for ( Object projectTargetUUID:projectTargetUUIDs ) {
 		ProjectTarget target = new ProjectTarget();
-		NSDictionary projectTargetDict = ((NSDictionary)objectsDict.objectForKey(projectTargetUUID.toString()));
+		Map<String, Object> projectTargetDict = objects.getObject(projectTargetUUID.toString());
 		target.uuid = projectTargetUUID.toString();
-		String targetName = projectTargetDict.objectForKey("name").toString();
+		String targetName = projectTargetDict.get("name").toString();
 		// Target has buildConfigurationList.
-		String buildConfigurationListUUID = projectTargetDict.objectForKey("buildConfigurationList").toString();
-		target.productType = projectTargetDict.objectForKey("productType").toString();
+		String buildConfigurationListUUID = projectTargetDict.get("buildConfigurationList").toString();
+		target.productType = projectTargetDict.get("productType").toString();
 		if ( target.productType.equals("com.apple.product-type.application") ||
 		     target.productType.equals("com.apple.product-type.bundle.unit-test") ||
 		     target.productType.equals("com.apple.product-type.bundle.ui-testing") ||
@@ -295,28 +385,28 @@ public class XcodeProjectParser {
 		     target.productType.equals("com.apple.product-type.application.watchapp") ||
 		     target.productType.equals("com.apple.product-type.watchkit2-extension") ||
 		     target.productType.equals("com.apple.product-type.application.watchapp2") ) {
-		    NSDictionary attributesDict = ((NSDictionary)pbxProjectSectionDict.objectForKey("attributes"));
-		    NSDictionary targetAttributesDict = ((NSDictionary)attributesDict.objectForKey("TargetAttributes"));
-		    NSDictionary attributeDict = ((NSDictionary)targetAttributesDict.objectForKey(target.uuid));
-		    if ( attributeDict.objectForKey("ProvisioningStyle") != null ) {
-			target.provisioningStyle = attributeDict.objectForKey("ProvisioningStyle").toString();
+		    Map<String, Object> attributesDict = PbxprojScanner.dictionary(pbxProjectSectionDict.get("attributes"));
+		    Map<String, Object> targetAttributesDict = PbxprojScanner.dictionary(attributesDict.get("TargetAttributes"));
+		    Map<String, Object> attributeDict = PbxprojScanner.dictionary(targetAttributesDict.get(target.uuid));
+		    if ( attributeDict.get("ProvisioningStyle") != null ) {
+			target.provisioningStyle = attributeDict.get("ProvisioningStyle").toString();
 		    }
 		    else {
 			// Default code signing style is "Automatic"
 			target.provisioningStyle = "Automatic";
 		    }
-                    if ( attributeDict.objectForKey("TestTargetID") != null ) {
-                        target.testTargetID = attributeDict.objectForKey("TestTargetID").toString();
+                    if ( attributeDict.get("TestTargetID") != null ) {
+                        target.testTargetID = attributeDict.get("TestTargetID").toString();
                     }
-		    NSDictionary buildConfigurationList = ((NSDictionary)objectsDict.objectForKey(buildConfigurationListUUID));
+		    Map<String, Object> buildConfigurationList = objects.getObject(buildConfigurationListUUID);
 		    if ( buildConfigurationList != null ) {
-			if ( buildConfigurationList.objectForKey("defaultConfigurationName") != null ) {
-			    target.defaultConfigurationName = buildConfigurationList.objectForKey("defaultConfigurationName").toString();
+			if ( buildConfigurationList.get("defaultConfigurationName") != null ) {
+			    target.defaultConfigurationName = buildConfigurationList.get("defaultConfigurationName").toString();
 			}
-			NSObject[] buildConfigurationUUIDs = ((NSArray)buildConfigurationList.objectForKey("buildConfigurations")).getArray();
+			List<Object> buildConfigurationUUIDs = PbxprojScanner.array(buildConfigurationList.get("buildConfigurations"));
 			// Parse each build configurations.
-			for ( NSObject buildConfigurationUUID : buildConfigurationUUIDs ) {
-			    BuildConfiguration buildConfiguration = new BuildConfiguration(objectsDict, buildConfigurationUUID.toString(), target.provisioningStyle.equals("Automatic"));
+			for ( Object buildConfigurationUUID : buildConfigurationUUIDs ) {
+			    BuildConfiguration buildConfiguration = new BuildConfiguration(objects, buildConfigurationUUID.toString(), target.provisioningStyle.equals("Automatic"));
 			    target.buildConfiguration.put(buildConfiguration.name, buildConfiguration);
 			}
 		    }
@@ -346,10 +436,6 @@ public class XcodeProjectParser {
             ex.printStackTrace();
             project = null;
         }
-	catch ( InterruptedException ex ) {
-	    ex.printStackTrace();
-	    project = null;
-	}
 	return project;
     }
 }
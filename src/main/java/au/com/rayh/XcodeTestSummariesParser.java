@@ -1,27 +1,40 @@
 package au.com.rayh;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.text.ParseException;
 import hudson.FilePath;
+import hudson.remoting.VirtualChannel;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.MasterToSlaveFileCallable;
 
 import com.dd.plist.NSDictionary; 
 import com.dd.plist.NSArray;
 import com.dd.plist.NSNumber;
 import com.dd.plist.NSObject;
-import com.dd.plist.PropertyListParser;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
 
 import au.com.rayh.report.TestCase;
 import au.com.rayh.report.TestError;
 import au.com.rayh.report.TestFailure;
 import au.com.rayh.report.TestSuite;
+import au.com.rayh.report.TestSuiteWriter;
 
 /**
  * Summary of test results output by xcodebuild Analyze "TestSummaries.plist" to generate a JUnit compatible XML file.
@@ -29,22 +42,39 @@ import au.com.rayh.report.TestSuite;
  */
 public class XcodeTestSummariesParser {
     private FilePath testReportsDir;
+    private final TestSummariesResult result = new TestSummariesResult();
+    // Writes the reports of each testable when set, instead of the thread reading the plist.
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<String, Object> reportLocks = new ConcurrentHashMap<String, Object>();
     //private static Pattern ASSERTION_FAILURE = Pattern.compile("(Assertion Failure: .*?)\\{\\(\\n(.*?)\\n\\)\\}", Pattern.DOTALL);
     private static Pattern FAILED_MESSAGE = Pattern.compile("(failed: .*?)\\n\\((.*?)\\n\\)", Pattern.DOTALL);
 
     public XcodeTestSummariesParser(FilePath workspace) throws IOException, InterruptedException {
+	this(workspace, null);
+    }
+
+    /**
+     * @param workspace The workspace the test-reports directory is created in.
+     * @param executor Writes the reports of each testable while the next one is read, or null to write them on the calling thread.
+     */
+    public XcodeTestSummariesParser(FilePath workspace, ExecutorService executor) throws IOException, InterruptedException {
 	super();
 	testReportsDir = workspace.child("test-reports");
 	testReportsDir.mkdirs();
+	this.executor = executor;
     }
 
     private void writeTestReport(TestSuite currentTestSuite) throws IOException, InterruptedException,
             JAXBException {
-        try (OutputStream testReportOutputStream = outputForSuite(currentTestSuite)) {
-            JAXBContext jaxbContext = JAXBContext.newInstance(TestSuite.class);
-            Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.marshal(currentTestSuite, testReportOutputStream);
+        // Two testables can have suites of the same name, which must not be written to the same file at once.
+        Object lock = new Object();
+        Object existingLock = reportLocks.putIfAbsent(currentTestSuite.getName(), lock);
+        synchronized ( existingLock != null ? existingLock : lock ) {
+            try (OutputStream testReportOutputStream = outputForSuite(currentTestSuite)) {
+                TestSuiteWriter.write(currentTestSuite, testReportOutputStream);
+            }
         }
+        result.addSuite(currentTestSuite);
     }
 
     protected OutputStream outputForSuite(TestSuite currentTestSuite) throws IOException, InterruptedException {
@@ -56,24 +86,24 @@ public class XcodeTestSummariesParser {
 	    NSDictionary failureSummarie = (NSDictionary)object;
 	    boolean performanceFailure = ((NSNumber)failureSummarie.objectForKey("PerformanceFailure")).boolValue();
 	    if ( !performanceFailure ) {
-		TestFailure failure;
 		String message = failureSummarie.objectForKey("Message").toString();
-		Matcher m = FAILED_MESSAGE.matcher(message);
-		if ( m.matches() ) {
-		    String errorMessage = m.group(1);
-		    String stackTrace = m.group(2);
-		    failure = new TestFailure(errorMessage, stackTrace);
-		}
-		else {
-		    String fileName = failureSummarie.objectForKey("FileName").toString();
-		    String lineNumber = failureSummarie.objectForKey("LineNumber").toString();
-		    failure = new TestFailure(message + "\n at File: " + fileName + "\n Line number: " + lineNumber, "No stacktrace here.");
-		}
-		currentTestCase.getFailures().add(failure);
+		NSObject fileName = failureSummarie.objectForKey("FileName");
+		NSObject lineNumber = failureSummarie.objectForKey("LineNumber");
+		currentTestCase.getFailures().add(newFailure(message, String.valueOf(fileName), String.valueOf(lineNumber)));
 	    }
 	}
     }
 
+    private static TestFailure newFailure(String message, String fileName, String lineNumber) {
+	Matcher m = FAILED_MESSAGE.matcher(message);
+	if ( m.matches() ) {
+	    String errorMessage = m.group(1);
+	    String stackTrace = m.group(2);
+	    return new TestFailure(errorMessage, stackTrace);
+	}
+	return new TestFailure(message + "\n at File: " + fileName + "\n Line number: " + lineNumber, "No stacktrace here.");
+    }
+
     /*
     private static void addActivitySummaries(NSObject[] activitySummaries, TestCase currentTestCase) {
         for ( NSObject object:activitySummaries ) {
@@ -94,10 +124,12 @@ public class XcodeTestSummariesParser {
     */
 
     /**
+     * Add the results of the subtests to the parent test suite, and write its report once all of them are added.
      * @param tests An array of NSDictionaries containing the results of subtests.
      * @param parentTestSuite An instance of the parent test result including this subtests.
      */
     public void parseSubTests(NSObject[] tests, TestSuite parentTestSuite) throws ParseException, IOException, InterruptedException, JAXBException {
+	boolean hasTestCases = false;
 	for ( NSObject object:tests ) {
             NSDictionary test = (NSDictionary)object;
 	    Float duration = ((NSNumber)test.objectForKey("Duration")).floatValue();
@@ -124,45 +156,306 @@ public class XcodeTestSummariesParser {
 		    currentTestCase.setTime(duration);
 		    parentTestSuite.getTestCases().add(currentTestCase);
 		    parentTestSuite.addFailure();
+		    result.addFailedTest(parentTestSuite.getName(), testName);
 		}
 		else if ( testStatus.equals("Success") ) {
 		    currentTestCase.setTime(duration);
 		    parentTestSuite.getTestCases().add(currentTestCase);
 		    parentTestSuite.addTest();
 		}
-		writeTestReport(parentTestSuite);
+		hasTestCases = true;
 	    }
 	    else {
-		TestSuite currentTestSuite = new TestSuite(InetAddress.getLocalHost().getHostName(), testName, null);
+		TestSuite currentTestSuite = new TestSuite(XCodeBuildOutputParser.getHostName(), testName, null);
 		currentTestSuite.setDuration(duration);
 		NSObject[] subTests = ((NSArray)value).getArray();
 		parseSubTests(subTests, currentTestSuite);
             }
 	}
+	if ( hasTestCases ) {
+	    writeTestReport(parentTestSuite);
+	}
+    }
+
+    /**
+     * @return the counts of the reports written so far
+     */
+    public TestSummariesResult getResult() {
+	return result;
+    }
+
+    /**
+     * Parse the test summaries of a result bundle and write the reports on the node holding the workspace,
+     * so that neither the plists nor the reports have to go through the remoting channel.
+     * The plists of the test actions, one per simulator with parallel testing, are read in parallel and their testables
+     * converted in parallel, by one thread per processor or as many as the system property {@value #THREADS_PROPERTY} sets on the node.
+     * @param workspace The workspace the test-reports directory is created in.
+     * @param resultBundle The -resultBundlePath given to xcodebuild, on the same node as the workspace.
+     * @return the counts of the reports written
+     */
+    public static TestSummariesResult parseResultBundle(FilePath workspace, FilePath resultBundle) throws IOException, InterruptedException {
+	return resultBundle.act(new ParseResultBundle(workspace.getRemote()));
+    }
+
+    static final String THREADS_PROPERTY = "au.com.rayh.XcodeTestSummariesParser.threads";
+
+    /**
+     * @return the TestSummaries.plist of the bundle, or the summary of each test action if there is no summary for the whole bundle
+     */
+    static List<File> findTestSummaries(File resultBundle) {
+	List<File> plists = new ArrayList<File>();
+	File bundleSummaries = new File(resultBundle, "TestSummaries.plist");
+	if ( bundleSummaries.isFile() ) {
+	    plists.add(bundleSummaries);
+	    return plists;
+	}
+	File[] actions = resultBundle.listFiles();
+	if ( actions != null ) {
+	    Arrays.sort(actions);
+	    for ( File action : actions ) {
+		File actionSummaries = new File(action, "action_TestSummaries.plist");
+		if ( actionSummaries.isFile() ) {
+		    plists.add(actionSummaries);
+		}
+	    }
+	}
+	return plists;
+    }
+
+    private static final class ParseResultBundle extends MasterToSlaveFileCallable<TestSummariesResult> {
+	private static final long serialVersionUID = 1L;
+	private final String workspace;
+
+	ParseResultBundle(String workspace) {
+	    this.workspace = workspace;
+	}
+
+	@Override
+	public TestSummariesResult invoke(File resultBundle, VirtualChannel channel) throws IOException, InterruptedException {
+	    int threads = Math.max(1, Integer.getInteger(THREADS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+	    // The queue is bounded so that the reader cannot get far ahead of the writers, once it is full the reader writes the testable itself.
+	    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+		    new ArrayBlockingQueue<Runnable>(threads), new NamingThreadFactory(new DaemonThreadFactory(), "XcodeTestSummariesParser"),
+		    new ThreadPoolExecutor.CallerRunsPolicy());
+	    try {
+		final XcodeTestSummariesParser parser = new XcodeTestSummariesParser(new FilePath(new File(workspace)), executor);
+		List<FutureTask<Void>> plists = new ArrayList<FutureTask<Void>>();
+		for ( File plist : findTestSummaries(resultBundle) ) {
+		    final FilePath plistFile = new FilePath(plist);
+		    // Added here, so that the summary files are listed in order whichever is read first.
+		    parser.result.addSummaryFile(plistFile.getRemote());
+		    plists.add(submit(executor, new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+			    parser.parsePlist(plistFile);
+			    return null;
+			}
+		    }));
+		}
+		for ( FutureTask<Void> plist : plists ) {
+		    await(plist);
+		}
+		return parser.getResult();
+	    }
+	    catch ( ExecutionException ex ) {
+		throw new IOException(ex.getCause());
+	    }
+	    finally {
+		executor.shutdownNow();
+	    }
+	}
+    }
+
+    /**
+     * Run a task on the executor, or on the calling thread when the queue of the executor is full.
+     */
+    private static <T> FutureTask<T> submit(ExecutorService executor, Callable<T> task) {
+	FutureTask<T> future = new FutureTask<T>(task);
+	executor.execute(future);
+	return future;
+    }
+
+    /**
+     * Wait for a task, running it on the calling thread if no thread of the executor has started it yet.
+     * The plists are read on the same threads that write their testables, so a thread must not wait for a task queued behind it.
+     */
+    private static <T> T await(FutureTask<T> future) throws InterruptedException, ExecutionException {
+	future.run();
+	return future.get();
     }
 
     /**
      * @param testSummariesPlistFile The location of the TestSummaries.plist file output from Xcode.
      */
     public void parseTestSummariesPlist(FilePath testSummariesPlistFile) {
+	result.addSummaryFile(testSummariesPlistFile.getRemote());
+	parsePlist(testSummariesPlistFile);
+    }
+
+    private void parsePlist(FilePath testSummariesPlistFile) {
+	List<FutureTask<Void>> testables = new ArrayList<FutureTask<Void>>();
 	try {
-	    NSDictionary rootDict = (NSDictionary)PropertyListParser.parse(testSummariesPlistFile.read());
-	    NSObject[] testableSummaries = ((NSArray)rootDict.objectForKey("TestableSummaries")).getArray();
-	    for ( NSObject object:testableSummaries ) {
-		NSDictionary testSummarie = (NSDictionary)object;
-		String diagnosticsDirectory = testSummarie.objectForKey("DiagnosticsDirectory").toString();
-		String testName = testSummarie.objectForKey("TestName").toString();
-		String projectPath = testSummarie.objectForKey("ProjectPath").toString();
-		String targetName = testSummarie.objectForKey("TargetName").toString();
-		TestSuite currentTestSuite = new TestSuite(InetAddress.getLocalHost().getHostName(), testName, null);
-		NSObject[] tests = ((NSArray)testSummarie.objectForKey("Tests")).getArray();
-		if ( tests != null ) {
-		    parseSubTests(tests, currentTestSuite);
+	    // The plist is streamed rather than parsed into NSObjects: with activity summaries it can be tens of megabytes.
+	    PlistStreamReader reader = PlistStreamReader.open(testSummariesPlistFile.read());
+	    try {
+		reader.beginDict();
+		String key;
+		while ( (key = reader.nextKey()) != null ) {
+		    if ( key.equals("TestableSummaries") ) {
+			reader.beginArray();
+			while ( reader.nextElement() ) {
+			    final List<SummaryTest> groups = new ArrayList<SummaryTest>();
+			    readTest(reader, groups);
+			    if ( executor == null ) {
+				writeTestSuites(groups);
+			    }
+			    else {
+				testables.add(submit(executor, new Callable<Void>() {
+				    @Override
+				    public Void call() throws Exception {
+					writeTestSuites(groups);
+					return null;
+				    }
+				}));
+			    }
+			}
+		    }
+		    else {
+			reader.skipValue();
+		    }
 		}
 	    }
+	    finally {
+		reader.close();
+	    }
+	    for ( FutureTask<Void> testable : testables ) {
+		await(testable);
+	    }
+	}
+	catch ( ExecutionException ex ) {
+	    result.addError(testSummariesPlistFile.getRemote(), ex.getCause());
 	}
 	catch ( Exception ex ) {
-	    ex.printStackTrace();
+	    // The plist may be parsed on an agent, so the error is sent back with the result rather than printed there.
+	    result.addError(testSummariesPlistFile.getRemote(), ex);
+	}
+    }
+
+    /**
+     * A test, or a group of tests, read from the plist.
+     * The keys of a test are sorted, so the name of a group is only known after all of its subtests were read.
+     */
+    private static class SummaryTest {
+	String name;
+	float duration;
+	String status;
+	List<TestFailure> failures = new ArrayList<TestFailure>();
+	// The tests directly in this group, null if this is a single test.
+	List<SummaryTest> tests;
+    }
+
+    /**
+     * Read a testable summary or a test. The groups holding tests are added to groups in the order their reports were written before.
+     */
+    private static SummaryTest readTest(PlistStreamReader reader, List<SummaryTest> groups) throws IOException {
+	SummaryTest test = new SummaryTest();
+	reader.beginDict();
+	String key;
+	while ( (key = reader.nextKey()) != null ) {
+	    switch ( key ) {
+		case "Duration":
+		    test.duration = Float.parseFloat(reader.readString());
+		    break;
+		case "TestName":
+		    test.name = reader.readString();
+		    break;
+		case "TestStatus":
+		    test.status = reader.readString();
+		    break;
+		case "FailureSummaries":
+		    readFailureSummaries(reader, test.failures);
+		    break;
+		case "Tests":
+		case "Subtests":
+		    test.tests = new ArrayList<SummaryTest>();
+		    reader.beginArray();
+		    while ( reader.nextElement() ) {
+			SummaryTest subtest = readTest(reader, groups);
+			if ( subtest.tests == null ) {
+			    test.tests.add(subtest);
+			}
+		    }
+		    break;
+		default:
+		    // ActivitySummaries, PerformanceMetrics, ...
+		    reader.skipValue();
+		    break;
+	    }
+	}
+	if ( test.tests != null && !test.tests.isEmpty() ) {
+	    groups.add(test);
+	}
+	return test;
+    }
+
+    private static void readFailureSummaries(PlistStreamReader reader, List<TestFailure> failures) throws IOException {
+	reader.beginArray();
+	while ( reader.nextElement() ) {
+	    String message = null;
+	    String fileName = null;
+	    String lineNumber = null;
+	    boolean performanceFailure = false;
+	    reader.beginDict();
+	    String key;
+	    while ( (key = reader.nextKey()) != null ) {
+		switch ( key ) {
+		    case "Message":
+			message = reader.readString();
+			break;
+		    case "FileName":
+			fileName = reader.readString();
+			break;
+		    case "LineNumber":
+			lineNumber = reader.readString();
+			break;
+		    case "PerformanceFailure":
+			performanceFailure = Boolean.parseBoolean(reader.readString());
+			break;
+		    default:
+			reader.skipValue();
+			break;
+		}
+	    }
+	    if ( !performanceFailure ) {
+		failures.add(newFailure(String.valueOf(message), fileName, lineNumber));
+	    }
+	}
+    }
+
+    private void writeTestSuites(List<SummaryTest> groups) throws IOException, InterruptedException, JAXBException {
+	for ( SummaryTest group : groups ) {
+	    writeTestSuite(group);
+	}
+    }
+
+    private void writeTestSuite(SummaryTest group) throws IOException, InterruptedException, JAXBException {
+	TestSuite currentTestSuite = new TestSuite(XCodeBuildOutputParser.getHostName(), group.name, null);
+	currentTestSuite.setDuration(group.duration);
+	for ( SummaryTest test : group.tests ) {
+	    TestCase currentTestCase = new TestCase(currentTestSuite.getName(), test.name);
+	    if ( "Failure".equals(test.status) ) {
+		currentTestCase.getFailures().addAll(test.failures);
+		currentTestCase.setTime(test.duration);
+		currentTestSuite.getTestCases().add(currentTestCase);
+		currentTestSuite.addFailure();
+		result.addFailedTest(currentTestSuite.getName(), test.name);
+	    }
+	    else if ( "Success".equals(test.status) ) {
+		currentTestCase.setTime(test.duration);
+		currentTestSuite.getTestCases().add(currentTestCase);
+		currentTestSuite.addTest();
+	    }
 	}
+	writeTestReport(currentTestSuite);
     }
 }
@@ -0,0 +1,263 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Proc;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.remoting.VirtualChannel;
+import jenkins.security.MasterToSlaveCallable;
+
+import javax.xml.bind.JAXBException;
+
+/**
+ * Runs xcodebuild and parses its output in the JVM of the node holding the workspace.
+ * The log file, the build events and the JUnit reports are written there,
+ * and only the console output that is kept and a {@link Result} are sent back to the controller.
+ */
+public class XcodebuildCallable extends MasterToSlaveCallable<XcodebuildCallable.Result, IOException> {
+    private static final long serialVersionUID = 1L;
+
+    private final FilePath projectRoot;
+    private final TaskListener listener;
+    private EnvVars envs;
+    private ArrayList<String> commandLine;
+    private boolean consoleLog = true;
+    private boolean condensedConsoleLog;
+    private FilePath buildDirectory;
+    private String logfileOutputDirectory;
+    private long logfileMaxSize;
+    private int logfileMaxSegments;
+    private boolean compressLogfiles;
+    private FilePath buildEventsDirectory;
+    private boolean ignoreTestResults;
+    private boolean parallelTesting;
+    private LiveTestResults liveTestResults;
+    private int maxFailedTests;
+    private ArrayList<String> compileErrorTargets = new ArrayList<String>();
+    private boolean abortOnTerminatingException;
+
+    /**
+     * @param projectRoot the directory xcodebuild runs in, and below which the test reports are written
+     * @param listener receives the console output
+     */
+    public XcodebuildCallable(FilePath projectRoot, TaskListener listener) {
+        this.projectRoot = projectRoot;
+        this.listener = listener;
+    }
+
+    public void setCommandLine(EnvVars envs, List<String> commandLine) {
+        this.envs = envs;
+        this.commandLine = new ArrayList<String>(commandLine);
+    }
+
+    public void setConsoleLog(boolean consoleLog) {
+        this.consoleLog = consoleLog;
+    }
+
+    public void setCondensedConsoleLog(boolean condensedConsoleLog) {
+        this.condensedConsoleLog = condensedConsoleLog;
+    }
+
+    /**
+     * @see JenkinsXCodeBuildOutputParser#setLogfilePath(FilePath, String, long, int, boolean)
+     */
+    public void setLogfilePath(FilePath buildDirectory, String logfileOutputDirectory, long logfileMaxSize, int logfileMaxSegments, boolean compressLogfiles) {
+        this.buildDirectory = buildDirectory;
+        this.logfileOutputDirectory = logfileOutputDirectory;
+        this.logfileMaxSize = logfileMaxSize;
+        this.logfileMaxSegments = logfileMaxSegments;
+        this.compressLogfiles = compressLogfiles;
+    }
+
+    public void setBuildEventsPath(FilePath buildEventsDirectory) {
+        this.buildEventsDirectory = buildEventsDirectory;
+    }
+
+    public void setIgnoreTestResults(boolean ignoreTestResults) {
+        this.ignoreTestResults = ignoreTestResults;
+    }
+
+    /**
+     * @see XCodeBuildOutputParser#setParallelTesting(boolean)
+     */
+    public void setParallelTesting(boolean parallelTesting) {
+        this.parallelTesting = parallelTesting;
+    }
+
+    /**
+     * @param liveTestResults receives the finished test cases while xcodebuild is running
+     */
+    public void setLiveTestResults(LiveTestResults liveTestResults) {
+        this.liveTestResults = liveTestResults;
+    }
+
+    /**
+     * @see AbortPolicy#setMaxFailedTests(int)
+     */
+    public void setMaxFailedTests(int maxFailedTests) {
+        this.maxFailedTests = maxFailedTests;
+    }
+
+    /**
+     * @see AbortPolicy#setCompileErrorTargets(java.util.Collection)
+     */
+    public void setCompileErrorTargets(List<String> compileErrorTargets) {
+        this.compileErrorTargets = new ArrayList<String>(compileErrorTargets);
+    }
+
+    /**
+     * @see AbortPolicy#setTerminatingException(boolean)
+     */
+    public void setAbortOnTerminatingException(boolean abortOnTerminatingException) {
+        this.abortOnTerminatingException = abortOnTerminatingException;
+    }
+
+    /**
+     * Runs xcodebuild on the node of the launcher.
+     * A decorated launcher may change how the process is started, so it is used as it is on the controller
+     * and the output is parsed there; any other launcher is replaced by a local one on the node.
+     */
+    public Result execute(Launcher launcher) throws IOException, InterruptedException {
+        if ( launcher instanceof Launcher.DecoratedLauncher || launcher.getChannel() == null ) {
+            return run(launcher);
+        }
+        VirtualChannel channel = launcher.getChannel();
+        if ( liveTestResults != null && channel instanceof Channel ) {
+            // The results are sent back through a proxy, while the action itself stays on the controller.
+            liveTestResults = ((Channel)channel).export(LiveTestResults.class, liveTestResults);
+        }
+        return channel.call(this);
+    }
+
+    @Override
+    public Result call() throws IOException {
+        try {
+            return run(new Launcher.LocalLauncher(listener));
+        }
+        catch ( InterruptedException ex ) {
+            throw (IOException)new InterruptedIOException().initCause(ex);
+        }
+    }
+
+    private Result run(Launcher launcher) throws IOException, InterruptedException {
+        JenkinsXCodeBuildOutputParser reportGenerator = new JenkinsXCodeBuildOutputParser(projectRoot, listener);
+        reportGenerator.setConsoleLog(consoleLog);
+        reportGenerator.setCondensedConsoleLog(condensedConsoleLog);
+        reportGenerator.setIgnoreTestResults(ignoreTestResults);
+        reportGenerator.setParallelTesting(parallelTesting);
+        if ( buildDirectory != null ) {
+            reportGenerator.setLogfilePath(buildDirectory, logfileOutputDirectory, logfileMaxSize, logfileMaxSegments, compressLogfiles);
+        }
+        if ( buildEventsDirectory != null ) {
+            reportGenerator.setBuildEventsPath(buildEventsDirectory);
+        }
+        if ( liveTestResults != null ) {
+            reportGenerator.addBuildEventListener(new LiveTestResultsWriter(liveTestResults));
+        }
+        AbortPolicy abortPolicy = new AbortPolicy(listener.getLogger());
+        abortPolicy.setMaxFailedTests(maxFailedTests);
+        abortPolicy.setCompileErrorTargets(compileErrorTargets);
+        abortPolicy.setTerminatingException(abortOnTerminatingException);
+        if ( abortPolicy.isEnabled() ) {
+            reportGenerator.addBuildEventListener(abortPolicy);
+        }
+        // The output is parsed on a thread of its own, so that a slow parser or test report does not block xcodebuild's stdout.
+        PipelinedOutputStream pipelinedOutput = new PipelinedOutputStream(reportGenerator.getOutputStream());
+        int returnCode;
+        try {
+            Proc process = launcher.launch().envs(envs).cmds(commandLine).stdout(pipelinedOutput).pwd(projectRoot).start();
+            abortPolicy.setProcess(process);
+            returnCode = process.join();
+        }
+        finally {
+            try {
+                pipelinedOutput.close();
+            }
+            finally {
+                reportGenerator.closeLogfile();
+            }
+        }
+        try {
+            // Parallel tests may not be followed by a TEST SUCCEEDED or FAILED line if xcodebuild was interrupted.
+            reportGenerator.closeTestReports();
+        }
+        catch ( JAXBException ex ) {
+            throw new IOException(ex);
+        }
+        finally {
+            reportGenerator.closeBuildEvents();
+        }
+        return new Result(returnCode, reportGenerator.getExitCode(), abortPolicy.getReason(), pipelinedOutput);
+    }
+
+    /**
+     * What the controller needs to know about an xcodebuild run.
+     */
+    public static final class Result implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final int returnCode;
+        private final int exitCode;
+        private final String abortReason;
+        private final int maxQueueDepth;
+        private final int bufferSize;
+        private final int stalls;
+        private final long stallTimeMillis;
+
+        Result(int returnCode, int exitCode, String abortReason, PipelinedOutputStream output) {
+            this.returnCode = returnCode;
+            this.exitCode = exitCode;
+            this.abortReason = abortReason;
+            this.maxQueueDepth = output.getMaxQueueDepth();
+            this.bufferSize = output.getBufferSize();
+            this.stalls = output.getStalls();
+            this.stallTimeMillis = output.getStallTime(TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * @return the exit status of xcodebuild
+         */
+        public int getReturnCode() {
+            return returnCode;
+        }
+
+        /**
+         * @return the exit code determined from the output, non zero if a build or a test failed
+         */
+        public int getExitCode() {
+            return exitCode;
+        }
+
+        /**
+         * @return why xcodebuild was stopped before it finished, or null
+         */
+        public String getAbortReason() {
+            return abortReason;
+        }
+
+        public int getMaxQueueDepth() {
+            return maxQueueDepth;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public int getStalls() {
+            return stalls;
+        }
+
+        public long getStallTimeMillis() {
+            return stallTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package au.com.rayh;
+
+import java.io.InputStream;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * The StAX input factory shared by the XML readers of the plugin: property lists, schemes and workspaces.
+ * It is set up once not to read DTDs or resolve external entities, and then only creates readers,
+ * so every build and thread uses the same one.
+ */
+final class XmlStreams {
+    private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+    private XmlStreams() {
+    }
+
+    private static XMLInputFactory newInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    static XMLStreamReader createReader(InputStream in) throws XMLStreamException {
+        return INPUT_FACTORY.createXMLStreamReader(in);
+    }
+
+    /**
+     * Skips the prolog of a document that must not have a DOCTYPE, as Xcode does not write one.
+     * @return the name of the root element, the reader being positioned on it
+     */
+    static String rootElement(XMLStreamReader reader) throws XMLStreamException {
+        while ( reader.hasNext() ) {
+            int event = reader.next();
+            if ( event == XMLStreamConstants.DTD ) {
+                throw new XMLStreamException("DOCTYPE is not allowed", reader.getLocation());
+            }
+            if ( event == XMLStreamConstants.START_ELEMENT ) {
+                return reader.getLocalName();
+            }
+        }
+        throw new XMLStreamException("No root element", reader.getLocation());
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh.report;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+
+/**
+ * Writes the test cases of a suite to disk as soon as they are finished, so that they do not have to be kept in memory
+ * until the end of the suite. The totals of the suite come first in the report, so the cases are appended to a
+ * scratch file next to the report and copied behind the {@code <testsuite>} start tag when the report is written.
+ * <p>
+ * Each case is written as an element of its own, with JAXB or, like {@link TestSuiteWriter}, with StAX when its system
+ * property is set. Only where each case is in the scratch file is kept, so that a failure reported after the case was
+ * written can still be added to it.
+ */
+public final class StreamingTestSuiteWriter implements Closeable {
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static final byte[] END_TESTCASE = "</testcase>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] END_TESTSUITE = "</testsuite>".getBytes(StandardCharsets.UTF_8);
+
+    private final File cases;
+    private final CountingOutputStream casesOut;
+    private final Marshaller fragmentMarshaller;
+    // Where each test case starts and ends in the scratch file, by name.
+    private final Map<String, long[]> offsets = new HashMap<String, long[]>();
+    // The failures added to test cases already written, by where the case starts.
+    private final TreeMap<Long, LateFailures> lateFailures = new TreeMap<Long, LateFailures>();
+    private int written = 0;
+
+    /**
+     * @param directory where the scratch file is created, the directory of the report so that it is on the same volume
+     * and removed with the workspace, or null for the temporary directory
+     */
+    public StreamingTestSuiteWriter(File directory) throws IOException {
+        cases = File.createTempFile("TEST-", ".xml.part", directory);
+        casesOut = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(cases), 64 * 1024));
+        try {
+            if ( TestSuiteWriter.USE_STAX ) {
+                fragmentMarshaller = null;
+            }
+            else {
+                fragmentMarshaller = TestSuiteWriter.getJAXBContext().createMarshaller();
+                fragmentMarshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+            }
+        }
+        catch ( JAXBException ex ) {
+            close();
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Append a finished test case. It must not change afterwards, and can be dropped by the caller.
+     */
+    public void writeTestCase(TestCase testCase) throws IOException {
+        long start = casesOut.getByteCount();
+        try {
+            if ( fragmentMarshaller == null ) {
+                XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(casesOut, "UTF-8");
+                TestSuiteWriter.writeTestCase(writer, testCase);
+                writer.writeEndDocument();
+                writer.flush();
+            }
+            else {
+                fragmentMarshaller.marshal(new JAXBElement<TestCase>(new QName("testcase"), TestCase.class, testCase), casesOut);
+            }
+        }
+        catch ( XMLStreamException | JAXBException ex ) {
+            throw new IOException(ex);
+        }
+        offsets.put(testCase.getName(), new long[] { start, casesOut.getByteCount() });
+        written++;
+    }
+
+    /**
+     * @param name the name of a test case
+     * @return whether the test case was written
+     */
+    public boolean hasTestCase(String name) {
+        return offsets.containsKey(name);
+    }
+
+    /**
+     * Add a failure to a test case that was already written, as xcodebuild may report it after the next case started.
+     * @param name the name of a test case that was written
+     */
+    public void addFailure(String name, TestFailure failure) {
+        long[] offset = offsets.get(name);
+        if ( offset == null ) {
+            throw new IllegalArgumentException("Test case '" + name + "' was not written");
+        }
+        LateFailures failures = lateFailures.get(offset[0]);
+        if ( failures == null ) {
+            failures = new LateFailures(offset[1]);
+            lateFailures.put(offset[0], failures);
+        }
+        failures.failures.add(failure);
+    }
+
+    /**
+     * @return the number of test cases written so far
+     */
+    public int getTestCases() {
+        return written;
+    }
+
+    /**
+     * Write the report: the suite with its totals, the test cases written so far, then those still held by the suite.
+     * More test cases can be written afterwards, and the report written again.
+     * @param testSuite the suite, with its current totals
+     * @param out the stream receiving the report, left open
+     */
+    public void writeReport(TestSuite testSuite, OutputStream out) throws IOException {
+        casesOut.flush();
+        // The suite is written as usual, with the cases it still holds, and the written cases are copied into it.
+        ByteArrayOutputStream suite = new ByteArrayOutputStream();
+        try {
+            if ( fragmentMarshaller == null ) {
+                TestSuiteWriter.writeStream(testSuite, suite);
+            }
+            else {
+                TestSuiteWriter.getJAXBContext().createMarshaller().marshal(testSuite, suite);
+            }
+        }
+        catch ( XMLStreamException | JAXBException ex ) {
+            throw new IOException(ex);
+        }
+        byte[] report = suite.toByteArray();
+        int startTagEnd = startTagEnd(report, "testsuite");
+        boolean empty = report[startTagEnd - 1] == '/';
+        out.write(report, 0, empty ? startTagEnd - 1 : startTagEnd + 1);
+        if ( empty ) {
+            out.write('>');
+        }
+        copyTestCases(out);
+        if ( empty ) {
+            out.write(END_TESTSUITE);
+        }
+        out.write(report, startTagEnd + 1, report.length - startTagEnd - 1);
+    }
+
+    /**
+     * @return the index of the {@code >} ending the start tag of the first element with the given name
+     */
+    static int startTagEnd(byte[] document, String element) throws IOException {
+        byte[] start = ("<" + element).getBytes(StandardCharsets.UTF_8);
+        for ( int i = 0; i + start.length < document.length; i++ ) {
+            if ( !startsWith(document, i, start) || !isNameEnd(document[i + start.length]) ) {
+                continue;
+            }
+            byte quote = 0;
+            for ( int j = i + start.length; j < document.length; j++ ) {
+                byte b = document[j];
+                if ( quote != 0 ) {
+                    if ( b == quote ) {
+                        quote = 0;
+                    }
+                }
+                else if ( b == '"' || b == '\'' ) {
+                    quote = b;
+                }
+                else if ( b == '>' ) {
+                    return j;
+                }
+            }
+        }
+        throw new IOException("No <" + element + "> start tag in the report");
+    }
+
+    private static boolean startsWith(byte[] bytes, int offset, byte[] prefix) {
+        for ( int i = 0; i < prefix.length; i++ ) {
+            if ( bytes[offset + i] != prefix[i] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameEnd(byte b) {
+        return b == '>' || b == '/' || b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    private void copyTestCases(OutputStream out) throws IOException {
+        try (InputStream in = new FileInputStream(cases)) {
+            long position = 0;
+            for ( Map.Entry<Long, LateFailures> entry : lateFailures.entrySet() ) {
+                long start = entry.getKey();
+                LateFailures failures = entry.getValue();
+                IOUtils.copyLarge(in, out, 0, start - position);
+                byte[] testCase = new byte[(int)(failures.end - start)];
+                IOUtils.readFully(in, testCase);
+                writeTestCase(testCase, failures.failures, out);
+                position = failures.end;
+            }
+            IOUtils.copyLarge(in, out);
+        }
+    }
+
+    /**
+     * Write a test case as it was written to the scratch file, with failures added at the end of its element.
+     */
+    private void writeTestCase(byte[] testCase, List<TestFailure> failures, OutputStream out) throws IOException {
+        int end = testCase.length;
+        while ( end > 0 && Character.isWhitespace(testCase[end - 1]) ) {
+            end--;
+        }
+        boolean empty = end >= 2 && testCase[end - 2] == '/' && testCase[end - 1] == '>';
+        out.write(testCase, 0, empty ? end - 2 : end - END_TESTCASE.length);
+        if ( empty ) {
+            out.write('>');
+        }
+        try {
+            for ( TestFailure failure : failures ) {
+                if ( fragmentMarshaller == null ) {
+                    XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+                    TestSuiteWriter.writeFailure(writer, failure);
+                    writer.writeEndDocument();
+                    writer.flush();
+                }
+                else {
+                    fragmentMarshaller.marshal(new JAXBElement<TestFailure>(new QName("failure"), TestFailure.class, failure), out);
+                }
+            }
+        }
+        catch ( XMLStreamException | JAXBException ex ) {
+            throw new IOException(ex);
+        }
+        out.write(END_TESTCASE);
+        out.write(testCase, end, testCase.length - end);
+    }
+
+    /**
+     * Delete the scratch file, once the suite has ended.
+     */
+    @Override
+    public void close() {
+        IOUtils.closeQuietly(casesOut);
+        if ( !cases.delete() && cases.exists() ) {
+            cases.deleteOnExit();
+        }
+    }
+
+    private static final class LateFailures {
+        private final long end;
+        private final List<TestFailure> failures = new ArrayList<TestFailure>();
+
+        LateFailures(long end) {
+            this.end = end;
+        }
+    }
+}
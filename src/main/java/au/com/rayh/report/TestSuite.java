@@ -124,6 +124,11 @@ public class TestSuite {
         return startTime;
     }
 
+    @SuppressFBWarnings("EI_EXPOSE_REP")
+    public Date getEndTime() {
+        return endTime;
+    }
+
     @SuppressFBWarnings({"EI_EXPOSE_REP2", "URF_UNREAD_FIELD"})
     public void setEndTime(Date endTime) {
         this.endTime = endTime;
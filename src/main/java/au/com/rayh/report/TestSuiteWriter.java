@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2011 Ray Yamamoto Hilton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package au.com.rayh.report;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Calendar;
+
+import javax.xml.bind.DatatypeConverter;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a {@link TestSuite} as a JUnit-style xml test result file.
+ * Creating a JAXBContext is expensive, and the context is thread-safe, so a single one is shared by every report.
+ * When the system property {@code au.com.rayh.report.TestSuiteWriter.stax} is true the report is streamed with StAX instead,
+ * without going through JAXB reflection at all.
+ */
+public final class TestSuiteWriter {
+    static final boolean USE_STAX = Boolean.getBoolean(TestSuiteWriter.class.getName() + ".stax");
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+    private static JAXBContext jaxbContext;
+
+    private TestSuiteWriter() {
+    }
+
+    /**
+     * @return the JAXBContext for {@link TestSuite}, created on first use
+     */
+    public static synchronized JAXBContext getJAXBContext() throws JAXBException {
+        if ( jaxbContext == null ) {
+            jaxbContext = JAXBContext.newInstance(TestSuite.class);
+        }
+        return jaxbContext;
+    }
+
+    /**
+     * @param testSuite the test suite to write
+     * @param out the stream receiving the report, left open
+     */
+    public static void write(TestSuite testSuite, OutputStream out) throws IOException, JAXBException {
+        if ( USE_STAX ) {
+            try {
+                writeStream(testSuite, out);
+            }
+            catch ( XMLStreamException ex ) {
+                throw new IOException(ex);
+            }
+        }
+        else {
+            // Marshallers are cheap but not thread-safe, so one is created for each report.
+            Marshaller marshaller = getJAXBContext().createMarshaller();
+            marshaller.marshal(testSuite, out);
+        }
+    }
+
+    /**
+     * Write the report with a StAX stream writer. The document is equivalent to the one JAXB produces.
+     * @param testSuite the test suite to write
+     * @param out the stream receiving the report, left open
+     */
+    public static void writeStream(TestSuite testSuite, OutputStream out) throws XMLStreamException {
+        XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter(out, "UTF-8");
+        writer.writeStartDocument("UTF-8", "1.0");
+        writer.writeStartElement("testsuite");
+        writeSuiteAttributes(writer, testSuite);
+        for ( TestCase testCase : testSuite.testcases ) {
+            writeTestCase(writer, testCase);
+        }
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
+    }
+
+    static void writeSuiteAttributes(XMLStreamWriter writer, TestSuite testSuite) throws XMLStreamException {
+        writer.writeAttribute("failures", String.valueOf(testSuite.failures));
+        writer.writeAttribute("errors", String.valueOf(testSuite.errors));
+        writeAttribute(writer, "hostname", testSuite.hostname);
+        writeAttribute(writer, "name", testSuite.name);
+        writer.writeAttribute("tests", String.valueOf(testSuite.tests));
+        writer.writeAttribute("time", DatatypeConverter.printFloat(testSuite.time));
+        if ( testSuite.endTime != null ) {
+            Calendar timestamp = Calendar.getInstance();
+            timestamp.setTime(testSuite.endTime);
+            writer.writeAttribute("timestamp", DatatypeConverter.printDateTime(timestamp));
+        }
+    }
+
+    static void writeTestCase(XMLStreamWriter writer, TestCase testCase) throws XMLStreamException {
+        boolean empty = testCase.failures.isEmpty() && testCase.errors.isEmpty();
+        if ( empty ) {
+            writer.writeEmptyElement("testcase");
+        }
+        else {
+            writer.writeStartElement("testcase");
+        }
+        writeAttribute(writer, "classname", testCase.classname);
+        writeAttribute(writer, "name", testCase.name);
+        writer.writeAttribute("time", DatatypeConverter.printFloat(testCase.time));
+        if ( empty ) {
+            return;
+        }
+        for ( TestFailure failure : testCase.failures ) {
+            writeFailure(writer, failure);
+        }
+        for ( TestError error : testCase.errors ) {
+            writer.writeEmptyElement("error");
+            writeAttribute(writer, "message", error.message);
+            writeAttribute(writer, "type", error.type);
+        }
+        writer.writeEndElement();
+    }
+
+    static void writeFailure(XMLStreamWriter writer, TestFailure failure) throws XMLStreamException {
+        writer.writeStartElement("failure");
+        writeAttribute(writer, "message", failure.message);
+        writeAttribute(writer, "type", failure.type);
+        if ( failure.location != null ) {
+            writer.writeCharacters(failure.location);
+        }
+        writer.writeEndElement();
+    }
+
+    private static void writeAttribute(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+        if ( value != null ) {
+            writer.writeAttribute(name, value);
+        }
+    }
+}
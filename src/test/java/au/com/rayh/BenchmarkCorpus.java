@@ -0,0 +1,87 @@
+package au.com.rayh;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The large inputs of the benchmarks: xcodebuild logs, project.pbxproj files and TestSummaries.plist files.
+ * They live in the directory given by -Dxcode.benchmark.corpus (target/benchmark-corpus by default)
+ * and are generated the first time they are needed, since a log of several GB is too big to keep in the repository.
+ * A recorded file copied into the corpus under the same name is used instead of the synthetic one,
+ * e.g. xcodebuild-4096MB.log, pbxproj-100000/Project.xcodeproj or TestSummaries-20000.plist.
+ */
+class BenchmarkCorpus {
+    private final File directory;
+
+    BenchmarkCorpus() {
+        this(new File(System.getProperty("xcode.benchmark.corpus", "target/benchmark-corpus")));
+    }
+
+    BenchmarkCorpus(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param megabytes the size of the log
+     * @return a log of compiler output and test runs, repeated up to the size
+     */
+    File xcodebuildLog(int megabytes) throws IOException {
+        File log = new File(directory, "xcodebuild-" + megabytes + "MB.log");
+        if ( !log.exists() ) {
+            byte[] block = XCodeBuildOutputParserBenchmark.syntheticLog();
+            long size = megabytes * 1024L * 1024L;
+            File part = partFile(log);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(part), 1024 * 1024)) {
+                for ( long written = 0; written < size; written += block.length ) {
+                    out.write(block);
+                }
+            }
+            rename(part, log);
+        }
+        return log;
+    }
+
+    /**
+     * @param objects the approximate number of objects in the project.pbxproj
+     * @return the .xcodeproj directory, with a shared scheme for each target
+     */
+    File xcodeProject(int objects) throws IOException {
+        File project = new File(directory, "pbxproj-" + objects + "/Project.xcodeproj");
+        if ( !new File(project, "project.pbxproj").exists() ) {
+            new SyntheticXcodeProject(objects).write(project);
+        }
+        return project;
+    }
+
+    /**
+     * @param tests the number of test cases, one in fifty of them failing
+     * @return a TestSummaries.plist in the XML format
+     */
+    File testSummaries(int tests) throws IOException {
+        File plist = new File(directory, "TestSummaries-" + tests + ".plist");
+        if ( !plist.exists() ) {
+            File part = partFile(plist);
+            new SyntheticTestSummaries(Math.max(1, tests / 500), Math.min(tests, 500)).withFailureEvery(50).writeXML(part);
+            rename(part, plist);
+        }
+        return plist;
+    }
+
+    // Written under another name first, so that an interrupted run does not leave a truncated input behind.
+    private static File partFile(File file) throws IOException {
+        File parent = file.getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() ) {
+            throw new IOException("Cannot create " + parent);
+        }
+        return new File(parent, file.getName() + ".part");
+    }
+
+    private static void rename(File part, File file) throws IOException {
+        if ( !part.renameTo(file) ) {
+            throw new IOException("Cannot rename " + part + " to " + file);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Shell scripts standing in for xcodebuild, agvtool, xcrun, PlistBuddy, security and ditto, so that the build step
+ * can run end to end on a Linux machine. They answer the queries the build step makes with the output of a real Xcode,
+ * and the build prints a log of the given size at the given rate, which is what the plugin has to keep up with.
+ */
+class FakeXcodeToolchain {
+    private final File directory;
+    private byte[] buildLog;
+    private int repeat = 1;
+    private long bytesPerSecond = 0;
+    private int exitCode = 0;
+
+    /**
+     * @param directory where the scripts are written, created if needed
+     */
+    FakeXcodeToolchain(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @param buildLog what xcodebuild prints when building or testing, compiler output and a passing test run by default
+     */
+    FakeXcodeToolchain withBuildLog(byte[] buildLog) {
+        this.buildLog = buildLog;
+        return this;
+    }
+
+    /**
+     * @param repeat how many times the build log is printed
+     */
+    FakeXcodeToolchain withRepeat(int repeat) {
+        this.repeat = repeat;
+        return this;
+    }
+
+    /**
+     * @param bytesPerSecond the rate the build log is printed at, 0 for as fast as it can be read
+     */
+    FakeXcodeToolchain withBytesPerSecond(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param exitCode the exit code of a build
+     */
+    FakeXcodeToolchain withExitCode(int exitCode) {
+        this.exitCode = exitCode;
+        return this;
+    }
+
+    /**
+     * @return the number of bytes a build prints
+     */
+    long getBuildLogSize() throws IOException {
+        return (long)buildLog().length * repeat;
+    }
+
+    File getXcodebuild() {
+        return new File(directory, "xcodebuild");
+    }
+
+    File getAgvtool() {
+        return new File(directory, "agvtool");
+    }
+
+    File getXcrun() {
+        return new File(directory, "xcrun");
+    }
+
+    File getPlistBuddy() {
+        return new File(directory, "PlistBuddy");
+    }
+
+    File getSecurity() {
+        return new File(directory, "security");
+    }
+
+    File getDitto() {
+        return new File(directory, "ditto");
+    }
+
+    /**
+     * Writes the scripts and points the global configuration at them.
+     */
+    void install(GlobalConfigurationImpl configuration) throws IOException {
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException("Cannot create " + directory);
+        }
+        FileUtils.writeByteArrayToFile(new File(directory, "build.log"), buildLog());
+        FileUtils.writeByteArrayToFile(new File(directory, "list.txt"), resource("/xcodebuildlist-valid.txt"));
+        FileUtils.writeByteArrayToFile(new File(directory, "help.txt"), resource("/xcodebuildhelp-valid.txt"));
+
+        String pause = "";
+        if ( bytesPerSecond > 0 ) {
+            pause = String.format(Locale.ENGLISH, "    sleep %.3f\n", (double)buildLog().length / bytesPerSecond);
+        }
+        script(getXcodebuild(),
+            "case \"$1\" in\n"
+            + "-version) printf 'Xcode 9.2\\nBuild version 9C40b\\n'; exit 0;;\n"
+            + "-showsdks) printf 'iOS SDKs:\\n\\tiOS 11.2                      \\t-sdk iphoneos11.2\\n\\n"
+            + "iOS Simulator SDKs:\\n\\tSimulator - iOS 11.2          \\t-sdk iphonesimulator11.2\\n'; exit 0;;\n"
+            + "-list) cat \"$dir/list.txt\"; exit 0;;\n"
+            + "-help) cat \"$dir/help.txt\"; exit 0;;\n"
+            + "-exportArchive) exit 0;;\n"
+            + "esac\n"
+            + "i=0\n"
+            + "while [ $i -lt " + repeat + " ]; do\n"
+            + "    cat \"$dir/build.log\"\n"
+            + pause
+            + "    i=$((i + 1))\n"
+            + "done\n"
+            + "if [ " + exitCode + " -eq 0 ]; then echo '** BUILD SUCCEEDED **'; else echo '** BUILD FAILED **'; fi\n"
+            + "exit " + exitCode + "\n");
+        script(getAgvtool(),
+            "case \"$1\" in\n"
+            + "mvers) echo 1.0;;\n"
+            + "vers) echo 1;;\n"
+            + "new-marketing-version|new-version) echo \"Setting version of project App to: $*\";;\n"
+            + "esac\n");
+        script(getXcrun(),
+            "echo \"xcrun $*\"\n");
+        script(getPlistBuddy(),
+            "case \"$2\" in\n"
+            + "*UUID) echo 01234567-89AB-CDEF-0123-456789ABCDEF;;\n"
+            + "*CFBundleIdentifier) echo com.example.App;;\n"
+            + "*CFBundleVersion) echo 1;;\n"
+            + "*CFBundleShortVersionString) echo 1.0;;\n"
+            + "esac\n");
+        script(getSecurity(),
+            "case \"$1\" in\n"
+            + "find-identity) printf '  1) 0123456789ABCDEF0123456789ABCDEF01234567 \"iPhone Developer: Jenkins (ABCDE12345)\"\\n"
+            + "     1 valid identities found\\n';;\n"
+            + "cms) printf '<?xml version=\"1.0\" encoding=\"UTF-8\"?>\\n<plist version=\"1.0\"><dict>"
+            + "<key>UUID</key><string>01234567-89AB-CDEF-0123-456789ABCDEF</string></dict></plist>\\n';;\n"
+            + "esac\n");
+        // Creates the archive named by the last argument.
+        script(getDitto(),
+            "for last; do :; done\n"
+            + ": > \"$last\"\n");
+
+        configuration.setXcodebuildPath(getXcodebuild().getAbsolutePath());
+        configuration.setAgvtoolPath(getAgvtool().getAbsolutePath());
+        configuration.setXcrunPath(getXcrun().getAbsolutePath());
+        configuration.setPlistBuddyPath(getPlistBuddy().getAbsolutePath());
+        configuration.setSecurityPath(getSecurity().getAbsolutePath());
+        configuration.setDittoPath(getDitto().getAbsolutePath());
+    }
+
+    private byte[] buildLog() throws IOException {
+        if ( buildLog == null ) {
+            buildLog = XCodeBuildOutputParserBenchmark.syntheticLog();
+        }
+        return buildLog;
+    }
+
+    private static byte[] resource(String name) throws IOException {
+        try (InputStream in = FakeXcodeToolchain.class.getResourceAsStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static void script(File file, String body) throws IOException {
+        FileUtils.writeStringToFile(file, "#!/bin/sh\ndir=$(dirname \"$0\")\n" + body, StandardCharsets.UTF_8.name());
+        if ( !file.setExecutable(true) ) {
+            throw new IOException("Cannot make " + file + " executable");
+        }
+    }
+}
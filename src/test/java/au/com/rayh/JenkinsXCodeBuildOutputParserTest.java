@@ -127,4 +127,9 @@ public class JenkinsXCodeBuildOutputParserTest {
     public void shouldParseFailedTestCase() throws Exception {
     	test.shouldParseFailedTestCase();
     }
+
+    @Test
+    public void shouldParseLineSplitAcrossWrites() throws Exception {
+    	test.shouldParseLineSplitAcrossWrites();
+    }
 }
@@ -33,6 +33,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
 import au.com.rayh.report.TestCase;
@@ -151,4 +153,16 @@ class OutputParserTests {
         assertEquals(1,parser.currentTestSuite.getTests());
         assertEquals(1,parser.currentTestSuite.getFailures());
     }
+
+    void shouldParseLineSplitAcrossWrites() throws Exception {
+        byte[] bytes = "Test Suite 'Pr\u00fcfungTestCase' started at 2010-10-02 13:39:23 GMT 0000\n".getBytes(StandardCharsets.UTF_8);
+        OutputStream out = parser.getOutputStream();
+        // Split inside the two-byte UTF-8 sequence of the suite name.
+        int split = 15;
+        out.write(bytes, 0, split);
+        assertNull(parser.currentTestSuite);
+        out.write(bytes, split, bytes.length - split);
+        assertNotNull(parser.currentTestSuite);
+        assertEquals("Pr\u00fcfungTestCase", parser.currentTestSuite.getName());
+    }
 }
@@ -0,0 +1,98 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.dd.plist.NSDictionary;
+import com.dd.plist.PropertyListParser;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class PbxprojScannerTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static ByteBuffer buffer(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void shouldDecodeObjectsLikePropertyListParser() throws Exception {
+        File projectDirectory = new File(tmp.getRoot(), "Project.xcodeproj");
+        new SyntheticXcodeProject(2000).write(projectDirectory);
+        byte[] content = FileUtils.readFileToByteArray(new File(projectDirectory, "project.pbxproj"));
+        NSDictionary root = (NSDictionary)PropertyListParser.parse(content);
+        NSDictionary objects = (NSDictionary)root.objectForKey("objects");
+
+        PbxprojScanner scanner = new PbxprojScanner(ByteBuffer.wrap(content));
+        assertEquals(root.objectForKey("rootObject").toString(), scanner.getRootObject());
+        for ( String uuid : objects.allKeys() ) {
+            assertEquals(uuid, withLists(objects.objectForKey(uuid).toJavaObject()), scanner.getObject(uuid));
+        }
+        assertNull(scanner.getObject("000000000000000000000000"));
+    }
+
+    // dd-plist has arrays where the scanner has lists.
+    private static Object withLists(Object value) {
+        if ( value instanceof Object[] ) {
+            List<Object> list = new ArrayList<Object>();
+            for ( Object element : (Object[])value ) {
+                list.add(withLists(element));
+            }
+            return list;
+        }
+        if ( value instanceof Map ) {
+            Map<String, Object> dictionary = PbxprojScanner.dictionary(value);
+            for ( Map.Entry<String, Object> entry : dictionary.entrySet() ) {
+                entry.setValue(withLists(entry.getValue()));
+            }
+        }
+        return value;
+    }
+
+    @Test
+    public void shouldDecodeQuotedStrings() throws Exception {
+        PbxprojScanner scanner = new PbxprojScanner(buffer("// !$*UTF8*$!\n{\n"
+            + "\tobjects = {\n"
+            + "\t\tA /* comment with ; and } */ = {isa = PBXFileReference; path = \"na\\\"me\\\\with\\tescapes\\U00e9\"; name = \"日本\"; "
+            + "list = (a, \"b c\", ); empty = \"\"; data = <0fbd 7780>; };\n"
+            + "\t};\n"
+            + "\trootObject = A;\n}\n"));
+        Map<String, Object> object = scanner.getObject("A");
+        assertEquals("na\"me\\with\tescapesé", object.get("path"));
+        assertEquals("日本", object.get("name"));
+        assertEquals(Arrays.<Object>asList("a", "b c"), object.get("list"));
+        assertEquals("", object.get("empty"));
+        assertEquals("<0fbd 7780>", object.get("data"));
+    }
+
+    @Test
+    public void shouldConvertXmlProject() throws Exception {
+        File projectDirectory = new File(tmp.getRoot(), "Project.xcodeproj");
+        new SyntheticXcodeProject(1000).write(projectDirectory);
+        NSDictionary root = (NSDictionary)PropertyListParser.parse(new File(projectDirectory, "project.pbxproj"));
+        PbxprojScanner scanner = PbxprojScanner.open(buffer(root.toXMLPropertyList()));
+        assertEquals(root.objectForKey("rootObject").toString(), scanner.getRootObject());
+        assertNotNull(scanner.getObject(scanner.getRootObject()));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailOnTruncatedProject() throws Exception {
+        new PbxprojScanner(buffer("{\n\tobjects = {\n\t\tA = {isa = PBXGroup; children = (B, "));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailWithoutRootObject() throws Exception {
+        new PbxprojScanner(buffer("{ objects = { }; }"));
+    }
+}
@@ -0,0 +1,98 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelinedOutputStreamTest {
+
+    /**
+     * A target that is slower than the producer, so the buffer fills up.
+     */
+    private static class SlowOutputStream extends ByteArrayOutputStream {
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            try {
+                Thread.sleep(1);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.write(b, off, len);
+        }
+    }
+
+    @Test
+    public void shouldDeliverAllBytesInOrder() throws Exception {
+        byte[] data = new byte[200000];
+        new Random(42).nextBytes(data);
+        SlowOutputStream target = new SlowOutputStream();
+        PipelinedOutputStream out = new PipelinedOutputStream(target, 4096);
+        Random chunks = new Random(7);
+        int pos = 0;
+        while(pos < data.length) {
+            if(chunks.nextInt(10) == 0) {
+                out.write(data[pos++]);
+            } else {
+                int len = Math.min(data.length - pos, chunks.nextInt(10000));
+                out.write(data, pos, len);
+                pos += len;
+            }
+            out.flush();
+        }
+        out.close();
+        assertArrayEquals(data, target.toByteArray());
+        assertEquals(4096, out.getMaxQueueDepth());
+        assertTrue(out.getStalls() > 0);
+        assertTrue(out.getStallTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void shouldReportConsumerFailure() throws Exception {
+        final IOException failure = new IOException("disk full");
+        PipelinedOutputStream out = new PipelinedOutputStream(new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw failure;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                throw failure;
+            }
+        }, 16);
+        try {
+            for(int i = 0; i < 1000; i++) {
+                out.write(new byte[10]);
+            }
+            out.close();
+            fail("The failure of the consumer should be thrown");
+        } catch(IOException e) {
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void shouldNotCloseTarget() throws Exception {
+        final boolean[] closed = { false };
+        PipelinedOutputStream out = new PipelinedOutputStream(new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                closed[0] = true;
+            }
+        });
+        out.write("** BUILD SUCCEEDED **\n".getBytes("UTF-8"));
+        out.close();
+        out.close();
+        assertEquals(false, closed[0]);
+    }
+}
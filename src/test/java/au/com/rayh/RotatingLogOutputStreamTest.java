@@ -0,0 +1,130 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import hudson.FilePath;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RotatingLogOutputStreamTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static byte[] line(int i) {
+        return ("CompileC /Users/jenkins/workspace/App/Sources/File" + i + ".m normal x86_64 objective-c\n").getBytes();
+    }
+
+    @Test
+    public void shouldWriteSingleFileWithoutMaxSize() throws Exception {
+        File dir = tmp.getRoot();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        RotatingLogOutputStream out = new RotatingLogOutputStream(new FilePath(dir), "xcodebuild.log", 0, true, new PrintStream(new ByteArrayOutputStream()));
+        for(int i = 0; i < 10000; i++) {
+            out.write(line(i));
+            expected.write(line(i));
+        }
+        out.close();
+        assertEquals(0, out.getSegments());
+        assertEquals(Arrays.asList("xcodebuild.log"), Arrays.asList(dir.list()));
+        assertArrayEquals(expected.toByteArray(), FileUtils.readFileToByteArray(new File(dir, "xcodebuild.log")));
+    }
+
+    @Test
+    public void shouldRotateAndCompressFullSegments() throws Exception {
+        File dir = tmp.getRoot();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        RotatingLogOutputStream out = new RotatingLogOutputStream(new FilePath(dir), "xcodebuild.log", 100 * 1024, true, new PrintStream(warnings));
+        for(int i = 0; i < 10000; i++) {
+            out.write(line(i));
+            expected.write(line(i));
+        }
+        out.write('\n');
+        expected.write('\n');
+        out.close();
+        assertEquals("", warnings.toString());
+
+        int segments = out.getSegments();
+        assertEquals(expected.size() / (100 * 1024), segments);
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        for(int segment = 1; segment <= segments; segment++) {
+            assertFalse(new File(dir, "xcodebuild.log." + segment).exists());
+            File compressed = new File(dir, "xcodebuild.log." + segment + ".gz");
+            assertTrue(compressed.exists());
+            try (InputStream in = new GZIPInputStream(new FileInputStream(compressed))) {
+                byte[] content = IOUtils.toByteArray(in);
+                assertTrue(content.length >= 100 * 1024);
+                actual.write(content);
+            }
+        }
+        actual.write(FileUtils.readFileToByteArray(new File(dir, "xcodebuild.log")));
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void shouldRotateWithoutCompression() throws IOException, InterruptedException {
+        File dir = tmp.getRoot();
+        RotatingLogOutputStream out = new RotatingLogOutputStream(new FilePath(dir), "xcodebuild.log", 1024, false, new PrintStream(new ByteArrayOutputStream()));
+        for(int i = 0; i < 100; i++) {
+            out.write(line(i));
+        }
+        out.close();
+        assertTrue(out.getSegments() > 1);
+        for(int segment = 1; segment <= out.getSegments(); segment++) {
+            assertTrue(new File(dir, "xcodebuild.log." + segment).exists());
+            assertFalse(new File(dir, "xcodebuild.log." + segment + ".gz").exists());
+        }
+    }
+
+    @Test
+    public void shouldDeleteOldestSegments() throws Exception {
+        File dir = tmp.getRoot();
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        RotatingLogOutputStream out = new RotatingLogOutputStream(new FilePath(dir), "xcodebuild.log", 1024, 3, false, new PrintStream(warnings));
+        for(int i = 0; i < 1000; i++) {
+            out.write(line(i));
+        }
+        out.close();
+        assertEquals("", warnings.toString());
+        int segments = out.getSegments();
+        assertTrue(segments > 3);
+        for(int segment = 1; segment <= segments; segment++) {
+            assertEquals(segment > segments - 3, new File(dir, "xcodebuild.log." + segment).exists());
+        }
+        assertEquals(4, dir.list().length);
+    }
+
+    @Test
+    public void shouldDeleteOldestCompressedSegments() throws Exception {
+        File dir = tmp.getRoot();
+        ByteArrayOutputStream warnings = new ByteArrayOutputStream();
+        RotatingLogOutputStream out = new RotatingLogOutputStream(new FilePath(dir), "xcodebuild.log", 10 * 1024, 2, true, new PrintStream(warnings));
+        for(int i = 0; i < 10000; i++) {
+            out.write(line(i));
+        }
+        out.close();
+        assertEquals("", warnings.toString());
+        int segments = out.getSegments();
+        assertTrue(segments > 2);
+        for(int segment = 1; segment <= segments; segment++) {
+            assertFalse(new File(dir, "xcodebuild.log." + segment).exists());
+            assertEquals(segment > segments - 2, new File(dir, "xcodebuild.log." + segment + ".gz").exists());
+        }
+        assertEquals(3, dir.list().length);
+    }
+}
@@ -0,0 +1,100 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.dd.plist.NSArray;
+import com.dd.plist.NSDictionary;
+import com.dd.plist.NSObject;
+import com.dd.plist.PropertyListParser;
+
+/**
+ * Generates TestSummaries.plist files of any size, laid out the way xcodebuild writes them:
+ * a testable containing "All tests", the .xctest bundle, then one group per test class holding the test cases.
+ */
+class SyntheticTestSummaries {
+    private final int testClasses;
+    private final int testsPerClass;
+    private int failureEvery = 0;
+
+    SyntheticTestSummaries(int testClasses, int testsPerClass) {
+        this.testClasses = testClasses;
+        this.testsPerClass = testsPerClass;
+    }
+
+    /**
+     * @param failureEvery make every n-th test a failure, 0 for none
+     */
+    SyntheticTestSummaries withFailureEvery(int failureEvery) {
+        this.failureEvery = failureEvery;
+        return this;
+    }
+
+    int getTestCount() {
+        return testClasses * testsPerClass;
+    }
+
+    NSDictionary create() {
+        NSObject[] classes = new NSObject[testClasses];
+        int testNumber = 0;
+        for ( int c = 0; c < testClasses; c++ ) {
+            String className = "SyntheticTests" + c;
+            NSObject[] tests = new NSObject[testsPerClass];
+            for ( int t = 0; t < testsPerClass; t++ ) {
+                testNumber++;
+                String testName = "testCase" + t;
+                NSDictionary test = group(testName, className + "/" + testName, "IDESchemeActionTestSummary", 0.001 * (t % 7));
+                if ( failureEvery > 0 && testNumber % failureEvery == 0 ) {
+                    test.put("TestStatus", "Failure");
+                    NSDictionary failure = new NSDictionary();
+                    failure.put("FileName", "/Users/jenkins/workspace/App/Tests/" + className + ".swift");
+                    failure.put("LineNumber", 42);
+                    failure.put("Message", "XCTAssertEqual failed: (\"1\") is not equal to (\"2\")");
+                    failure.put("PerformanceFailure", false);
+                    test.put("FailureSummaries", new NSArray(failure));
+                }
+                else {
+                    test.put("TestStatus", "Success");
+                }
+                tests[t] = test;
+            }
+            NSDictionary testClass = group(className, className, "IDESchemeActionTestSummaryGroup", 0.001 * testsPerClass);
+            testClass.put("Subtests", new NSArray(tests));
+            classes[c] = testClass;
+        }
+        NSDictionary bundle = group("SyntheticTests.xctest", "SyntheticTests.xctest", "IDESchemeActionTestSummaryGroup", 1.0);
+        bundle.put("Subtests", new NSArray(classes));
+        NSDictionary allTests = group("All tests", "All tests", "IDESchemeActionTestSummaryGroup", 1.0);
+        allTests.put("Subtests", new NSArray(bundle));
+
+        NSDictionary testable = new NSDictionary();
+        testable.put("DiagnosticsDirectory", "SyntheticTests-00000000-0000-0000-0000-000000000000");
+        testable.put("ProjectPath", "Synthetic.xcodeproj");
+        testable.put("TargetName", "SyntheticTests");
+        testable.put("TestName", "SyntheticTests");
+        testable.put("TestObjectClass", "IDESchemeActionTestableSummary");
+        testable.put("Tests", new NSArray(allTests));
+
+        NSDictionary root = new NSDictionary();
+        root.put("FormatVersion", "1.1");
+        root.put("TestableSummaries", new NSArray(testable));
+        return root;
+    }
+
+    void writeXML(File file) throws IOException {
+        PropertyListParser.saveAsXML(create(), file);
+    }
+
+    void writeBinary(File file) throws IOException {
+        PropertyListParser.saveAsBinary(create(), file);
+    }
+
+    private static NSDictionary group(String name, String identifier, String objectClass, double duration) {
+        NSDictionary test = new NSDictionary();
+        test.put("Duration", duration);
+        test.put("TestIdentifier", identifier);
+        test.put("TestName", name);
+        test.put("TestObjectClass", objectClass);
+        return test;
+    }
+}
@@ -0,0 +1,258 @@
+package au.com.rayh;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Generates Xcode projects of any size, written the way Xcode writes them: a project.pbxproj in the OpenStep format
+ * with its sections in order, a shared .xcscheme for each target, and a workspace referring to the project.
+ * Every target has its own source files, build phase, group and two build configurations, and one target in three
+ * of each kind: application, unit tests and framework.
+ */
+class SyntheticXcodeProject {
+    static final int FILES_PER_TARGET = 100;
+    // The native target, its product, configuration list, two configurations, sources phase and group.
+    private static final int OBJECTS_PER_TARGET = 7 + 2 * FILES_PER_TARGET;
+    // The identifiers of the objects of a target besides its files.
+    private static final int GROUP = 0;
+    private static final int PRODUCT = 1;
+    private static final int SOURCES = 2;
+    private static final int CONFIGURATION_LIST = 3;
+    private static final int DEBUG = 4;
+    private static final int RELEASE = 5;
+    private static final int FILE_IDS = 6;
+
+    private final int targets;
+    private long nextId = 0x643D8A462048FA93L;
+
+    /**
+     * @param objects the approximate number of objects in the project.pbxproj
+     */
+    SyntheticXcodeProject(int objects) {
+        this.targets = Math.max(3, objects / OBJECTS_PER_TARGET);
+    }
+
+    int getTargetCount() {
+        return targets;
+    }
+
+    static String targetName(int target) {
+        switch ( target % 3 ) {
+            case 0:
+                return "App" + target;
+            case 1:
+                return "App" + (target - 1) + "Tests";
+            default:
+                return "Framework" + target;
+        }
+    }
+
+    private static String productType(int target) {
+        switch ( target % 3 ) {
+            case 0:
+                return "com.apple.product-type.application";
+            case 1:
+                return "com.apple.product-type.bundle.unit-test";
+            default:
+                return "com.apple.product-type.framework";
+        }
+    }
+
+    private static String productName(int target) {
+        switch ( target % 3 ) {
+            case 0:
+                return targetName(target) + ".app";
+            case 1:
+                return targetName(target) + ".xctest";
+            default:
+                return targetName(target) + ".framework";
+        }
+    }
+
+    private String newId() {
+        return String.format("%016X00B90129", nextId++).substring(0, 24);
+    }
+
+    /**
+     * @param projectDirectory the .xcodeproj directory to create, the workspace is written next to it
+     */
+    void write(File projectDirectory) throws IOException {
+        File schemes = new File(projectDirectory, "xcshareddata/xcschemes");
+        File workspace = new File(projectDirectory.getParentFile(), "Workspace.xcworkspace");
+        if ( !schemes.isDirectory() && !schemes.mkdirs() || !workspace.isDirectory() && !workspace.mkdirs() ) {
+            throw new IOException("Cannot create " + projectDirectory);
+        }
+        String[] targetIds = new String[targets];
+        for ( int t = 0; t < targets; t++ ) {
+            targetIds[t] = newId();
+        }
+        for ( int t = 0; t < targets; t++ ) {
+            try (Writer out = writer(new File(schemes, targetName(t) + ".xcscheme"))) {
+                writeScheme(out, t, targetIds[t], projectDirectory.getName());
+            }
+        }
+        try (Writer out = writer(new File(workspace, "contents.xcworkspacedata"))) {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Workspace\n   version = \"1.0\">\n");
+            out.write("   <FileRef\n      location = \"group:" + projectDirectory.getName() + "\">\n   </FileRef>\n</Workspace>\n");
+        }
+        // Written last, its presence tells that the project is complete.
+        File pbxproj = new File(projectDirectory, "project.pbxproj");
+        File part = new File(projectDirectory, "project.pbxproj.part");
+        try (Writer out = writer(part)) {
+            writeProject(out, targetIds);
+        }
+        if ( !part.renameTo(pbxproj) ) {
+            throw new IOException("Cannot rename " + part + " to " + pbxproj);
+        }
+    }
+
+    private static Writer writer(File file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 64 * 1024);
+    }
+
+    private void writeProject(Writer out, String[] targetIds) throws IOException {
+        String projectId = newId();
+        String mainGroupId = newId();
+        String projectConfigurationListId = newId();
+        String[][] fileIds = new String[targets][FILE_IDS];
+        StringBuilder buildFiles = new StringBuilder();
+        StringBuilder fileReferences = new StringBuilder();
+        StringBuilder groups = new StringBuilder();
+        StringBuilder nativeTargets = new StringBuilder();
+        StringBuilder sourcesPhases = new StringBuilder();
+        StringBuilder configurations = new StringBuilder();
+        StringBuilder configurationLists = new StringBuilder();
+        StringBuilder targetAttributes = new StringBuilder();
+
+        groups.append("\t\t").append(mainGroupId).append(" = {\n\t\t\tisa = PBXGroup;\n\t\t\tchildren = (\n");
+        for ( int t = 0; t < targets; t++ ) {
+            String[] ids = fileIds[t];
+            for ( int i = 0; i < FILE_IDS; i++ ) {
+                ids[i] = newId();
+            }
+            groups.append("\t\t\t\t").append(ids[GROUP]).append(" /* ").append(targetName(t)).append(" */,\n");
+        }
+        groups.append("\t\t\t);\n\t\t\tsourceTree = \"<group>\";\n\t\t};\n");
+
+        for ( int t = 0; t < targets; t++ ) {
+            String name = targetName(t);
+            String[] ids = fileIds[t];
+            StringBuilder groupChildren = new StringBuilder();
+            StringBuilder phaseFiles = new StringBuilder();
+            for ( int f = 0; f < FILES_PER_TARGET; f++ ) {
+                String fileRef = newId();
+                String buildFile = newId();
+                String file = name + "File" + f + (f % 2 == 0 ? ".m" : ".swift");
+                String type = f % 2 == 0 ? "sourcecode.c.objc" : "sourcecode.swift";
+                buildFiles.append("\t\t").append(buildFile).append(" /* ").append(file).append(" in Sources */ = {isa = PBXBuildFile; fileRef = ")
+                    .append(fileRef).append(" /* ").append(file).append(" */; };\n");
+                fileReferences.append("\t\t").append(fileRef).append(" /* ").append(file).append(" */ = {isa = PBXFileReference; lastKnownFileType = ")
+                    .append(type).append("; path = ").append(file).append("; sourceTree = \"<group>\"; };\n");
+                groupChildren.append("\t\t\t\t").append(fileRef).append(" /* ").append(file).append(" */,\n");
+                phaseFiles.append("\t\t\t\t").append(buildFile).append(" /* ").append(file).append(" in Sources */,\n");
+            }
+            fileReferences.append("\t\t").append(ids[PRODUCT]).append(" /* ").append(productName(t)).append(" */ = {isa = PBXFileReference; explicitFileType = wrapper; includeInIndex = 0; path = ")
+                .append(productName(t)).append("; sourceTree = BUILT_PRODUCTS_DIR; };\n");
+            groups.append("\t\t").append(ids[GROUP]).append(" /* ").append(name).append(" */ = {\n\t\t\tisa = PBXGroup;\n\t\t\tchildren = (\n")
+                .append(groupChildren).append("\t\t\t);\n\t\t\tpath = ").append(name).append(";\n\t\t\tsourceTree = \"<group>\";\n\t\t};\n");
+            sourcesPhases.append("\t\t").append(ids[SOURCES]).append(" /* Sources */ = {\n\t\t\tisa = PBXSourcesBuildPhase;\n\t\t\tbuildActionMask = 2147483647;\n\t\t\tfiles = (\n")
+                .append(phaseFiles).append("\t\t\t);\n\t\t\trunOnlyForDeploymentPostprocessing = 0;\n\t\t};\n");
+            nativeTargets.append("\t\t").append(targetIds[t]).append(" /* ").append(name).append(" */ = {\n\t\t\tisa = PBXNativeTarget;\n")
+                .append("\t\t\tbuildConfigurationList = ").append(ids[CONFIGURATION_LIST]).append(" /* Build configuration list for PBXNativeTarget \"").append(name).append("\" */;\n")
+                .append("\t\t\tbuildPhases = (\n\t\t\t\t").append(ids[SOURCES]).append(" /* Sources */,\n\t\t\t);\n")
+                .append("\t\t\tbuildRules = (\n\t\t\t);\n\t\t\tdependencies = (\n\t\t\t);\n")
+                .append("\t\t\tname = ").append(name).append(";\n\t\t\tproductName = ").append(name).append(";\n")
+                .append("\t\t\tproductReference = ").append(ids[PRODUCT]).append(" /* ").append(productName(t)).append(" */;\n")
+                .append("\t\t\tproductType = \"").append(productType(t)).append("\";\n\t\t};\n");
+            // One application in ten is signed manually.
+            boolean manual = t % 30 == 0;
+            for ( int c = 0; c < 2; c++ ) {
+                String configuration = c == 0 ? "Debug" : "Release";
+                configurations.append("\t\t").append(ids[DEBUG + c]).append(" /* ").append(configuration).append(" */ = {\n\t\t\tisa = XCBuildConfiguration;\n\t\t\tbuildSettings = {\n")
+                    .append("\t\t\t\tCODE_SIGN_STYLE = ").append(manual ? "Manual" : "Automatic").append(";\n")
+                    .append("\t\t\t\tDEVELOPMENT_TEAM = ABCDE12345;\n")
+                    .append("\t\t\t\tINFOPLIST_FILE = ").append(name).append("/Info.plist;\n")
+                    .append("\t\t\t\tLD_RUNPATH_SEARCH_PATHS = \"$(inherited) @executable_path/Frameworks\";\n")
+                    .append("\t\t\t\tPRODUCT_BUNDLE_IDENTIFIER = \"com.example.").append(name).append("\";\n")
+                    .append("\t\t\t\tPRODUCT_NAME = \"$(TARGET_NAME)\";\n");
+                if ( manual ) {
+                    configurations.append("\t\t\t\tPROVISIONING_PROFILE = \"00000000-0000-0000-0000-00000000000").append(c).append("\";\n")
+                        .append("\t\t\t\tPROVISIONING_PROFILE_SPECIFIER = \"").append(name).append(' ').append(configuration).append("\";\n");
+                }
+                if ( t % 3 == 1 ) {
+                    configurations.append("\t\t\t\tBUNDLE_LOADER = \"$(TEST_HOST)\";\n")
+                        .append("\t\t\t\tTEST_HOST = \"$(BUILT_PRODUCTS_DIR)/").append(targetName(t - 1)).append(".app/").append(targetName(t - 1)).append("\";\n");
+                }
+                configurations.append("\t\t\t\tTARGETED_DEVICE_FAMILY = \"1,2\";\n\t\t\t};\n\t\t\tname = ").append(configuration).append(";\n\t\t};\n");
+            }
+            configurationLists.append("\t\t").append(ids[CONFIGURATION_LIST]).append(" /* Build configuration list for PBXNativeTarget \"").append(name).append("\" */ = {\n")
+                .append("\t\t\tisa = XCConfigurationList;\n\t\t\tbuildConfigurations = (\n")
+                .append("\t\t\t\t").append(ids[DEBUG]).append(" /* Debug */,\n\t\t\t\t").append(ids[RELEASE]).append(" /* Release */,\n\t\t\t);\n")
+                .append("\t\t\tdefaultConfigurationIsVisible = 0;\n\t\t\tdefaultConfigurationName = Release;\n\t\t};\n");
+            targetAttributes.append("\t\t\t\t\t").append(targetIds[t]).append(" = {\n\t\t\t\t\t\tCreatedOnToolsVersion = 9.2;\n")
+                .append("\t\t\t\t\t\tProvisioningStyle = ").append(manual ? "Manual" : "Automatic").append(";\n");
+            if ( t % 3 == 1 ) {
+                targetAttributes.append("\t\t\t\t\t\tTestTargetID = ").append(targetIds[t - 1]).append(";\n");
+            }
+            targetAttributes.append("\t\t\t\t\t};\n");
+        }
+        configurationLists.append("\t\t").append(projectConfigurationListId).append(" /* Build configuration list for PBXProject \"Project\" */ = {\n")
+            .append("\t\t\tisa = XCConfigurationList;\n\t\t\tbuildConfigurations = (\n\t\t\t);\n")
+            .append("\t\t\tdefaultConfigurationIsVisible = 0;\n\t\t\tdefaultConfigurationName = Release;\n\t\t};\n");
+
+        out.write("// !$*UTF8*$!\n{\n\tarchiveVersion = 1;\n\tclasses = {\n\t};\n\tobjectVersion = 48;\n\tobjects = {\n");
+        section(out, "PBXBuildFile", buildFiles);
+        section(out, "PBXFileReference", fileReferences);
+        section(out, "PBXGroup", groups);
+        section(out, "PBXNativeTarget", nativeTargets);
+        out.write("\n/* Begin PBXProject section */\n");
+        out.write("\t\t" + projectId + " /* Project object */ = {\n\t\t\tisa = PBXProject;\n\t\t\tattributes = {\n\t\t\t\tLastUpgradeCheck = 0920;\n\t\t\t\tTargetAttributes = {\n");
+        out.write(targetAttributes.toString());
+        out.write("\t\t\t\t};\n\t\t\t};\n\t\t\tbuildConfigurationList = " + projectConfigurationListId + " /* Build configuration list for PBXProject \"Project\" */;\n");
+        out.write("\t\t\tcompatibilityVersion = \"Xcode 8.0\";\n\t\t\tdevelopmentRegion = en;\n\t\t\thasScannedForEncodings = 0;\n");
+        out.write("\t\t\tmainGroup = " + mainGroupId + ";\n\t\t\tprojectDirPath = \"\";\n\t\t\tprojectRoot = \"\";\n\t\t\ttargets = (\n");
+        for ( int t = 0; t < targets; t++ ) {
+            out.write("\t\t\t\t" + targetIds[t] + " /* " + targetName(t) + " */,\n");
+        }
+        out.write("\t\t\t);\n\t\t};\n/* End PBXProject section */\n");
+        section(out, "PBXSourcesBuildPhase", sourcesPhases);
+        section(out, "XCBuildConfiguration", configurations);
+        section(out, "XCConfigurationList", configurationLists);
+        out.write("\t};\n\trootObject = " + projectId + " /* Project object */;\n}\n");
+    }
+
+    private static void section(Writer out, String isa, CharSequence objects) throws IOException {
+        out.write("\n/* Begin " + isa + " section */\n");
+        out.append(objects);
+        out.write("/* End " + isa + " section */\n");
+    }
+
+    private static void writeScheme(Writer out, int target, String targetId, String container) throws IOException {
+        String reference = "            <BuildableReference\n"
+            + "               BuildableIdentifier = \"primary\"\n"
+            + "               BlueprintIdentifier = \"" + targetId + "\"\n"
+            + "               BuildableName = \"" + productName(target) + "\"\n"
+            + "               BlueprintName = \"" + targetName(target) + "\"\n"
+            + "               ReferencedContainer = \"container:" + container + "\">\n"
+            + "            </BuildableReference>\n";
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Scheme\n   LastUpgradeVersion = \"0920\"\n   version = \"1.3\">\n");
+        out.write("   <BuildAction\n      parallelizeBuildables = \"YES\"\n      buildImplicitDependencies = \"YES\">\n      <BuildActionEntries>\n");
+        out.write("         <BuildActionEntry\n            buildForTesting = \"YES\"\n            buildForRunning = \"YES\"\n            buildForProfiling = \"YES\"\n"
+            + "            buildForArchiving = \"YES\"\n            buildForAnalyzing = \"YES\">\n");
+        out.write(reference);
+        out.write("         </BuildActionEntry>\n      </BuildActionEntries>\n   </BuildAction>\n");
+        out.write("   <TestAction\n      buildConfiguration = \"Debug\"\n      selectedDebuggerIdentifier = \"Xcode.DebuggerFoundation.Debugger.LLDB\"\n"
+            + "      selectedLauncherIdentifier = \"Xcode.DebuggerFoundation.Launcher.LLDB\"\n      shouldUseLaunchSchemeArgsEnv = \"YES\">\n");
+        out.write("      <Testables>\n      </Testables>\n      <AdditionalOptions>\n      </AdditionalOptions>\n   </TestAction>\n");
+        out.write("   <LaunchAction\n      buildConfiguration = \"Debug\"\n      launchStyle = \"0\"\n      useCustomWorkingDirectory = \"NO\">\n");
+        out.write("      <BuildableProductRunnable\n         runnableDebuggingMode = \"0\">\n");
+        out.write(reference.replace("            ", "         "));
+        out.write("      </BuildableProductRunnable>\n   </LaunchAction>\n");
+        out.write("   <ArchiveAction\n      buildConfiguration = \"Release\"\n      revealArchiveInOrganizer = \"YES\">\n   </ArchiveAction>\n</Scheme>\n");
+    }
+}
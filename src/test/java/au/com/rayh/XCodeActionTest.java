@@ -0,0 +1,38 @@
+package au.com.rayh;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class XCodeActionTest {
+    @Test
+    public void shouldRecordPhasesInOrder() throws Exception {
+        XCodeAction action = new XCodeAction(null);
+        action.startPhase("versionQuery");
+        action.startPhase("build");
+        Thread.sleep(20);
+        action.endPhase();
+        action.setBuildDescription("1.0 (1)");
+
+        List<XCodeAction.Phase> phases = action.getPhases();
+        assertEquals(2, phases.size());
+        assertEquals("versionQuery", phases.get(0).getName());
+        assertEquals("build", phases.get(1).getName());
+        assertTrue(phases.get(1).getDurationMillis() >= 20);
+        assertTrue(phases.get(1).getStartMillis() >= phases.get(0).getStartMillis() + phases.get(0).getDurationMillis());
+        assertEquals("1.0 (1)", action.getBuildDescription());
+    }
+
+    @Test
+    public void shouldNotRecordPhaseTwice() throws Exception {
+        XCodeAction action = new XCodeAction(null);
+        action.endPhase();
+        action.startPhase("build");
+        action.endPhase();
+        action.endPhase();
+
+        assertEquals(1, action.getPhases().size());
+    }
+}
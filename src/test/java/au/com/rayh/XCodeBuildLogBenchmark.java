@@ -0,0 +1,80 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to parse a whole xcodebuild log of several GB, written to the parser in the 64K chunks the launcher uses.
+ * Unlike {@link XCodeBuildOutputParserBenchmark} the log is read from the disk and does not fit in memory,
+ * so this one shows whether the parser keeps up with the output and whether anything it keeps grows with the log.
+ * Run it with -prof gc to see the allocation rate, and -p megabytes=N to change the size.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class XCodeBuildLogBenchmark {
+    private static final int CHUNK = 64 * 1024;
+
+    @Param("4096")
+    public int megabytes;
+
+    private File log;
+    private File testReports;
+    private byte[] chunk;
+
+    @Setup(Level.Trial)
+    public void createLog() throws IOException {
+        log = new BenchmarkCorpus().xcodebuildLog(megabytes);
+        testReports = Files.createTempDirectory("test-reports").toFile();
+        chunk = new byte[CHUNK];
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTestReports() throws IOException {
+        FileUtils.deleteDirectory(testReports);
+    }
+
+    @Benchmark
+    public int parseLog() throws IOException, InterruptedException, JAXBException {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(testReports, new NullOutputStream()) {
+            @Override
+            protected OutputStream outputForSuite() {
+                return new NullOutputStream();
+            }
+        };
+        try (InputStream in = new FileInputStream(log); OutputStream out = parser.getOutputStream()) {
+            int read;
+            while ( (read = in.read(chunk)) > 0 ) {
+                out.write(chunk, 0, read);
+            }
+        }
+        parser.closeTestReports();
+        return parser.getExitCode();
+    }
+}
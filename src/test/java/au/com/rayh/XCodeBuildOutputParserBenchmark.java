@@ -0,0 +1,153 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lines/sec of the xcodebuild output parser on a 1M-line log.
+ * {@code regexCascade} runs every pattern against every line, which is what handleLine did before it
+ * rejected lines by their literal prefix/keyword first; {@code prefixDispatch} runs the current parser.
+ * Set -Dxcode.benchmark.log=/path/to/xcodebuild.log to use a recorded log instead of the synthetic one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XCodeBuildOutputParserBenchmark {
+    static final int LINES = 1000000;
+
+    private static final Pattern[] LEGACY_PATTERNS = {
+        Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+started at\\s+(.*)"),
+        Pattern.compile("Test Suite '([^\\/](?:\\.|[^'\\\\])*)'\\s+\\S+\\s+at\\s+(.*)."),
+        Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' started."),
+        Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' passed \\((.*) seconds\\)."),
+        Pattern.compile("(.*): error: -\\[(\\S+)\\s+(\\S+)\\] : (.*)"),
+        Pattern.compile(".*?Assertion Failure: (.+:\\d+): (.*)"),
+        Pattern.compile("Test Case '-\\[(\\S+)\\s+(\\S+)\\]' failed \\((\\S+) seconds\\)."),
+        Pattern.compile("failed with exit code (\\d+)"),
+    };
+    private static final Pattern LEGACY_TERMINATING_EXCEPTION = Pattern.compile(".*\\*\\*\\* Terminating app due to uncaught exception '(\\S+)', reason: '(.+[^\\\\])'.*");
+
+    private byte[] log;
+    private int[] lineStarts;
+    private XCodeBuildOutputParser parser;
+
+    @Setup(Level.Trial)
+    public void loadLog() throws IOException {
+        String recordedLog = System.getProperty("xcode.benchmark.log");
+        byte[] source = recordedLog != null ? Files.readAllBytes(new File(recordedLog).toPath()) : syntheticLog();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(source.length);
+        lineStarts = new int[LINES + 1];
+        int lines = 0;
+        while(lines < LINES) {
+            int start = 0;
+            for(int i = 0; i < source.length && lines < LINES; i++) {
+                if(source[i] == '\n') {
+                    lineStarts[lines++] = out.size();
+                    out.write(source, start, i + 1 - start);
+                    start = i + 1;
+                }
+            }
+            if(lines == 0) {
+                throw new IOException("No complete lines in the benchmark log");
+            }
+        }
+        lineStarts[LINES] = out.size();
+        log = out.toByteArray();
+    }
+
+    @Setup(Level.Invocation)
+    public void newParser() {
+        parser = new XCodeBuildOutputParser() {
+            @Override
+            protected OutputStream outputForSuite() {
+                return new NullOutputStream();
+            }
+        };
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void regexCascade(Blackhole blackhole) {
+        for(int i = 0; i < LINES; i++) {
+            String line = new String(log, lineStarts[i], lineStarts[i + 1] - lineStarts[i] - 1, StandardCharsets.UTF_8);
+            boolean matched = false;
+            for(Pattern pattern : LEGACY_PATTERNS) {
+                Matcher m = pattern.matcher(line);
+                if(m.matches()) {
+                    matched = true;
+                    break;
+                }
+            }
+            if(!matched) {
+                matched = line.matches("BUILD FAILED") || line.matches("\\*\\* TEST FAILED \\*\\*");
+                matched |= LEGACY_TERMINATING_EXCEPTION.matcher(line).matches();
+            }
+            blackhole.consume(matched);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public int prefixDispatch() throws Exception {
+        for(int i = 0; i < LINES; i++) {
+            parser.handleLine(log, lineStarts[i], lineStarts[i + 1] - lineStarts[i] - 1);
+        }
+        return parser.getExitCode();
+    }
+
+    /**
+     * Compiler output with a passing XCTest run mixed in, roughly one test line per hundred lines of output.
+     */
+    static byte[] syntheticLog() throws IOException {
+        byte[] testRun;
+        try (InputStream in = XCodeBuildOutputParserBenchmark.class.getResourceAsStream("/XCTest_output_passing_1.txt")) {
+            testRun = IOUtils.toByteArray(in);
+        }
+        StringBuilder compilerOutput = new StringBuilder();
+        for(int file = 0; file < 1000; file++) {
+            String source = "/Users/jenkins/workspace/App/Sources/Module" + (file % 17) + "/File" + file + ".m";
+            String object = "/Users/jenkins/Library/Developer/Xcode/DerivedData/App-bqzfhxwlsdgcunbhgjeqflsmzvnh/Build/Intermediates.noindex/App.build/Debug-iphonesimulator/App.build/Objects-normal/x86_64/File" + file + ".o";
+            compilerOutput.append("CompileC ").append(object).append(' ').append(source).append(" normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler\n");
+            compilerOutput.append("    cd /Users/jenkins/workspace/App\n");
+            compilerOutput.append("    export LANG=en_US.US-ASCII\n");
+            compilerOutput.append("    export PATH=\"/Applications/Xcode.app/Contents/Developer/Platforms/iPhoneSimulator.platform/Developer/usr/bin:/Applications/Xcode.app/Contents/Developer/usr/bin:/usr/local/bin:/usr/bin:/bin\"\n");
+            compilerOutput.append("    /Applications/Xcode.app/Contents/Developer/Toolchains/XcodeDefault.xctoolchain/usr/bin/clang -x objective-c -arch x86_64 -fmessage-length=0 -fdiagnostics-show-note-include-stack -fmacro-backtrace-limit=0 -std=gnu11 -fobjc-arc -fmodules -gmodules -Wnon-modular-include-in-framework-module -Werror=non-modular-include-in-framework-module -O0 -DDEBUG=1 -isysroot /Applications/Xcode.app/Contents/Developer/Platforms/iPhoneSimulator.platform/Developer/SDKs/iPhoneSimulator.sdk -c ").append(source).append(" -o ").append(object).append('\n');
+            if(file % 10 == 0) {
+                compilerOutput.append(source).append(":42:9: warning: unused variable 'result' [-Wunused-variable]\n");
+                compilerOutput.append("    NSString *result = [self description];\n");
+                compilerOutput.append("              ^\n");
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(compilerOutput.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(testRun);
+        return out.toByteArray();
+    }
+}
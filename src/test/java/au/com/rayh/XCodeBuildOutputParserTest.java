@@ -32,20 +32,46 @@ package au.com.rayh;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import hudson.Proc;
 import hudson.util.IOUtils;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  *
  * @author ray
  */
 public class XCodeBuildOutputParserTest {
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
     OutputParserTests test;
 
     @Before
@@ -108,6 +134,351 @@ public class XCodeBuildOutputParserTest {
     	test.shouldParseFailedTestCase();
     }
 
+    @Test
+    public void shouldParseLineSplitAcrossWrites() throws Exception {
+    	test.shouldParseLineSplitAcrossWrites();
+    }
+
+    @Test
+    public void shouldOnlySelectLinesThatCanMatch() {
+        assertTrue(isCandidateLine("Test Suite 'All tests' started at 2014-12-12 04:48:53 +0000"));
+        assertTrue(isCandidateLine("Test Case '-[CardTestCase testMatchesForAtLeastOneCard]' passed (0.000 seconds)."));
+        assertTrue(isCandidateLine("/Users/ray/PisClientTestCase.m:21: error: -[PisClientTestCase testThatFails] : always fails"));
+        assertTrue(isCandidateLine("t =    29.77s             Assertion Failure: AppUITests.m:31: UI Testing Failure"));
+        assertTrue(isCandidateLine("failed with exit code 65"));
+        assertTrue(isCandidateLine("** TEST FAILED **"));
+        assertTrue(isCandidateLine("2015-01-01 App[123] *** Terminating app due to uncaught exception 'NSException', reason: 'boom'"));
+        assertFalse(isCandidateLine("CompileC /tmp/File.o /tmp/File.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler"));
+        assertFalse(isCandidateLine("/tmp/File.m:42:9: warning: unused variable 'result' [-Wunused-variable]"));
+        assertFalse(isCandidateLine("Test Suite"));
+        assertFalse(isCandidateLine(""));
+    }
+
+    @Test
+    public void shouldOnlySelectLinesThatCanBeBuildEvents() {
+        assertTrue(isBuildEventLine("CompileC /tmp/File.o /tmp/File.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler"));
+        assertTrue(isBuildEventLine("=== BUILD TARGET App OF PROJECT App WITH CONFIGURATION Debug ==="));
+        assertTrue(isBuildEventLine("/tmp/File.m:42:9: warning: unused variable 'result' [-Wunused-variable]"));
+        assertTrue(isBuildEventLine("ld: error: symbol(s) not found for architecture x86_64"));
+        assertFalse(isBuildEventLine("    cd /Users/jenkins/workspace/App"));
+        assertFalse(isBuildEventLine("    /Applications/Xcode.app/Contents/Developer/usr/bin/clang -x objective-c -c /tmp/File.m"));
+        assertFalse(isBuildEventLine(""));
+    }
+
+    private static boolean isBuildEventLine(String line) {
+        byte[] bytes = ("  " + line + "  ").getBytes(StandardCharsets.UTF_8);
+        return XCodeBuildOutputParser.isBuildEventLine(bytes, 2, bytes.length - 4);
+    }
+
+    @Test
+    public void shouldFindFileOfBuildStep() {
+        assertEquals("/Users/jenkins/App/My Card.m", XCodeBuildOutputParser.argument("CompileC /tmp/My\\ Card.o /Users/jenkins/App/My\\ Card.m normal x86_64 objective-c", 2));
+        assertEquals("/tmp/Card.swift", XCodeBuildOutputParser.argument("CompileSwift normal x86_64 /tmp/Card.swift (in target 'App' from project 'App')", 3));
+        assertEquals(null, XCodeBuildOutputParser.argument("CompileSwift normal x86_64 (in target 'App' from project 'App')", 3));
+        assertEquals(null, XCodeBuildOutputParser.argument("Ld", 1));
+    }
+
+    @Test
+    public void shouldWriteBuildEvents() throws IOException {
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        parser.setBuildEventListener(new BuildEventWriter(events));
+        String build = "=== BUILD TARGET UnitTestsCardExample OF PROJECT UnitTestsCardExample WITH CONFIGURATION Debug ===\n"
+            + "CompileC /tmp/Card.o /Users/jenkins/App/Card.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler\n"
+            + "    cd /Users/jenkins/App\n"
+            + "/Users/jenkins/App/Card.m:42:9: warning: unused variable \"result\" [-Wunused-variable]\n"
+            + "CompileSwift normal x86_64 /Users/jenkins/App/Deck.swift (in target 'UnitTestsCardExampleTests' from project 'UnitTestsCardExample')\n";
+        parser.captureOutputStream.write(build.getBytes(StandardCharsets.UTF_8));
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.captureOutputStream);
+        parser.closeBuildEvents();
+
+        String[] lines = events.toString("UTF-8").split("\n");
+        assertTrue(lines[0].startsWith("{\"type\":\"targetStarted\",\"time\":"));
+        assertTrue(lines[0].endsWith(",\"target\":\"UnitTestsCardExample\",\"project\":\"UnitTestsCardExample\"}"));
+        assertTrue(lines[1].endsWith(",\"step\":\"CompileC\",\"target\":\"UnitTestsCardExample\",\"file\":\"/Users/jenkins/App/Card.m\"}"));
+        assertTrue(lines[2].endsWith(",\"severity\":\"warning\",\"location\":\"/Users/jenkins/App/Card.m:42:9\",\"message\":\"unused variable \\\"result\\\" [-Wunused-variable]\"}"));
+        assertTrue(lines[3].startsWith("{\"type\":\"stepFinished\""));
+        assertTrue(lines[4].endsWith(",\"target\":\"UnitTestsCardExampleTests\",\"project\":\"UnitTestsCardExample\"}"));
+        assertTrue(lines[5].endsWith(",\"step\":\"CompileSwift\",\"target\":\"UnitTestsCardExampleTests\",\"file\":\"/Users/jenkins/App/Deck.swift\"}"));
+        assertTrue(lines[6].startsWith("{\"type\":\"stepFinished\""));
+        assertTrue(lines[7].endsWith(",\"suite\":\"All tests\"}"));
+        int started = 0;
+        int passed = 0;
+        int failed = 0;
+        int failures = 0;
+        for(String line : lines) {
+            assertTrue(line.startsWith("{") && line.endsWith("}"));
+            if(line.startsWith("{\"type\":\"testCaseStarted\"")) {
+                started++;
+            } else if(line.startsWith("{\"type\":\"testCaseFinished\"")) {
+                if(line.contains(",\"passed\":true,")) {
+                    passed++;
+                } else {
+                    failed++;
+                }
+            } else if(line.startsWith("{\"type\":\"testFailure\"")) {
+                failures++;
+            }
+        }
+        assertEquals(started, passed + failed);
+        assertTrue(failed > 0);
+        assertEquals(failed, failures);
+        assertTrue(lines[lines.length - 1].startsWith("{\"type\":\"buildFailed\""));
+    }
+
+    @Test
+    public void shouldWriteCondensedConsole() throws IOException {
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(new File("."), new ByteArrayOutputStream());
+        parser.addBuildEventListener(new BuildEventWriter(events));
+        parser.addBuildEventListener(new CondensedConsoleWriter(new PrintStream(console, true, "UTF-8")));
+        String build = "=== BUILD TARGET UnitTestsCardExample OF PROJECT UnitTestsCardExample WITH CONFIGURATION Debug ===\n"
+            + "CompileC /tmp/Card.o /Users/jenkins/App/Card.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler\n"
+            + "/Users/jenkins/App/Card.m:42:9: warning: unused variable \"result\" [-Wunused-variable]\n"
+            + "CompileC /tmp/Deck.o /Users/jenkins/App/Deck.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler\n"
+            + "Ld /tmp/UnitTestsCardExample normal x86_64\n"
+            + "CodeSign /tmp/UnitTestsCardExample.app\n";
+        parser.captureOutputStream.write(build.getBytes(StandardCharsets.UTF_8));
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.captureOutputStream);
+        parser.closeBuildEvents();
+
+        String[] lines = console.toString("UTF-8").split("\n");
+        assertEquals("/Users/jenkins/App/Card.m:42:9: warning: unused variable \"result\" [-Wunused-variable]", lines[0]);
+        assertEquals(Messages.CondensedConsoleWriter_TargetSummary("UnitTestsCardExample", "UnitTestsCardExample", 2, 1, 1, 0, 1, 0, 0), lines[1]);
+        assertTrue(lines[lines.length - 1].endsWith("FAILED **"));
+        int failedTests = 0;
+        String allTests = null;
+        for(String line : lines) {
+            assertFalse(line.startsWith("CompileC "));
+            if(line.startsWith("Test Case ") && line.contains(" failed (")) {
+                failedTests++;
+            }
+            if(line.startsWith("Test Suite All tests: ")) {
+                allTests = line;
+            }
+        }
+        assertTrue(failedTests > 0);
+        assertTrue(allTests.endsWith(", " + failedTests + " failures."));
+        // The events are still written next to the condensed console.
+        assertTrue(events.toString("UTF-8").startsWith("{\"type\":\"targetStarted\""));
+    }
+
+    @Test
+    public void shouldMergeInterleavedParallelTestOutput() throws IOException {
+        File reports = tmp.newFolder("test-reports");
+        ByteArrayOutputStream events = new ByteArrayOutputStream();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reports, new ByteArrayOutputStream());
+        parser.setBuildEventListener(new BuildEventWriter(events));
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_parallel_1.txt"), parser.captureOutputStream);
+        parser.closeBuildEvents();
+        assertEquals(-1, parser.getExitCode());
+
+        String card = FileUtils.readFileToString(new File(reports, "TEST-CardTestCase.xml"), "UTF-8");
+        assertTrue(card.contains("tests=\"2\""));
+        assertTrue(card.contains("failures=\"0\""));
+        String deck = FileUtils.readFileToString(new File(reports, "TEST-DeckTestCase.xml"), "UTF-8");
+        assertTrue(deck.contains("tests=\"3\""));
+        assertTrue(deck.contains("failures=\"1\""));
+        assertTrue(deck.contains("((card) != nil) failed"));
+        // Swift test cases are reported without their module, and their failures with it.
+        String playingCard = FileUtils.readFileToString(new File(reports, "TEST-PlayingCardTestCase.xml"), "UTF-8");
+        assertTrue(playingCard.contains("tests=\"2\""));
+        assertTrue(playingCard.contains("failures=\"1\""));
+        assertTrue(playingCard.contains("is not equal to"));
+        assertEquals(3, reports.list().length);
+
+        String[] lines = events.toString("UTF-8").split("\n");
+        assertTrue(lines[lines.length - 1].startsWith("{\"type\":\"buildFailed\""));
+    }
+
+    @Test
+    public void shouldPublishLiveTestResults() throws Exception {
+        LiveTestResultsAction results = new LiveTestResultsAction();
+        assertNull(results.getIconFileName());
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(tmp.newFolder(), new ByteArrayOutputStream());
+        parser.addBuildEventListener(new LiveTestResultsWriter(results));
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_complex_1.txt"), parser.captureOutputStream);
+        parser.closeBuildEvents();
+
+        assertEquals(25, results.getTests());
+        assertEquals("clipboard.png", results.getIconFileName());
+        assertEquals(5, results.getFailures());
+        assertEquals(0, results.getErrors());
+        assertEquals(5, results.getFailedTests().size());
+        assertEquals("RaiseAnExceptionTests.testExample1", results.getFailedTests().get(0));
+        assertEquals("XCUITests_ExampleUITestsFail.testExample", results.getFailedTests().get(4));
+    }
+
+    @Test
+    public void shouldAbortAfterFailedTests() throws Exception {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        AbortPolicy abortPolicy = new AbortPolicy(new PrintStream(console, true, "UTF-8"));
+        abortPolicy.setMaxFailedTests(2);
+        KilledProc process = new KilledProc();
+        abortPolicy.setProcess(process);
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(tmp.newFolder(), new ByteArrayOutputStream());
+        parser.addBuildEventListener(abortPolicy);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_complex_1.txt"), parser.captureOutputStream);
+
+        assertTrue(process.killed.await(10, TimeUnit.SECONDS));
+        assertEquals(Messages.AbortPolicy_MaxFailedTests(2), abortPolicy.getReason());
+        assertEquals(Messages.AbortPolicy_Aborting(Messages.AbortPolicy_MaxFailedTests(2)), console.toString("UTF-8").trim());
+    }
+
+    @Test
+    public void shouldAbortOnCompileErrorInTarget() throws Exception {
+        AbortPolicy abortPolicy = new AbortPolicy(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+        abortPolicy.setCompileErrorTargets(Arrays.asList("UnitTestsCardExampleTests"));
+        KilledProc process = new KilledProc();
+        abortPolicy.setProcess(process);
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(tmp.newFolder(), new ByteArrayOutputStream());
+        parser.addBuildEventListener(abortPolicy);
+        String build = "=== BUILD TARGET UnitTestsCardExample OF PROJECT UnitTestsCardExample WITH CONFIGURATION Debug ===\n"
+            + "CompileC /tmp/Card.o /Users/jenkins/App/Card.m normal x86_64 objective-c com.apple.compilers.llvm.clang.1_0.compiler\n"
+            + "/Users/jenkins/App/Card.m:42:9: error: use of undeclared identifier 'result'\n";
+        parser.captureOutputStream.write(build.getBytes(StandardCharsets.UTF_8));
+        assertNull(abortPolicy.getReason());
+
+        build = "=== BUILD TARGET UnitTestsCardExampleTests OF PROJECT UnitTestsCardExample WITH CONFIGURATION Debug ===\n"
+            + "CompileSwift normal x86_64 /Users/jenkins/App/DeckTests.swift\n"
+            + "/Users/jenkins/App/DeckTests.swift:7:5: warning: variable 'deck' was never mutated\n"
+            + "/Users/jenkins/App/DeckTests.swift:12:9: error: cannot find 'card' in scope\n";
+        parser.captureOutputStream.write(build.getBytes(StandardCharsets.UTF_8));
+        assertTrue(process.killed.await(10, TimeUnit.SECONDS));
+        assertEquals(Messages.AbortPolicy_CompileError("/Users/jenkins/App/DeckTests.swift:12:9", "cannot find 'card' in scope"), abortPolicy.getReason());
+    }
+
+    @Test
+    public void shouldNotAbortOnFailedTestAsCompileError() throws Exception {
+        AbortPolicy abortPolicy = new AbortPolicy(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+        abortPolicy.setCompileErrorTargets(Arrays.asList("*"));
+        KilledProc process = new KilledProc();
+        abortPolicy.setProcess(process);
+        // The test results are read from the result bundle instead.
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(tmp.newFolder(), new ByteArrayOutputStream()) {
+            @Override
+            protected boolean isIgnoringTestResults() {
+                return true;
+            }
+        };
+        parser.addBuildEventListener(abortPolicy);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_failing_1.txt"), parser.captureOutputStream);
+        assertNull(abortPolicy.getReason());
+
+        parser.captureOutputStream.write("/Users/jenkins/App/Card.m:42:9: error: use of undeclared identifier 'result'\n".getBytes(StandardCharsets.UTF_8));
+        assertTrue(process.killed.await(10, TimeUnit.SECONDS));
+        assertEquals(Messages.AbortPolicy_CompileError("/Users/jenkins/App/Card.m:42:9", "use of undeclared identifier 'result'"), abortPolicy.getReason());
+    }
+
+    @Test
+    public void shouldAbortOnTerminatingException() throws Exception {
+        AbortPolicy abortPolicy = new AbortPolicy(new PrintStream(new ByteArrayOutputStream(), true, "UTF-8"));
+        abortPolicy.setTerminatingException(true);
+        KilledProc process = new KilledProc();
+        abortPolicy.setProcess(process);
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(tmp.newFolder(), new ByteArrayOutputStream());
+        parser.addBuildEventListener(abortPolicy);
+        IOUtils.copy(getClass().getResourceAsStream("/XCTest_output_crashing_1.txt"), parser.captureOutputStream);
+
+        assertTrue(process.killed.await(10, TimeUnit.SECONDS));
+        assertEquals(Messages.AbortPolicy_TerminatingException("NSInternalInconsistencyException", "Cannot create mxBOB account"), abortPolicy.getReason());
+    }
+
+    @Test
+    public void shouldAddLateFailureToWrittenTestCase() throws Exception {
+        File reports = tmp.newFolder();
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reports, new ByteArrayOutputStream());
+        String output = "Test Suite 'CardTestCase' started at 2014-12-12 04:48:53 +0000\n"
+            + "Test Case '-[CardTestCase testFirst]' started.\n"
+            + "Test Case '-[CardTestCase testFirst]' passed (0.001 seconds).\n"
+            + "Test Case '-[CardTestCase testSecond]' started.\n"
+            + "Test Case '-[CardTestCase testSecond]' passed (0.002 seconds).\n"
+            + "Test Case '-[CardTestCase testThird]' started.\n"
+            // Reported without synchronization, after two more test cases started.
+            + "/Users/jenkins/App/CardTestCase.m:21: error: -[CardTestCase testFirst] : late failure <1>\n"
+            + "/Users/jenkins/App/CardTestCase.m:22: error: -[CardTestCase testFirst] : late failure <2>\n"
+            + "Test Case '-[CardTestCase testThird]' passed (0.003 seconds).\n"
+            + "Test Suite 'CardTestCase' passed at 2014-12-12 04:48:54 +0000.\n";
+        parser.captureOutputStream.write(output.getBytes(StandardCharsets.UTF_8));
+        parser.closeTestReports();
+
+        Document report = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new File(reports, "TEST-CardTestCase.xml"));
+        NodeList testCases = report.getElementsByTagName("testcase");
+        assertEquals(3, testCases.getLength());
+        Element first = (Element)testCases.item(0);
+        assertEquals("testFirst", first.getAttribute("name"));
+        NodeList failures = first.getElementsByTagName("failure");
+        assertEquals(2, failures.getLength());
+        assertEquals("late failure <1>", ((Element)failures.item(0)).getAttribute("message"));
+        assertEquals("/Users/jenkins/App/CardTestCase.m:22", failures.item(1).getTextContent());
+        assertEquals(0, ((Element)testCases.item(1)).getElementsByTagName("failure").getLength());
+        assertEquals(0, ((Element)testCases.item(2)).getElementsByTagName("failure").getLength());
+    }
+
+    @Test
+    public void shouldParseConcurrentBuildsIndependently() throws Exception {
+        final String[] outputs = { "/XCTest_output_failing_1.txt", "/XCTest_output_complex_1.txt", "/XCTest_output_complex_2.txt" };
+        File expected = tmp.newFolder("expected");
+        for(String output : outputs) {
+            parseTestOutput(output, expected);
+        }
+
+        final int builds = 32;
+        ExecutorService executor = Executors.newFixedThreadPool(builds);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<File>> results = new ArrayList<>();
+        try {
+            for(int i = 0; i < builds; i++) {
+                final File reports = tmp.newFolder("build" + i);
+                results.add(executor.submit(new Callable<File>() {
+                    public File call() throws Exception {
+                        start.await();
+                        for(int round = 0; round < 5; round++) {
+                            for(String output : outputs) {
+                                parseTestOutput(output, reports);
+                            }
+                        }
+                        return reports;
+                    }
+                }));
+            }
+            start.countDown();
+            for(Future<File> result : results) {
+                File reports = result.get(5, TimeUnit.MINUTES);
+                String[] names = expected.list();
+                assertEquals(names.length, reports.list().length);
+                for(String name : names) {
+                    assertEquals(name, readReport(new File(expected, name)), readReport(new File(reports, name)));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void parseTestOutput(String outputFileName, File reports) throws IOException {
+        XCodeBuildOutputParser parser = new XCodeBuildOutputParser(reports, new ByteArrayOutputStream());
+        try(InputStream in = getClass().getResourceAsStream(outputFileName)) {
+            IOUtils.copy(in, parser.captureOutputStream);
+        }
+        try {
+            parser.closeTestReports();
+        } catch(InterruptedException | JAXBException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static String readReport(File report) throws IOException {
+        // A suite that is never ended, like UnknownSuite, is timed against the clock.
+        return FileUtils.readFileToString(report, "UTF-8").replaceFirst("(<testsuite [^>]*?) time=\"[^\"]*\"", "$1");
+    }
+
+    private static boolean isCandidateLine(String line) {
+        byte[] bytes = ("  " + line + "  ").getBytes(StandardCharsets.UTF_8);
+        return XCodeBuildOutputParser.isCandidateLine(bytes, 2, bytes.length - 4);
+    }
+
     @Test
     public void shouldParseFullXCPassingTestOutput1() throws IOException {
         XCodeBuildOutputParser parser = parseTestOutput("/XCTest_output_passing_1.txt");
@@ -153,4 +524,42 @@ public class XCodeBuildOutputParserTest {
 	XCodeBuildOutputParser parser = parseTestOutput("/XCTest_output_complex_2.txt");
 	assertEquals(-1, parser.getExitCode());
     }
+
+    /**
+     * Stands in for xcodebuild, which is only waited for until it is killed.
+     */
+    private static class KilledProc extends Proc {
+        final CountDownLatch killed = new CountDownLatch(1);
+
+        @Override
+        public boolean isAlive() {
+            return killed.getCount() > 0;
+        }
+
+        @Override
+        public void kill() {
+            killed.countDown();
+        }
+
+        @Override
+        public int join() throws InterruptedException {
+            killed.await();
+            return 143;
+        }
+
+        @Override
+        public InputStream getStdout() {
+            return null;
+        }
+
+        @Override
+        public InputStream getStderr() {
+            return null;
+        }
+
+        @Override
+        public OutputStream getStdin() {
+            return null;
+        }
+    }
 }
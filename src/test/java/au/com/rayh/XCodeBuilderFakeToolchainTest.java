@@ -0,0 +1,191 @@
+package au.com.rayh;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.Descriptor;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.slaves.ComputerLauncher;
+import hudson.slaves.DumbSlave;
+import hudson.slaves.NodeProperty;
+import hudson.slaves.RetentionStrategy;
+import hudson.slaves.SlaveComputer;
+import hudson.util.StreamCopyThread;
+import jenkins.model.GlobalConfiguration;
+import org.apache.commons.io.input.CountingInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.SimpleCommandLauncher;
+import org.jvnet.hudson.test.TestExtension;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the build step end to end on an agent with {@link FakeXcodeToolchain}, and checks what it costs the controller:
+ * the bytes received from and sent to the agent and the time of the phases of the step. Set -Dxcode.fake.repeat to
+ * change the size of the log (1.3 MB each) and -Dxcode.fake.bytesPerSecond to print it at the rate of a real build.
+ */
+public class XCodeBuilderFakeToolchainTest {
+    private static final int REPEAT = Integer.getInteger("xcode.fake.repeat", 20);
+    private static final long BYTES_PER_SECOND = Long.getLong("xcode.fake.bytesPerSecond", 0L);
+    // The test cases in XCTest_output_passing_1.txt, which the fake build log ends with.
+    private static final int TESTS_PER_LOG = 12;
+
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private FakeXcodeToolchain toolchain;
+    private CountingLauncher launcher;
+    private DumbSlave agent;
+    private long receivedBytes;
+    private long sentBytes;
+
+    @Before
+    public void setUp() throws Exception {
+        Assume.assumeFalse(Functions.isWindows());
+        toolchain = new FakeXcodeToolchain(tmp.newFolder("toolchain")).withRepeat(REPEAT).withBytesPerSecond(BYTES_PER_SECOND);
+        toolchain.install(GlobalConfiguration.all().get(GlobalConfigurationImpl.class));
+        launcher = new CountingLauncher(((SimpleCommandLauncher)j.createComputerLauncher(null)).cmd);
+        agent = new DumbSlave("fake-mac", "", tmp.newFolder("agent").getAbsolutePath(), "1", Node.Mode.NORMAL, "",
+            launcher, RetentionStrategy.NOOP, Collections.<NodeProperty<?>>emptyList());
+        j.jenkins.addNode(agent);
+        j.waitOnline(agent);
+    }
+
+    @Test
+    public void shouldParseTestResultsOfFakeBuild() throws Exception {
+        XCodeBuilder builder = new XCodeBuilder();
+        builder.setSdk("iphonesimulator");
+        FreeStyleBuild build = buildAndMeasure("consoleLog", builder);
+        assertTrue(receivedBytes + " bytes received", receivedBytes > toolchain.getBuildLogSize());
+
+        LiveTestResultsAction results = build.getAction(LiveTestResultsAction.class);
+        assertNotNull(results);
+        assertEquals(TESTS_PER_LOG * REPEAT, results.getTests());
+        assertEquals(0, results.getFailures());
+        assertTrue(build.getWorkspace().child("test-reports/TEST-CardTestCase.xml").exists());
+
+        XCodeAction xcodeAction = build.getAction(XCodeAction.class);
+        assertEquals("1.0 (1)", xcodeAction.getBuildDescription());
+        List<String> phases = new ArrayList<String>();
+        for ( XCodeAction.Phase phase : xcodeAction.getPhases() ) {
+            phases.add(phase.getName());
+        }
+        assertEquals(Arrays.asList("versionQuery", "showSdks", "list", "help", "version", "clean", "findIdentity", "build"), phases);
+    }
+
+    @Test
+    public void shouldNotAttachLiveTestResultsToBuildWithoutTests() throws Exception {
+        String buildLog = "=== BUILD TARGET UnitTestsCardExample OF PROJECT UnitTestsCardExample WITH CONFIGURATION Debug ===\n";
+        toolchain.withBuildLog(buildLog.getBytes(StandardCharsets.UTF_8)).withRepeat(1)
+            .install(GlobalConfiguration.all().get(GlobalConfigurationImpl.class));
+        XCodeBuilder builder = new XCodeBuilder();
+        builder.setSdk("iphonesimulator");
+        FreeStyleBuild build = buildAndMeasure("noTests", builder);
+
+        assertNull(build.getAction(LiveTestResultsAction.class));
+    }
+
+    @Test
+    public void shouldNotSendQuietBuildLogOverRemoting() throws Exception {
+        // The first build loads the classes of the build step on the agent, which the controller sends.
+        buildAndMeasure("warmUp", quietBuilder());
+        buildAndMeasure("noConsoleLog", quietBuilder());
+
+        // The test results and the build step's own messages are sent, the log itself is not.
+        assertTrue(receivedBytes + " bytes received", receivedBytes < toolchain.getBuildLogSize() / 10);
+        // Nor does the controller send anything growing with the log, such as acknowledgements of a piped stream.
+        assertTrue(sentBytes + " bytes sent", sentBytes < toolchain.getBuildLogSize() / 10);
+    }
+
+    private static XCodeBuilder quietBuilder() {
+        XCodeBuilder builder = new XCodeBuilder();
+        builder.setSdk("iphonesimulator");
+        builder.setNoConsoleLog(true);
+        return builder;
+    }
+
+    private FreeStyleBuild buildAndMeasure(String name, XCodeBuilder builder) throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject(name);
+        project.setAssignedNode(agent);
+        project.getBuildersList().add(builder);
+
+        long received = launcher.getReceivedBytes();
+        long sent = launcher.getSentBytes();
+        long start = System.nanoTime();
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+        long wallTimeMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        receivedBytes = launcher.getReceivedBytes() - received;
+        sentBytes = launcher.getSentBytes() - sent;
+
+        // The phases are timed one after the other within the build.
+        long phasesMillis = 0;
+        for ( XCodeAction.Phase phase : build.getAction(XCodeAction.class).getPhases() ) {
+            assertTrue(phase.getName(), phase.getDurationMillis() >= 0);
+            phasesMillis += phase.getDurationMillis();
+        }
+        assertTrue(phasesMillis + " ms in phases of " + wallTimeMillis + " ms", phasesMillis <= wallTimeMillis);
+        return build;
+    }
+
+    /**
+     * Starts the agent like {@link SimpleCommandLauncher}, counting the bytes of the channel.
+     */
+    public static class CountingLauncher extends ComputerLauncher {
+        private final String command;
+        private transient volatile CountingInputStream received;
+        private transient volatile CountingOutputStream sent;
+
+        CountingLauncher(String command) {
+            this.command = command;
+        }
+
+        long getReceivedBytes() {
+            return received == null ? 0 : received.getByteCount();
+        }
+
+        long getSentBytes() {
+            return sent == null ? 0 : sent.getByteCount();
+        }
+
+        @Override
+        public void launch(SlaveComputer computer, TaskListener listener) throws IOException, InterruptedException {
+            final Process process = new ProcessBuilder(Util.tokenize(command)).start();
+            new StreamCopyThread("stderr of " + computer.getName(), process.getErrorStream(), listener.getLogger()).start();
+            received = new CountingInputStream(process.getInputStream());
+            sent = new CountingOutputStream(process.getOutputStream());
+            computer.setChannel(received, sent, listener.getLogger(), new Channel.Listener() {
+                @Override
+                public void onClosed(Channel channel, IOException cause) {
+                    process.destroy();
+                }
+            });
+        }
+
+        @TestExtension
+        public static class DescriptorImpl extends Descriptor<ComputerLauncher> {
+            @Override
+            public String getDisplayName() {
+                return "Counting launcher";
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import hudson.FilePath;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class XcodeProjectCacheTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File writeProject(String name, int objects) throws Exception {
+        File projectDirectory = new File(tmp.newFolder(name), "Project.xcodeproj");
+        new SyntheticXcodeProject(objects).write(projectDirectory);
+        return new File(projectDirectory, "project.pbxproj");
+    }
+
+    @Test
+    public void shouldParseProjectOnlyOnce() throws Exception {
+        File pbxproj = writeProject("project", 1000);
+        XcodeProjectCache cache = new XcodeProjectCache(XcodeProjectCache.DEFAULT_MAX_BYTES);
+
+        XcodeProjectCache.Lookup miss = cache.lookup(pbxproj);
+        assertFalse(miss.isHit());
+        XcodeProjectCache.Lookup hit = cache.lookup(pbxproj);
+        assertTrue(hit.isHit());
+        assertEquals(1, hit.getHits());
+        assertEquals(1, hit.getMisses());
+        assertEquals(1, hit.getEntries());
+
+        XcodeProject parsed = XcodeProjectParser.parseXcodeProject(ByteBuffer.wrap(FileUtils.readFileToByteArray(pbxproj)));
+        XcodeProject cached = hit.getProject();
+        assertEquals(new HashSet<String>(parsed.getTargetNames()), new HashSet<String>(cached.getTargetNames()));
+        ProjectTarget app = cached.getTarget(SyntheticXcodeProject.targetName(0));
+        assertEquals(parsed.getTarget(SyntheticXcodeProject.targetName(0)).uuid, app.uuid);
+        assertEquals("Manual", app.provisioningStyle);
+        assertEquals("Release", app.defaultConfigurationName);
+        assertEquals(new HashSet<String>(Arrays.asList("Debug", "Release")), new HashSet<String>(app.getBuildConfigurationNames()));
+        BuildConfiguration release = app.getBuildConfiguration("Release");
+        assertEquals("com.example.App0", release.bundleIdentifier);
+        assertEquals("App0/Info.plist", release.infoPlistFile);
+        assertEquals("00000000-0000-0000-0000-000000000001", release.provisioningProfileUUID);
+        assertEquals("App0 Release", release.provisioningProfileSpecifier);
+        ProjectTarget tests = cached.getTarget(SyntheticXcodeProject.targetName(1));
+        assertEquals(app.uuid, tests.testTargetID);
+        assertNull(tests.getBuildConfiguration("Debug").developmentTeamId);
+        assertNull(cached.getTarget(SyntheticXcodeProject.targetName(2)));
+        assertNull(app.getBuildConfiguration("Enterprise"));
+    }
+
+    @Test
+    public void shouldDecodeOnlyTargetsAndConfigurationsAskedFor() throws Exception {
+        File pbxproj = writeProject("project", 10000);
+        XcodeProject project = new XcodeProjectCache(XcodeProjectCache.DEFAULT_MAX_BYTES).lookup(pbxproj).getProject();
+        assertTrue(project.projectTarget.isEmpty());
+
+        ProjectScheme scheme = new ProjectScheme();
+        scheme.blueprintName = SyntheticXcodeProject.targetName(3);
+        ProjectTarget target = project.getTarget(scheme);
+        assertEquals(Collections.singleton(scheme.blueprintName), project.projectTarget.keySet());
+        assertTrue(target.buildConfiguration.isEmpty());
+        assertEquals("com.example.App3", target.getBuildConfiguration("Debug").bundleIdentifier);
+        assertEquals(Collections.singleton("Debug"), target.buildConfiguration.keySet());
+        assertSame(target, project.getTarget(scheme.blueprintName));
+
+        project.resolveAll();
+        assertEquals(project.getTargetNames().size(), project.projectTarget.size());
+        assertEquals(2, target.buildConfiguration.size());
+    }
+
+    @Test
+    public void shouldGiveEveryCallerItsOwnProject() throws Exception {
+        File pbxproj = writeProject("project", 1000);
+        XcodeProjectCache cache = new XcodeProjectCache(XcodeProjectCache.DEFAULT_MAX_BYTES);
+        cache.lookup(pbxproj).getProject().getTarget(SyntheticXcodeProject.targetName(0)).provisioningStyle = "Automatic";
+        assertEquals("Manual", cache.lookup(pbxproj).getProject().getTarget(SyntheticXcodeProject.targetName(0)).provisioningStyle);
+    }
+
+    @Test
+    public void shouldParseChangedProjectAgain() throws Exception {
+        File pbxproj = writeProject("project", 1000);
+        XcodeProjectCache cache = new XcodeProjectCache(XcodeProjectCache.DEFAULT_MAX_BYTES);
+        cache.lookup(pbxproj);
+        FileUtils.copyFile(writeProject("changed", 2000), pbxproj);
+        assertFalse(cache.lookup(pbxproj).isHit());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedProject() throws Exception {
+        File first = writeProject("first", 1000);
+        File second = writeProject("second", 2000);
+        File third = writeProject("third", 3000);
+        long firstBytes = XcodeProjectCache.encode(XcodeProjectParser.parseXcodeProject(ByteBuffer.wrap(FileUtils.readFileToByteArray(first)))).length;
+        long secondBytes = XcodeProjectCache.encode(XcodeProjectParser.parseXcodeProject(ByteBuffer.wrap(FileUtils.readFileToByteArray(second)))).length;
+        long thirdBytes = XcodeProjectCache.encode(XcodeProjectParser.parseXcodeProject(ByteBuffer.wrap(FileUtils.readFileToByteArray(third)))).length;
+        // Room for the first and third projects, or the second and third, but not all three.
+        XcodeProjectCache cache = new XcodeProjectCache(Math.max(firstBytes, secondBytes) + thirdBytes);
+
+        cache.lookup(first);
+        cache.lookup(second);
+        assertTrue(cache.lookup(first).isHit());
+        cache.lookup(third);
+        assertEquals(2, cache.size());
+        assertTrue(cache.lookup(first).isHit());
+        assertTrue(cache.lookup(third).isHit());
+        assertFalse(cache.lookup(second).isHit());
+    }
+
+    @Test
+    public void shouldNotCacheUnparsableProject() throws Exception {
+        File pbxproj = tmp.newFile("project.pbxproj");
+        FileUtils.writeStringToFile(pbxproj, "{ objects = ", "UTF-8");
+        XcodeProjectCache cache = new XcodeProjectCache(XcodeProjectCache.DEFAULT_MAX_BYTES);
+        assertNull(cache.lookup(pbxproj).getProject());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void shouldReportUseOfCacheInLog() throws Exception {
+        FilePath project = new FilePath(writeProject("project", 1000).getParentFile());
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        PrintStream logger = new PrintStream(log, true, "UTF-8");
+        assertNotNull(XcodeProjectParser.parseXcodeProject(project, logger));
+        assertNotNull(XcodeProjectParser.parseXcodeProject(project, logger));
+        String[] lines = log.toString("UTF-8").split("\n");
+        assertTrue(lines[0], lines[0].startsWith("Parsed " + project.child("project.pbxproj").getRemote()));
+        assertTrue(lines[1], lines[1].startsWith("Read " + project.child("project.pbxproj").getRemote()));
+    }
+}
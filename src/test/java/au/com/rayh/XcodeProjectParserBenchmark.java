@@ -0,0 +1,92 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.dd.plist.NSObject;
+import com.dd.plist.PropertyListParser;
+import hudson.FilePath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time to read the targets and build configurations of a project.pbxproj, and the schemes and workspace next to it,
+ * for projects of 10k and 100k objects. These are read on every build that signs, exports or lists schemes,
+ * and the larger project is the size of an app with a few dozen targets and their sources.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XcodeProjectParserBenchmark {
+    @Param({"10000", "100000"})
+    public int objects;
+
+    private FilePath project;
+    private FilePath workspace;
+    private ByteBuffer pbxproj;
+
+    @Setup(Level.Trial)
+    public void createProject() throws IOException {
+        File projectDirectory = new BenchmarkCorpus().xcodeProject(objects);
+        project = new FilePath(projectDirectory);
+        workspace = new FilePath(new File(projectDirectory.getParentFile(), "Workspace.xcworkspace"));
+        try (FileChannel channel = FileChannel.open(new File(projectDirectory, "project.pbxproj").toPath(), StandardOpenOption.READ)) {
+            pbxproj = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Scans the project, as on a miss of {@link XcodeProjectCache}.
+     */
+    @Benchmark
+    public XcodeProject parseXcodeProject() {
+        return XcodeProjectParser.parseXcodeProject(pbxproj);
+    }
+
+    /**
+     * What parsing the project cost before {@link PbxprojScanner}: the whole file turned into NSObjects.
+     */
+    @Benchmark
+    public NSObject parsePropertyList() throws Exception {
+        byte[] content = new byte[pbxproj.remaining()];
+        pbxproj.duplicate().get(content);
+        return PropertyListParser.parse(content);
+    }
+
+    /**
+     * Hashes the project and decodes it from {@link XcodeProjectCache}, as on every build after the first.
+     */
+    @Benchmark
+    public XcodeProject lookupXcodeProject() {
+        return XcodeProjectParser.parseXcodeProject(project);
+    }
+
+    @Benchmark
+    public HashMap<String, ProjectScheme> listXcodeSchemes() {
+        return XcodeProjectParser.listXcodeSchemes(project);
+    }
+
+    @Benchmark
+    public List<String> parseXcodeWorkspace() {
+        return XcodeProjectParser.parseXcodeWorkspace(workspace);
+    }
+}
@@ -3,15 +3,19 @@ package au.com.rayh;
 import org.junit.Assert;
 import org.apache.commons.io.FileUtils;
 import org.junit.Test;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import org.junit.Assume;
 import org.junit.Rule;
 import org.junit.rules.TemporaryFolder;
+import javax.xml.stream.XMLStreamException;
 import hudson.FilePath;
 import hudson.Launcher.LocalLauncher;
 import hudson.util.StreamTaskListener;
@@ -54,6 +58,83 @@ public class XcodeProjectParserTest {
 
     }
 
+    private static ByteArrayInputStream xml(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSchemeUsesLastBuildActionEntry() throws Throwable {
+        ProjectScheme projectScheme = XcodeProjectParser.parseXcodeScheme(xml("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Scheme version=\"1.3\"><BuildAction><BuildActionEntries>"
+            + "<BuildActionEntry><BuildableReference BlueprintName=\"App\" ReferencedContainer=\"container:App.xcodeproj\"/></BuildActionEntry>"
+            + "<BuildActionEntry><BuildableReference BlueprintName=\"Extension\"/></BuildActionEntry>"
+            + "</BuildActionEntries></BuildAction>"
+            + "<TestAction><Testables><TestableReference><BuildableReference BlueprintName=\"AppTests\"/></TestableReference></Testables></TestAction>"
+            // Not read: the scheme stops at the end of the build action.
+            + "<LaunchAction><unclosed></Scheme>"));
+        Assert.assertEquals("Extension", projectScheme.blueprintName);
+        Assert.assertEquals("", projectScheme.referencedContainer);
+    }
+
+    @Test
+    public void testSchemeWithoutBuildAction() throws Throwable {
+        ProjectScheme projectScheme = XcodeProjectParser.parseXcodeScheme(xml("<Scheme><TestAction/></Scheme>"));
+        Assert.assertNull(projectScheme.blueprintName);
+        Assert.assertNull(XcodeProjectParser.parseXcodeScheme(xml("<Workspace/>")).blueprintName);
+    }
+
+    @Test
+    public void testWorkspaceListsTopLevelProjects() throws Throwable {
+        List<String> projectList = XcodeProjectParser.parseXcodeWorkspace(xml("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Workspace version=\"1.0\">"
+            + "<FileRef location=\"group:App.xcodeproj\"></FileRef>"
+            + "<FileRef location=\"container:Other.xcodeproj\"/>"
+            + "<Group location=\"group:Libraries\"><FileRef location=\"group:Library.xcodeproj\"/></Group>"
+            + "<FileRef location=\"group:Pods/Pods.xcodeproj\"/>"
+            + "</Workspace>"));
+        Assert.assertEquals(Arrays.asList("App.xcodeproj", "Pods/Pods.xcodeproj"), projectList);
+    }
+
+    @Test(expected = XMLStreamException.class)
+    public void testWorkspaceWithDoctype() throws Throwable {
+        XcodeProjectParser.parseXcodeWorkspace(xml("<?xml version=\"1.0\"?>\n<!DOCTYPE Workspace [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n"
+            + "<Workspace><FileRef location=\"group:&xxe;\"/></Workspace>"));
+    }
+
+    @Test
+    public void testListSchemesOfAllWorkspaceProjects() throws Throwable {
+        File root = tmp.getRoot();
+        writeScheme(new File(root, "App.xcodeproj/xcshareddata/xcschemes/App.xcscheme"), "App", "App.xcodeproj");
+        writeScheme(new File(root, "App.xcodeproj/xcshareddata/xcschemes/AppTests.xcscheme"), "AppTests", "App.xcodeproj");
+        writeScheme(new File(root, "Pods/Pods.xcodeproj/xcuserdata/" + System.getProperty("user.name") + ".xcuserdatad/xcschemes/Pods.xcscheme"), "UserPods", "Pods/Pods.xcodeproj");
+        writeScheme(new File(root, "Pods/Pods.xcodeproj/xcuserdata/" + System.getProperty("user.name") + ".xcuserdatad/xcschemes/Mine.xcscheme"), "Mine", "Pods/Pods.xcodeproj");
+        writeScheme(new File(root, "Pods/Pods.xcodeproj/xcshareddata/xcschemes/Pods.xcscheme"), "Pods", "Pods/Pods.xcodeproj");
+        FileUtils.writeStringToFile(new File(root, "Broken.xcodeproj/xcshareddata/xcschemes"), "", "UTF-8");
+        new File(root, "Empty.xcodeproj").mkdirs();
+
+        List<String> projectList = Arrays.asList("Pods/Pods.xcodeproj", "Broken.xcodeproj", "App.xcodeproj", "Empty.xcodeproj");
+        HashMap<String, HashMap<String, ProjectScheme>> workspaceSchemes = XcodeProjectParser.listXcodeSchemes(new FilePath(root), projectList);
+        Assert.assertEquals(projectList, new ArrayList<String>(workspaceSchemes.keySet()));
+        HashMap<String, ProjectScheme> podsSchemes = workspaceSchemes.get("Pods/Pods.xcodeproj");
+        Assert.assertEquals(2, podsSchemes.size());
+        // The shared scheme replaces the user's one of the same name.
+        Assert.assertEquals("Pods", podsSchemes.get("Pods").blueprintName);
+        Assert.assertEquals("Mine", podsSchemes.get("Mine").blueprintName);
+        Assert.assertNull(workspaceSchemes.get("Broken.xcodeproj"));
+        Assert.assertEquals("container:App.xcodeproj", workspaceSchemes.get("App.xcodeproj").get("AppTests").referencedContainer);
+        Assert.assertTrue(workspaceSchemes.get("Empty.xcodeproj").isEmpty());
+
+        HashMap<String, ProjectScheme> appSchemes = XcodeProjectParser.listXcodeSchemes(new FilePath(new File(root, "App.xcodeproj")));
+        Assert.assertEquals(workspaceSchemes.get("App.xcodeproj").keySet(), appSchemes.keySet());
+    }
+
+    private static void writeScheme(File schemeFile, String blueprintName, String container) throws IOException {
+        FileUtils.writeStringToFile(schemeFile, "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+            + "<Scheme><BuildAction><BuildActionEntries><BuildActionEntry><BuildableReference"
+            + " BuildableName=\"" + blueprintName + ".app\" BlueprintName=\"" + blueprintName + "\" ReferencedContainer=\"container:" + container + "\"/>"
+            + "</BuildActionEntry></BuildActionEntries></BuildAction></Scheme>", "UTF-8");
+    }
+
     private static void run(FilePath dir, String... cmds) throws InterruptedException {
         try {
             Assert.assertEquals(0, new LocalLauncher(StreamTaskListener.fromStdout()).launch().cmds(cmds).pwd(dir).join());
@@ -0,0 +1,67 @@
+package au.com.rayh;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import hudson.FilePath;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import au.com.rayh.report.TestSuite;
+
+/**
+ * Time to turn a TestSummaries.plist into JUnit reports, for growing numbers of tests.
+ * The time per plist should grow linearly with the number of tests: 20k tests should take about four times as long as 5k.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class XcodeTestSummariesParserBenchmark {
+    @Param({"5000", "10000", "20000"})
+    public int tests;
+
+    private File directory;
+    private FilePath testSummaries;
+    private XcodeTestSummariesParser parser;
+
+    @Setup(Level.Trial)
+    public void createTestSummaries() throws IOException, InterruptedException {
+        directory = Files.createTempDirectory("TestSummaries").toFile();
+        testSummaries = new FilePath(new BenchmarkCorpus().testSummaries(tests));
+        parser = new XcodeTestSummariesParser(new FilePath(directory)) {
+            @Override
+            protected OutputStream outputForSuite(TestSuite currentTestSuite) {
+                return new NullOutputStream();
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTestSummaries() throws IOException {
+        FileUtils.deleteDirectory(directory);
+    }
+
+    @Benchmark
+    public void parseTestSummariesPlist() {
+        parser.parseTestSummariesPlist(testSummaries);
+    }
+}
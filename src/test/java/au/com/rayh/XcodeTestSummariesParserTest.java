@@ -7,6 +7,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URLDecoder;
 import java.util.Arrays;
 import org.junit.Assume;
@@ -15,6 +16,9 @@ import org.junit.rules.TemporaryFolder;
 import hudson.FilePath;
 import hudson.Launcher.LocalLauncher;
 import hudson.util.StreamTaskListener;
+import org.apache.commons.io.output.NullOutputStream;
+import au.com.rayh.report.TestCase;
+import au.com.rayh.report.TestSuite;
 
 /**
  * Created by Kazuhide Takahashi on 1/7/19.
@@ -34,6 +38,150 @@ public class XcodeTestSummariesParserTest {
 	parser.parseTestSummariesPlist(testSummariesPath);
     }
 
+    @Test
+    public void testEachSuiteIsWrittenOnce() throws Throwable {
+	File plist = tmp.newFile("TestSummaries.plist");
+	new SyntheticTestSummaries(3, 50).withFailureEvery(7).writeXML(plist);
+	final HashMap<String, Integer> writes = new HashMap<String, Integer>();
+	final HashMap<String, TestSuite> suites = new HashMap<String, TestSuite>();
+	XcodeTestSummariesParser parser = new XcodeTestSummariesParser(new FilePath(tmp.getRoot())) {
+	    @Override
+	    protected OutputStream outputForSuite(TestSuite currentTestSuite) {
+		Integer count = writes.get(currentTestSuite.getName());
+		writes.put(currentTestSuite.getName(), count == null ? 1 : count + 1);
+		suites.put(currentTestSuite.getName(), currentTestSuite);
+		return new NullOutputStream();
+	    }
+	};
+	parser.parseTestSummariesPlist(new FilePath(plist));
+	Assert.assertEquals(3, writes.size());
+	for ( int i = 0; i < 3; i++ ) {
+	    Assert.assertEquals(Integer.valueOf(1), writes.get("SyntheticTests" + i));
+	    Assert.assertEquals(50, suites.get("SyntheticTests" + i).getTestCases().size());
+	}
+    }
+
+    @Test
+    public void testParseResultBundleReturnsSummary() throws Throwable {
+	File bundle = tmp.newFolder("result.xcresult");
+	new SyntheticTestSummaries(3, 50).withFailureEvery(7).writeBinary(new File(bundle, "TestSummaries.plist"));
+	FilePath workspace = new FilePath(tmp.getRoot());
+	TestSummariesResult result = XcodeTestSummariesParser.parseResultBundle(workspace, new FilePath(bundle));
+	Assert.assertEquals(1, result.getSummaryFiles().size());
+	Assert.assertEquals(3, result.getSuites());
+	Assert.assertEquals(150, result.getTests());
+	Assert.assertEquals(21, result.getFailures());
+	Assert.assertEquals(21, result.getFailedTests().size());
+	Assert.assertEquals(3, workspace.child("test-reports").list().size());
+    }
+
+    @Test
+    public void testParseResultBundleReportsCorruptTestSummaries() throws Throwable {
+	File bundle = tmp.newFolder("result.xcresult");
+	File plist = new File(bundle, "TestSummaries.plist");
+	FileUtils.writeStringToFile(plist, "bplist00 not a property list", "UTF-8");
+	FilePath workspace = new FilePath(tmp.getRoot());
+	TestSummariesResult result = XcodeTestSummariesParser.parseResultBundle(workspace, new FilePath(bundle));
+	Assert.assertEquals(1, result.getErrors().size());
+	Assert.assertTrue(result.getErrors().get(0), result.getErrors().get(0).startsWith(plist.getPath() + ": "));
+	Assert.assertEquals(0, result.getTests());
+    }
+
+    @Test
+    public void testParseResultBundleWithActionSummaries() throws Throwable {
+	File bundle = tmp.newFolder("result.xcresult");
+	for ( int action = 1; action <= 2; action++ ) {
+	    File actionDir = new File(bundle, action + "_Test");
+	    Assert.assertTrue(actionDir.mkdir());
+	    new SyntheticTestSummaries(20, 10 * action).writeXML(new File(actionDir, "action_TestSummaries.plist"));
+	}
+	Assert.assertEquals(Arrays.asList(new File(bundle, "1_Test/action_TestSummaries.plist"), new File(bundle, "2_Test/action_TestSummaries.plist")),
+			    XcodeTestSummariesParser.findTestSummaries(bundle));
+	FilePath workspace = new FilePath(tmp.getRoot());
+	TestSummariesResult result = XcodeTestSummariesParser.parseResultBundle(workspace, new FilePath(bundle));
+	Assert.assertEquals(2, result.getSummaryFiles().size());
+	Assert.assertEquals(40, result.getSuites());
+	Assert.assertEquals(600, result.getTests());
+	Assert.assertEquals(0, result.getFailures());
+	// Both actions have the same suites, the second one is written last.
+	Assert.assertEquals(20, workspace.child("test-reports").list().size());
+    }
+
+    @Test(timeout = 60000)
+    public void testParseResultBundleOfParallelTesting() throws Throwable {
+	// Each simulator writes the summary of its share of the tests, which are read on the threads writing the reports.
+	File bundle = tmp.newFolder("result.xcresult");
+	for ( int simulator = 1; simulator <= 6; simulator++ ) {
+	    File actionDir = new File(bundle, simulator + "_Test");
+	    Assert.assertTrue(actionDir.mkdir());
+	    new SyntheticTestSummaries(5, 10).withFailureEvery(10).writeBinary(new File(actionDir, "action_TestSummaries.plist"));
+	}
+	for ( int threads = 1; threads <= 3; threads++ ) {
+	    System.setProperty(XcodeTestSummariesParser.THREADS_PROPERTY, String.valueOf(threads));
+	    try {
+		FilePath workspace = new FilePath(tmp.newFolder("workspace" + threads));
+		TestSummariesResult result = XcodeTestSummariesParser.parseResultBundle(workspace, new FilePath(bundle));
+		Assert.assertEquals(6, result.getSummaryFiles().size());
+		Assert.assertEquals(new File(bundle, "1_Test/action_TestSummaries.plist").getPath(), result.getSummaryFiles().get(0));
+		Assert.assertEquals(30, result.getSuites());
+		Assert.assertEquals(300, result.getTests());
+		Assert.assertEquals(30, result.getFailures());
+		Assert.assertTrue(result.getErrors().isEmpty());
+	    }
+	    finally {
+		System.clearProperty(XcodeTestSummariesParser.THREADS_PROPERTY);
+	    }
+	}
+    }
+
+    @Test
+    public void testBinaryAndXmlTestSummariesGiveSameResults() throws Throwable {
+	SyntheticTestSummaries summaries = new SyntheticTestSummaries(4, 25).withFailureEvery(3);
+	File xml = tmp.newFile("TestSummaries-xml.plist");
+	summaries.writeXML(xml);
+	File binary = tmp.newFile("TestSummaries-binary.plist");
+	summaries.writeBinary(binary);
+	HashMap<String, TestSuite> xmlSuites = parseSuites(xml);
+	HashMap<String, TestSuite> binarySuites = parseSuites(binary);
+	Assert.assertEquals(4, xmlSuites.size());
+	Assert.assertEquals(xmlSuites.keySet(), binarySuites.keySet());
+	for ( String name : xmlSuites.keySet() ) {
+	    TestSuite xmlSuite = xmlSuites.get(name);
+	    TestSuite binarySuite = binarySuites.get(name);
+	    Assert.assertEquals(25, xmlSuite.getTestCases().size());
+	    Assert.assertEquals(xmlSuite.getTests(), binarySuite.getTests());
+	    Assert.assertEquals(xmlSuite.getFailures(), binarySuite.getFailures());
+	    for ( int i = 0; i < xmlSuite.getTestCases().size(); i++ ) {
+		TestCase xmlCase = xmlSuite.getTestCases().get(i);
+		TestCase binaryCase = binarySuite.getTestCases().get(i);
+		Assert.assertEquals(xmlCase.getName(), binaryCase.getName());
+		Assert.assertEquals(xmlCase.getTime(), binaryCase.getTime(), 0);
+		Assert.assertEquals(xmlCase.getFailures().size(), binaryCase.getFailures().size());
+		for ( int j = 0; j < xmlCase.getFailures().size(); j++ ) {
+		    Assert.assertEquals(xmlCase.getFailures().get(j).getMessage(), binaryCase.getFailures().get(j).getMessage());
+		}
+	    }
+	}
+	TestSuite suite = xmlSuites.get("SyntheticTests0");
+	Assert.assertEquals(8, suite.getFailures());
+	Assert.assertEquals(17, suite.getTests());
+	Assert.assertEquals("XCTAssertEqual failed: (\"1\") is not equal to (\"2\")\n at File: /Users/jenkins/workspace/App/Tests/SyntheticTests0.swift\n Line number: 42",
+			    suite.getTestCases().get(2).getFailures().get(0).getMessage());
+    }
+
+    private HashMap<String, TestSuite> parseSuites(File plist) throws IOException, InterruptedException {
+	final HashMap<String, TestSuite> suites = new HashMap<String, TestSuite>();
+	XcodeTestSummariesParser parser = new XcodeTestSummariesParser(new FilePath(tmp.getRoot())) {
+	    @Override
+	    protected OutputStream outputForSuite(TestSuite currentTestSuite) {
+		suites.put(currentTestSuite.getName(), currentTestSuite);
+		return new NullOutputStream();
+	    }
+	};
+	parser.parseTestSummariesPlist(new FilePath(plist));
+	return suites;
+    }
+
     @Test
     public void testInvalidTestSummaries() throws Throwable {
 
@@ -0,0 +1,50 @@
+package au.com.rayh;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.slaves.DumbSlave;
+import hudson.util.StreamTaskListener;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static org.junit.Assert.*;
+
+public class XcodebuildCallableTest {
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void shouldRunXcodebuildAndWriteReportsOnAgent() throws Exception {
+        Assume.assumeFalse(Functions.isWindows());
+        DumbSlave agent = j.createOnlineSlave();
+        FilePath projectRoot = agent.getRootPath().child("project");
+        FilePath output = projectRoot.child("output.txt");
+        output.copyFrom(getClass().getResource("/XCTest_output_failing_1.txt"));
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        StreamTaskListener listener = new StreamTaskListener(console);
+
+        // A shell standing in for xcodebuild, failing its tests as the real one does.
+        XcodebuildCallable callable = new XcodebuildCallable(projectRoot, listener);
+        callable.setCommandLine(new EnvVars(), Arrays.asList("sh", "-c", "cat output.txt; exit 65"));
+        callable.setLogfilePath(projectRoot.child("build"), "logs", 0, 0, false);
+        XcodebuildCallable.Result result = callable.execute(agent.createLauncher(listener));
+        listener.getLogger().flush();
+
+        assertEquals(65, result.getReturnCode());
+        assertEquals(-1, result.getExitCode());
+        assertNull(result.getAbortReason());
+        String consoleOutput = console.toString("UTF-8");
+        assertTrue(consoleOutput, consoleOutput.contains("Test Case '-[PlayingCardTestCase testSetSuitAnyValidAccepted]' passed (0.000 seconds)."));
+        assertTrue(consoleOutput, consoleOutput.contains("** TEST FAILED **"));
+        assertEquals(output.readToString(), projectRoot.child("build/logs/xcodebuild.log").readToString());
+        FilePath report = projectRoot.child("test-reports/TEST-PlayingCardTestCase.xml");
+        assertTrue(report.exists());
+        assertTrue(report.readToString(), report.readToString().contains("testTheValidSuits"));
+    }
+}
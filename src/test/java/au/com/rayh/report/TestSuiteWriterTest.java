@@ -0,0 +1,128 @@
+package au.com.rayh.report;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.Date;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestSuiteWriterTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void shouldShareJAXBContext() throws Exception {
+        JAXBContext context = TestSuiteWriter.getJAXBContext();
+        assertSame(context, TestSuiteWriter.getJAXBContext());
+    }
+
+    @Test
+    public void streamedReportShouldMatchJAXBReport() throws Exception {
+        TestSuite testSuite = new TestSuite("host", "CardTestCase", new Date(1418359733000L));
+        testSuite.setEndTime(new Date(1418359734500L));
+        TestCase passed = new TestCase("CardTestCase", "testMatchesDifferentCardWithSameContents");
+        passed.setTime(0.001f);
+        testSuite.getTestCases().add(passed);
+        testSuite.addTest();
+        TestCase failed = new TestCase("CardTestCase", "testDoesNotMatchDifferentCard");
+        failed.setTime(0.25f);
+        failed.getFailures().add(new TestFailure("\"((nil) != nil)\" should be true. <This> & \"always\" fails", "CardTestCase.m:21"));
+        failed.getErrors().add(new TestError("reason", "NSInternalInconsistencyException"));
+        testSuite.getTestCases().add(failed);
+        testSuite.addTest();
+        testSuite.addFailure();
+        testSuite.addError();
+
+        ByteArrayOutputStream jaxb = new ByteArrayOutputStream();
+        TestSuiteWriter.getJAXBContext().createMarshaller().marshal(testSuite, jaxb);
+        ByteArrayOutputStream stax = new ByteArrayOutputStream();
+        TestSuiteWriter.writeStream(testSuite, stax);
+
+        assertSameElement(parse(jaxb.toByteArray()), parse(stax.toByteArray()));
+    }
+
+    @Test
+    public void streamingReportShouldMatchStreamedReport() throws Exception {
+        TestSuite testSuite = new TestSuite("host", "DeckTestCase", new Date(1418359733000L));
+        TestSuite expected = new TestSuite("host", "DeckTestCase", new Date(1418359733000L));
+        File reports = tmp.newFolder("test-reports");
+        StreamingTestSuiteWriter writer = new StreamingTestSuiteWriter(reports);
+        try {
+            for ( int i = 0; i < 1000; i++ ) {
+                TestCase testCase = new TestCase("DeckTestCase", "testDraw" + i);
+                testCase.setTime(0.001f * i);
+                if ( i % 10 == 0 ) {
+                    testCase.getFailures().add(new TestFailure("((card) != nil) failed <" + i + ">", "DeckTestCase.m:" + i));
+                    testSuite.addFailure();
+                    expected.addFailure();
+                }
+                testSuite.addTest();
+                expected.addTest();
+                writer.writeTestCase(testCase);
+                expected.getTestCases().add(testCase);
+            }
+            // A test case that is still changing stays with the suite, and is written after the streamed ones.
+            TestCase unknown = new TestCase("DeckTestCase", "UnknownTestCase");
+            unknown.getFailures().add(new TestFailure("Assertion Failure", "DeckTestCase.m:1"));
+            testSuite.getTestCases().add(unknown);
+            expected.getTestCases().add(unknown);
+            testSuite.setEndTime(new Date(1418359734500L));
+            expected.setEndTime(new Date(1418359734500L));
+
+            ByteArrayOutputStream written = new ByteArrayOutputStream();
+            TestSuiteWriter.write(expected, written);
+            ByteArrayOutputStream streaming = new ByteArrayOutputStream();
+            writer.writeReport(testSuite, streaming);
+            assertEquals(1000, writer.getTestCases());
+            assertSameElement(parse(written.toByteArray()), parse(streaming.toByteArray()));
+            assertEquals(1, testSuite.getTestCases().size());
+            assertEquals(1, reports.list().length);
+            assertTrue(reports.list()[0].endsWith(".xml.part"));
+        }
+        finally {
+            writer.close();
+        }
+        assertEquals(0, reports.list().length);
+    }
+
+    private static Element parse(byte[] xml) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        return document.getDocumentElement();
+    }
+
+    private static void assertSameElement(Element expected, Element actual) {
+        assertSameAttributes(expected, actual);
+        assertEquals(expected.getTextContent(), actual.getTextContent());
+        NodeList expectedChildren = expected.getElementsByTagName("*");
+        NodeList actualChildren = actual.getElementsByTagName("*");
+        assertEquals(expectedChildren.getLength(), actualChildren.getLength());
+        for ( int i = 0; i < expectedChildren.getLength(); i++ ) {
+            assertSameAttributes((Element)expectedChildren.item(i), (Element)actualChildren.item(i));
+        }
+    }
+
+    private static void assertSameAttributes(Element expected, Element actual) {
+        assertEquals(expected.getNodeName(), actual.getNodeName());
+        NamedNodeMap attributes = expected.getAttributes();
+        assertEquals(attributes.getLength(), actual.getAttributes().getLength());
+        for ( int i = 0; i < attributes.getLength(); i++ ) {
+            Node attribute = attributes.item(i);
+            assertEquals(attribute.getNodeValue(), actual.getAttribute(attribute.getNodeName()));
+        }
+    }
+}